@@ -16,14 +16,27 @@ package org.mvel2;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
+import org.mvel2.compiler.BatchExecutor;
+import org.mvel2.compiler.BulkCompiler;
+import org.mvel2.compiler.CompilationResult;
+import org.mvel2.compiler.CompileCache;
 import org.mvel2.compiler.CompiledAccExpression;
+import org.mvel2.compiler.CompiledBundleInputStream;
+import org.mvel2.compiler.CompiledBundleOutputStream;
 import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.compiler.ExecutableAccessorSafe;
 import org.mvel2.compiler.ExecutableStatement;
 import org.mvel2.compiler.ExpressionCompiler;
 import org.mvel2.integration.Interceptor;
@@ -31,6 +44,7 @@ import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.CachedMapVariableResolverFactory;
 import org.mvel2.integration.impl.CachingMapVariableResolverFactory;
 import org.mvel2.integration.impl.ClassImportResolverFactory;
+import org.mvel2.integration.impl.Frame;
 import org.mvel2.integration.impl.ImmutableDefaultFactory;
 import org.mvel2.integration.impl.MapVariableResolverFactory;
 import org.mvel2.optimizers.impl.refl.nodes.GetterAccessor;
@@ -63,7 +77,17 @@ public class MVEL {
   public static boolean COMPILER_OPT_ALLOW_RESOLVE_INNERCLASSES_WITH_DOTNOTATION = getBoolean("mvel2.compiler.allow_resolve_inner_classes_with_dotnotation");
   public static boolean COMPILER_OPT_SUPPORT_JAVA_STYLE_CLASS_LITERALS = getBoolean("mvel2.compiler.support_java_style_class_literals");
   public static boolean COMPILER_OPT_ALLOCATE_TYPE_LITERALS_TO_SHARED_SYMBOL_TABLE = getBoolean("mvel2.compiler.allocate_type_literals_to_shared_symbol_table");
+  public static boolean COMPILER_OPT_FOLD_CONSTANTS = getBoolean("mvel2.compiler.fold_constants");
+  public static boolean COMPILER_OPT_DISABLE_VARIABLE_SLOTS = getBoolean("mvel2.compiler.disable_variable_slots");
   public static boolean RUNTIME_OPT_THREAD_UNSAFE = getBoolean("mvel2.runtime.thread_unsafe");
+  public static boolean RUNTIME_OPT_JIT_STATEMENTS = getBoolean("mvel2.runtime.jit_statements");
+  public static boolean RUNTIME_OPT_HIDDEN_CLASSES = getBoolean("mvel2.runtime.hidden_classes");
+  public static boolean RUNTIME_OPT_PARALLEL_PROJECTIONS = getBoolean("mvel2.runtime.parallel_projections");
+  public static boolean RUNTIME_OPT_LAZY_PROJECTIONS = getBoolean("mvel2.runtime.lazy_projections");
+  public static int RUNTIME_OPT_PARALLEL_PROJECTION_THRESHOLD = Integer.getInteger("mvel2.runtime.parallel_projection_threshold", 10000);
+
+  private static volatile CompileCache evalCache = Integer.getInteger("mvel2.eval.cache_size", 0) > 0
+      ? new CompileCache(Integer.getInteger("mvel2.eval.cache_size")) : null;
 
   static boolean OPTIMIZER = true;
 
@@ -95,6 +119,7 @@ public class MVEL {
    * @return the resultant value
    */
   public static Object eval(String expression) {
+    if (evalCache != null) return evalCompiled(expression, null, new ImmutableDefaultFactory());
     return new MVELInterpretedRuntime(expression, new ImmutableDefaultFactory()).parse();
   }
 
@@ -112,6 +137,7 @@ public class MVEL {
    * @return The resultant value
    */
   public static Object eval(String expression, Object ctx) {
+    if (evalCache != null) return evalCompiled(expression, ctx, new ImmutableDefaultFactory());
     return new MVELInterpretedRuntime(expression, ctx, new ImmutableDefaultFactory()).parse();
   }
 
@@ -139,6 +165,7 @@ public class MVEL {
    * @return The resultant value.
    */
   public static Object eval(String expression, VariableResolverFactory resolverFactory) {
+    if (evalCache != null) return evalCompiled(expression, null, resolverFactory);
     return new MVELInterpretedRuntime(expression, resolverFactory).parse();
   }
 
@@ -153,6 +180,7 @@ public class MVEL {
    * @see #eval(String, org.mvel2.integration.VariableResolverFactory)
    */
   public static Object eval(String expression, Object ctx, VariableResolverFactory resolverFactory) {
+    if (evalCache != null) return evalCompiled(expression, ctx, resolverFactory);
     return new MVELInterpretedRuntime(expression, ctx, resolverFactory).parse();
   }
 
@@ -168,6 +196,7 @@ public class MVEL {
   public static Object eval(String expression, Map<String, Object> vars) {
     CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(vars);
     try {
+      if (evalCache != null) return evalCompiled(expression, null, factory);
       return new MVELInterpretedRuntime(expression, null, factory).parse();
     }
     finally {
@@ -188,6 +217,7 @@ public class MVEL {
   public static Object eval(String expression, Object ctx, Map<String, Object> vars) {
     CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(vars);
     try {
+      if (evalCache != null) return evalCompiled(expression, ctx, factory);
       return new MVELInterpretedRuntime(expression, ctx, factory).parse();
     }
     finally {
@@ -209,6 +239,7 @@ public class MVEL {
    * @return The resultant value.
    */
   public static <T> T eval(String expression, Class<T> toType) {
+    if (evalCache != null) return convert(evalCompiled(expression, null, new ImmutableDefaultFactory()), toType);
     return convert(new MVELInterpretedRuntime(expression).parse(), toType);
   }
 
@@ -224,6 +255,7 @@ public class MVEL {
    * @see #eval(String, Class)
    */
   public static <T> T eval(String expression, Object ctx, Class<T> toType) {
+    if (evalCache != null) return convert(evalCompiled(expression, ctx, new ImmutableDefaultFactory()), toType);
     return convert(new MVELInterpretedRuntime(expression, ctx).parse(), toType);
   }
 
@@ -240,6 +272,7 @@ public class MVEL {
    * @see #eval(String, Class)
    */
   public static <T> T eval(String expression, VariableResolverFactory vars, Class<T> toType) {
+    if (evalCache != null) return convert(evalCompiled(expression, null, vars), toType);
     return convert(new MVELInterpretedRuntime(expression, null, vars).parse(), toType);
   }
 
@@ -257,6 +290,7 @@ public class MVEL {
   public static <T> T eval(String expression, Map<String, Object> vars, Class<T> toType) {
     CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(vars);
     try {
+      if (evalCache != null) return convert(evalCompiled(expression, null, factory), toType);
       return convert(new MVELInterpretedRuntime(expression, null, factory).parse(), toType);
     }
     finally {
@@ -278,6 +312,7 @@ public class MVEL {
    * @see #eval(String, Class)
    */
   public static <T> T eval(String expression, Object ctx, VariableResolverFactory vars, Class<T> toType) {
+    if (evalCache != null) return convert(evalCompiled(expression, ctx, vars), toType);
     return convert(new MVELInterpretedRuntime(expression, ctx, vars).parse(), toType);
   }
 
@@ -297,6 +332,7 @@ public class MVEL {
   public static <T> T eval(String expression, Object ctx, Map<String, Object> vars, Class<T> toType) {
     CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(vars);
     try {
+      if (evalCache != null) return convert(evalCompiled(expression, ctx, factory), toType);
       return convert(new MVELInterpretedRuntime(expression, ctx, factory).parse(), toType);
     }
     finally {
@@ -304,6 +340,30 @@ public class MVEL {
     }
   }
 
+  /**
+   * Sets the cache of compiled expressions consulted by the <tt>eval(String, ...)</tt> and
+   * <tt>evalToString(String, ...)</tt> methods, which then compile each distinct expression once instead of
+   * interpreting it on every call.  It is disabled by default, or enabled with the <tt>mvel2.eval.cache_size</tt>
+   * system property.
+   *
+   * @param cache the cache, or <tt>null</tt> to interpret expressions again.
+   */
+  public static void setEvalCache(CompileCache cache) {
+    evalCache = cache;
+  }
+
+  public static CompileCache getEvalCache() {
+    return evalCache;
+  }
+
+  private static Object evalCompiled(String expression, Object ctx, VariableResolverFactory factory) {
+    CompileCache cache = evalCache;
+    if (cache == null) {
+      return new MVELInterpretedRuntime(expression, ctx, factory).parse();
+    }
+    return executeExpression(cache.compile(expression), ctx, factory);
+  }
+
   /**
    * Evaluates an expression and returns the resultant value as a String.
    *
@@ -866,6 +926,30 @@ public class MVEL {
     return compileExpression(expression, imports, interceptors, null);
   }
 
+  /**
+   * Compiles expressions in parallel on the common {@link ForkJoinPool}.  See
+   * {@link #compileAll(Collection, ParserConfiguration, ForkJoinPool)}.
+   */
+  public static List<CompilationResult> compileAll(Collection<String> expressions, ParserConfiguration conf) {
+    return compileAll(expressions, conf, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Compiles expressions in parallel.  They are all compiled against a frozen snapshot of the configuration, each
+   * with its own {@link ParserContext}; an expression which fails to compile does not prevent the others from
+   * compiling.
+   *
+   * @param expressions the expressions to compile
+   * @param conf        the configuration (imports, interceptors, class loader) shared by the expressions; it is not
+   *                    changed by the compilation.
+   * @param pool        the pool to compile on
+   * @return the result of each expression, in the order of the expressions.
+   */
+  public static List<CompilationResult> compileAll(Collection<String> expressions, ParserConfiguration conf,
+                                                   ForkJoinPool pool) {
+    return BulkCompiler.compileAll(expressions, conf, pool);
+  }
+
   public static Serializable compileGetExpression(String expression) {
     return new CompiledAccExpression(expression.toCharArray(), Object.class, new ParserContext());
   }
@@ -922,6 +1006,24 @@ public class MVEL {
     return ((ExecutableStatement) compiledExpression).getValue(null, new ImmutableDefaultFactory());
   }
 
+  /**
+   * Creates the factory a compiled expression executes in over a variable map: a {@link Frame} over the slots the
+   * compiler allocated to its variables, if any.
+   */
+  private static CachingMapVariableResolverFactory createFactory(Object compiledExpression, Map vars) {
+    String[] slots = null;
+    if (compiledExpression instanceof CompiledExpression) {
+      slots = ((CompiledExpression) compiledExpression).getVariableSlots();
+    }
+    else if (compiledExpression instanceof ExecutableAccessor) {
+      slots = ((ExecutableAccessor) compiledExpression).getVariableSlots();
+    }
+    else if (compiledExpression instanceof ExecutableAccessorSafe) {
+      slots = ((ExecutableAccessorSafe) compiledExpression).getVariableSlots();
+    }
+    return slots != null ? new Frame(slots, vars) : new CachingMapVariableResolverFactory(vars);
+  }
+
   /**
    * Executes a compiled expression.
    *
@@ -933,7 +1035,7 @@ public class MVEL {
    */
   @SuppressWarnings({"unchecked"})
   public static Object executeExpression(final Object compiledExpression, final Object ctx, final Map vars) {
-    CachingMapVariableResolverFactory factory = vars != null ? new CachingMapVariableResolverFactory(vars) : null;
+    CachingMapVariableResolverFactory factory = vars != null ? createFactory(compiledExpression, vars) : null;
     try {
       return ((ExecutableStatement) compiledExpression).getValue(ctx, factory);
     }
@@ -980,7 +1082,7 @@ public class MVEL {
    */
   @SuppressWarnings({"unchecked"})
   public static Object executeExpression(final Object compiledExpression, final Map vars) {
-    CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(vars);
+    CachingMapVariableResolverFactory factory = createFactory(compiledExpression, vars);
     try {
       return ((ExecutableStatement) compiledExpression).getValue(null, factory);
     }
@@ -1074,6 +1176,83 @@ public class MVEL {
     return o;
   }
 
+  /**
+   * Executes a compiled expression against each of the contexts, as many calls to
+   * {@link #executeExpression(Object, Object, Map)} would, but sharing a single variable frame across them.
+   * Assignments to the variables of <tt>vars</tt> are written back to it once the batch is done; the variables and
+   * functions the expression declares are local to each context.
+   *
+   * @param compiledExpression the compiled expression
+   * @param contexts           the context objects
+   * @param vars               the variables shared by the executions; may be <tt>null</tt>.
+   * @param results            the array receiving the result of each context, at least as long as
+   *                           <tt>contexts</tt>.
+   * @return <tt>results</tt>
+   */
+  public static Object[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, Object[] results) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results);
+    return results;
+  }
+
+  /**
+   * Executes a compiled expression against each of the contexts.  See
+   * {@link #executeBatch(Object, Object[], Map, Object[])}.
+   *
+   * @return the result of each context, in order.
+   */
+  public static List<Object> executeBatch(Object compiledExpression, Iterable<?> contexts, Map vars) {
+    return BatchExecutor.executeAll(compiledExpression, contexts, vars);
+  }
+
+  /**
+   * Executes a compiled boolean expression, such as a rule condition, against each of the contexts.  See
+   * {@link #executeBatch(Object, Object[], Map, Object[])}.
+   */
+  public static boolean[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, boolean[] results) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results);
+    return results;
+  }
+
+  /**
+   * Executes a compiled numeric expression against each of the contexts; a <tt>null</tt> result is stored as
+   * <tt>NaN</tt>.  See {@link #executeBatch(Object, Object[], Map, Object[])}.
+   */
+  public static double[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, double[] results) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results);
+    return results;
+  }
+
+  /**
+   * Executes a compiled expression against each of the contexts in parallel, splitting them across the pool.  The
+   * executions must not depend on one another: variables assigned by the expression are not written back to
+   * <tt>vars</tt>, which must not be modified while the batch runs.
+   */
+  public static Object[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, Object[] results,
+                                      ForkJoinPool pool) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results, pool);
+    return results;
+  }
+
+  /**
+   * Executes a compiled boolean expression against each of the contexts in parallel.  See
+   * {@link #executeBatch(Object, Object[], Map, Object[], ForkJoinPool)}.
+   */
+  public static boolean[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, boolean[] results,
+                                       ForkJoinPool pool) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results, pool);
+    return results;
+  }
+
+  /**
+   * Executes a compiled numeric expression against each of the contexts in parallel.  See
+   * {@link #executeBatch(Object, Object[], Map, Object[], ForkJoinPool)}.
+   */
+  public static double[] executeBatch(Object compiledExpression, Object[] contexts, Map vars, double[] results,
+                                      ForkJoinPool pool) {
+    BatchExecutor.executeAll(compiledExpression, contexts, vars, results, pool);
+    return results;
+  }
+
   public static Object executeDebugger(CompiledExpression expression, Object ctx, VariableResolverFactory vars) {
     if (expression.isImportInjectionRequired()) {
       return execute(true, expression, ctx, new ClassImportResolverFactory(expression.getParserConfiguration(), vars, false));
@@ -1083,6 +1262,60 @@ public class MVEL {
     }
   }
 
+  /**
+   * Writes a compiled expression in the versioned bundle format: the Java serialization of the expression, without
+   * the accessors generated by the optimizers, behind a header identifying the format.  Loading it does not require
+   * the expression to be parsed again.
+   *
+   * @param compiled a compiled expression
+   * @param out      the stream to write to; it is flushed but not closed.
+   * @see #readCompiled(InputStream, ClassLoader)
+   */
+  public static void writeCompiled(Serializable compiled, OutputStream out) throws IOException {
+    CompiledBundleOutputStream stream = new CompiledBundleOutputStream(out);
+    stream.writeExpression(compiled);
+    stream.flush();
+  }
+
+  /**
+   * Writes a bundle of named compiled expressions in the versioned bundle format.
+   *
+   * @param bundle the compiled expressions by name
+   * @param out    the stream to write to; it is flushed but not closed.
+   * @see #readCompiledBundle(InputStream, ClassLoader)
+   */
+  public static void writeCompiled(Map<String, ? extends Serializable> bundle, OutputStream out) throws IOException {
+    CompiledBundleOutputStream stream = new CompiledBundleOutputStream(out);
+    stream.writeBundle(bundle);
+    stream.flush();
+  }
+
+  public static Serializable readCompiled(InputStream in) throws IOException, ClassNotFoundException {
+    return readCompiled(in, Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Reads a compiled expression written by {@link #writeCompiled(Serializable, OutputStream)}.
+   *
+   * @param in          the stream to read from
+   * @param classLoader the class loader resolving the classes the expression refers to
+   * @return the compiled expression, ready to be executed.
+   */
+  public static Serializable readCompiled(InputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+    return new CompiledBundleInputStream(in, classLoader).readExpression();
+  }
+
+  /**
+   * Reads a bundle of compiled expressions written by {@link #writeCompiled(Map, OutputStream)}.
+   *
+   * @param in          the stream to read from
+   * @param classLoader the class loader resolving the classes the expressions refer to
+   * @return the compiled expressions by name, in the order they were written.
+   */
+  public static Map<String, Serializable> readCompiledBundle(InputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+    return new CompiledBundleInputStream(in, classLoader).readBundle();
+  }
+
   public static String parseMacros(String input, Map<String, Macro> macros) {
     return new MacroProcessor(macros).parse(input);
   }
@@ -53,6 +53,8 @@ public class MVELInterpretedRuntime extends AbstractParser {
     try {
       stk = new ExecutionStack();
       dStack = new ExecutionStack();
+      stk.setNumericMode(pCtx.getParserConfiguration().getNumericMode());
+      dStack.setNumericMode(pCtx.getParserConfiguration().getNumericMode());
       variableFactory.setTiltFlag(false);
       cursor = start;
       return parseAndExecuteInterpreted();
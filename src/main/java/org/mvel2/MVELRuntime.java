@@ -52,12 +52,13 @@ public class MVELRuntime {
                                VariableResolverFactory variableFactory) {
 
     Object v1, v2;
-    ExecutionStack stk = new ExecutionStack();
-
     ASTNode tk = expression.getFirstNode();
-    Integer operator;
+    int operator;
 
     if (tk == null) return null;
+
+    ExecutionStack stk = ExecutionStack.acquire();
+    stk.setNumericMode(expression.getParserConfiguration().getNumericMode());
     try {
       do {
         if (tk.fields == -1) {
@@ -124,23 +125,20 @@ public class MVELRuntime {
             continue;
         }
 
-        stk.push(tk.nextASTNode.getReducedValueAccelerated(ctx, ctx, variableFactory), operator);
+        stk.push(tk.nextASTNode.getReducedValueAccelerated(ctx, ctx, variableFactory));
 
         try {
-          while (stk.isReduceable()) {
-            if ((Integer) stk.peek() == CHOR) {
-              stk.pop();
-              v1 = stk.pop();
-              v2 = stk.pop();
-              if (!isEmpty(v2) || !isEmpty(v1)) {
-                stk.clear();
-                stk.push(!isEmpty(v2) ? v2 : v1);
-              }
-              else stk.push(null);
-            }
-            else {
-              stk.op();
-            }
+          /**
+           * The stack holds a single value before the operand is pushed, so each operation reduces it straight
+           * back to one value.
+           */
+          if (operator == CHOR) {
+            v1 = stk.pop();
+            v2 = stk.pop();
+            stk.push(!isEmpty(v2) ? v2 : !isEmpty(v1) ? v1 : null);
+          }
+          else {
+            stk.op(operator);
           }
         }
         catch (ClassCastException e) {
@@ -167,6 +165,7 @@ public class MVELRuntime {
       }
     }
     finally {
+      stk.release();
       OptimizerFactory.clearThreadAccessorOptimizer();
     }
   }
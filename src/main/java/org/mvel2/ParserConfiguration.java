@@ -37,6 +37,9 @@ import org.mvel2.integration.Interceptor;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.ClassImportResolverFactory;
 import org.mvel2.integration.impl.StackResetResolverFactory;
+import org.mvel2.math.NumericMode;
+import org.mvel2.util.HiddenClassDefiner;
+import org.mvel2.util.JITClassLoader;
 import org.mvel2.util.MethodStub;
 
 import static org.mvel2.util.ParseTools.forNameWithInner;
@@ -50,6 +53,7 @@ public class ParserConfiguration implements Serializable {
   protected HashSet<String> packageImports;
   protected Map<String, Interceptor> interceptors;
   protected transient ClassLoader classLoader;
+  private transient HiddenClassDefiner hiddenClassDefiner;
 
   private final transient Set<String> nonValidImports = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
   
@@ -57,8 +61,12 @@ public class ParserConfiguration implements Serializable {
 
   private boolean allowBootstrapBypass = true;
 
+  private NumericMode numericMode = NumericMode.DEFAULT;
+
   private VariableResolverFactory threadUnsafeVariableResolverFactory;
 
+  private boolean frozen;
+
   public ParserConfiguration() {
   }
 
@@ -79,6 +87,7 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void setPackageImports(HashSet<String> packageImports) {
+    checkNotFrozen();
     this.packageImports = packageImports;
   }
 
@@ -98,6 +107,7 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void addPackageImport(String packageName) {
+    checkNotFrozen();
     if (packageImports == null) packageImports = new LinkedHashSet<String>();
     packageImports.add(packageName);
     if (!addClassMemberStaticImports(packageName)) packageImports.add(packageName);
@@ -133,6 +143,7 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void addAllImports(Map<String, Object> imports) {
+    checkNotFrozen();
     if (imports == null) return;
 
     Object o;
@@ -166,7 +177,7 @@ public class ParserConfiguration implements Serializable {
 
     if (found > 1) throw new RuntimeException("ambiguous class name: " + className);
     if (found == 1) {
-      addImport(className, cls);
+      imports.put(className, cls);
       return true;
     }
 
@@ -185,10 +196,12 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void addImport(String name, Class cls) {
+    checkNotFrozen();
     this.imports.put(name, cls);
   }
 
   public void addImport(String name, Proto proto) {
+    checkNotFrozen();
     this.imports.put(name, proto);
   }
 
@@ -197,22 +210,28 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void addImport(String name, MethodStub method) {
+    checkNotFrozen();
     this.imports.put(name, method);
   }
 
   public Map<String, Interceptor> getInterceptors() {
-    return interceptors;
+    return frozen && interceptors != null ? Collections.unmodifiableMap(interceptors) : interceptors;
   }
 
   public void setInterceptors(Map<String, Interceptor> interceptors) {
+    checkNotFrozen();
     this.interceptors = interceptors;
   }
 
+  /**
+   * @return the imports, which cannot be modified if the configuration is frozen.
+   */
   public Map<String, Object> getImports() {
-    return imports;
+    return frozen ? Collections.unmodifiableMap(imports) : imports;
   }
 
   public void setImports(Map<String, Object> imports) {
+    checkNotFrozen();
     if (imports == null) return;
 
     Object val;
@@ -245,10 +264,24 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void setClassLoader(ClassLoader classLoader) {
+    checkNotFrozen();
     this.classLoader = classLoader;
+    this.hiddenClassDefiner = null;
+  }
+
+  /**
+   * Returns the definer of hidden JIT classes seeing the classes of this configuration's class loader.  It is
+   * shared by all the expressions compiled with this configuration.
+   */
+  public synchronized HiddenClassDefiner getHiddenClassDefiner() {
+    if (hiddenClassDefiner == null) {
+      hiddenClassDefiner = new HiddenClassDefiner(new JITClassLoader(getClassLoader()));
+    }
+    return hiddenClassDefiner;
   }
 
   public void setAllImports(Map<String, Object> imports) {
+    checkNotFrozen();
     this.imports.clear();
     if (imports != null) this.imports.putAll(imports);
   }
@@ -271,6 +304,7 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void setAllowNakedMethCall(boolean allowNakedMethCall) {
+    checkNotFrozen();
     this.allowNakedMethCall = allowNakedMethCall;
   }
 
@@ -279,9 +313,60 @@ public class ParserConfiguration implements Serializable {
   }
 
   public void setAllowBootstrapBypass(boolean allowBootstrapBypass) {
+    checkNotFrozen();
     this.allowBootstrapBypass = allowBootstrapBypass;
   }
 
+  public NumericMode getNumericMode() {
+    return numericMode;
+  }
+
+  /**
+   * Sets how expressions compiled against this configuration carry out decimal arithmetic; see {@link NumericMode}.
+   */
+  public void setNumericMode(NumericMode numericMode) {
+    checkNotFrozen();
+    this.numericMode = numericMode == null ? NumericMode.DEFAULT : numericMode;
+  }
+
+  /**
+   * Returns an immutable snapshot of this configuration: its imports, interceptors and class loader can no longer
+   * change, so it can be shared by parsers running concurrently, as by {@link MVEL#compileAll(java.util.Collection,
+   * ParserConfiguration)}.  A {@link ParserContext} adding imports to a frozen configuration works on a copy of it.
+   *
+   * @return the snapshot, or this configuration if it is already frozen.
+   */
+  public ParserConfiguration freeze() {
+    if (frozen) return this;
+
+    ParserConfiguration snapshot = copy();
+    snapshot.frozen = true;
+    return snapshot;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * @return a mutable copy of this configuration.
+   */
+  ParserConfiguration copy() {
+    ParserConfiguration copy = new ParserConfiguration();
+    copy.imports.putAll(imports);
+    if (packageImports != null) copy.packageImports = new LinkedHashSet<String>(packageImports);
+    if (interceptors != null) copy.interceptors = new HashMap<String, Interceptor>(interceptors);
+    copy.classLoader = getClassLoader();
+    copy.allowNakedMethCall = allowNakedMethCall;
+    copy.allowBootstrapBypass = allowBootstrapBypass;
+    copy.numericMode = numericMode;
+    return copy;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) throw new UnsupportedOperationException("the parser configuration is frozen");
+  }
+
   public VariableResolverFactory getVariableFactory(VariableResolverFactory factory) {
     if (MVEL.RUNTIME_OPT_THREAD_UNSAFE) {
       if (threadUnsafeVariableResolverFactory == null) {
@@ -299,7 +384,10 @@ public class ParserConfiguration implements Serializable {
     return createVariableResolverFactory(factory);
   }
 
-  private VariableResolverFactory createVariableResolverFactory(VariableResolverFactory factory) {
+  /**
+   * Creates the factory an expression compiled against this configuration executes in over the given factory.
+   */
+  public VariableResolverFactory createVariableResolverFactory(VariableResolverFactory factory) {
     return hasImports() ? new ClassImportResolverFactory(this, factory, true) : new StackResetResolverFactory(factory);
   }
 }
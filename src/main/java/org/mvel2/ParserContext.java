@@ -373,7 +373,7 @@ public class ParserContext implements Serializable {
    * @param packageName A fully qualified package (eg. <tt>java.util.concurrent</tt>).
    */
   public void addPackageImport(String packageName) {
-    parserConfiguration.addPackageImport(packageName);
+    mutableConfiguration().addPackageImport(packageName);
   }
 
   /**
@@ -405,7 +405,7 @@ public class ParserContext implements Serializable {
   }
 
   public void addImport(Proto proto) {
-    parserConfiguration.addImport(proto.getName(), proto);
+    mutableConfiguration().addImport(proto.getName(), proto);
 
   }
 
@@ -423,7 +423,7 @@ public class ParserContext implements Serializable {
    * @param cls  The instance of the <tt>Class</tt> which represents the imported class.
    */
   public void addImport(String name, Class cls) {
-    parserConfiguration.addImport(name, cls);
+    mutableConfiguration().addImport(name, cls);
     //      addInput(name, cls);
   }
 
@@ -451,7 +451,7 @@ public class ParserContext implements Serializable {
    * @see #addImport(String, org.mvel2.util.MethodStub)
    */
   public void addImport(String name, MethodStub method) {
-    parserConfiguration.addImport(name, method);
+    mutableConfiguration().addImport(name, method);
   }
 
   /**
@@ -670,7 +670,7 @@ public class ParserContext implements Serializable {
   }
 
   public void setInterceptors(Map<String, Interceptor> interceptors) {
-    this.parserConfiguration.setInterceptors(interceptors);
+    mutableConfiguration().setInterceptors(interceptors);
   }
 
   public Map<String, Object> getImports() {
@@ -1002,6 +1002,16 @@ public class ParserContext implements Serializable {
     return parserConfiguration.getClassLoader();
   }
 
+  /**
+   * Returns the configuration to change, which is a copy of it if it is frozen and shared with other contexts.
+   */
+  private ParserConfiguration mutableConfiguration() {
+    if (parserConfiguration.isFrozen()) {
+      parserConfiguration = parserConfiguration.copy();
+    }
+    return parserConfiguration;
+  }
+
   public Type[] getLastTypeParameters() {
     return lastTypeParameters;
   }
@@ -1015,7 +1025,7 @@ public class ParserContext implements Serializable {
   }
 
   public void setAllowBootstrapBypass(boolean allowBootstrapBypass) {
-    parserConfiguration.setAllowBootstrapBypass(allowBootstrapBypass);
+    mutableConfiguration().setAllowBootstrapBypass(allowBootstrapBypass);
   }
 
   public String[] getIndexedVarNames() {
@@ -24,6 +24,7 @@ import org.mvel2.ParserContext;
 import org.mvel2.compiler.Accessor;
 import org.mvel2.debug.DebugTools;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.math.NumericMode;
 import org.mvel2.optimizers.AccessorOptimizer;
 import org.mvel2.optimizers.OptimizationNotSupported;
 
@@ -117,7 +118,23 @@ public class ASTNode implements Cloneable, Serializable {
   }
 
   private Object deop(Object ctx, Object thisValue, VariableResolverFactory factory, RuntimeException e) {
-    if ((fields & DEOP) == 0) {
+    if ((fields & (DEOP | NOJIT)) == 0 && !(accessor instanceof PolymorphicAccessor)) {
+      /**
+       * The node sees more than one receiver type: keep an accessor per type rather than giving up on the JIT.
+       */
+      Accessor pic = new PolymorphicAccessor(this);
+      accessor = pic;
+      return pic.getValue(ctx, thisValue, factory);
+    }
+    return megamorphic(ctx, thisValue, factory, e);
+  }
+
+  /**
+   * Falls back to the reflective optimizer for good, once the types seen by the node are too many, or cannot be
+   * told apart by the receiver type.
+   */
+  Object megamorphic(Object ctx, Object thisValue, VariableResolverFactory factory, RuntimeException e) {
+    if ((fields & DEOP) == 0 || e == null) {
       accessor = null;
       fields |= DEOP | NOJIT;
 
@@ -145,14 +162,7 @@ public class ASTNode implements Cloneable, Serializable {
       optimizer = getDefaultAccessorCompiler();
     }
 
-    ParserContext pCtx;
-
-    if ((fields & PCTX_STORED) != 0) {
-      pCtx = (ParserContext) literal;
-    }
-    else {
-      pCtx = new ParserContext(new ParserConfiguration(getInjectedImports(factory), null));
-    }
+    ParserContext pCtx = getOptimizationContext(factory);
 
     try {
       pCtx.optimizationNotify();
@@ -178,6 +188,34 @@ public class ASTNode implements Cloneable, Serializable {
     return retVal;
   }
 
+  /**
+   * Evaluates the node as an <tt>int</tt>.  Nodes known to produce a primitive value at compile time override the
+   * typed entry points, so that a chain of such nodes is evaluated without boxing the intermediate results.
+   */
+  public int getIntValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).intValue();
+  }
+
+  public long getLongValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).longValue();
+  }
+
+  public double getDoubleValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).doubleValue();
+  }
+
+  public boolean getBooleanValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return (Boolean) getReducedValueAccelerated(ctx, thisValue, factory);
+  }
+
+  ParserContext getOptimizationContext(VariableResolverFactory factory) {
+    if ((fields & PCTX_STORED) != 0) {
+      return (ParserContext) literal;
+    }
+    else {
+      return new ParserContext(new ParserConfiguration(getInjectedImports(factory), null));
+    }
+  }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     if ((fields & (LITERAL)) != 0) {
@@ -408,6 +446,13 @@ public class ASTNode implements Cloneable, Serializable {
     return expr;
   }
 
+  /**
+   * @return the numeric mode of the configuration the node is compiled against.
+   */
+  protected static NumericMode getNumericMode(ParserContext pCtx) {
+    return pCtx == null ? NumericMode.DEFAULT : pCtx.getParserConfiguration().getNumericMode();
+  }
+
   protected ASTNode(ParserContext pCtx) {
     this.pCtx = pCtx;
   }
@@ -31,8 +31,11 @@ public class And extends BooleanNode {
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-    return (((Boolean) left.getReducedValueAccelerated(ctx, thisValue, factory))
-        && ((Boolean) right.getReducedValueAccelerated(ctx, thisValue, factory)));
+    return getBooleanValue(ctx, thisValue, factory);
+  }
+
+  public boolean getBooleanValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return left.getBooleanValue(ctx, thisValue, factory) && right.getBooleanValue(ctx, thisValue, factory);
   }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
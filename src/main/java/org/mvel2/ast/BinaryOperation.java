@@ -27,6 +27,9 @@ import org.mvel2.Operator;
 import org.mvel2.ParserContext;
 import org.mvel2.ScriptRuntimeException;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.math.MathOperation;
+import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 import org.mvel2.util.CompatibilityStrategy;
 import org.mvel2.util.NullType;
 import org.mvel2.util.ParseTools;
@@ -40,18 +43,29 @@ import static org.mvel2.util.CompilerTools.getReturnTypeFromOp;
 import static org.mvel2.util.ParseTools.boxPrimitive;
 
 public class BinaryOperation extends BooleanNode {
+  private static final int MAX_CACHE_MISSES = 8;
+
   private final int operation;
   private int lType = -1;
   private int rType = -1;
+  private final NumericMode numericMode;
+
+  /**
+   * The operation resolved for the operand types last seen by this node.
+   */
+  private transient CachedOperation cachedOperation;
+  private transient int cacheMisses;
 
   public BinaryOperation(int operation, ParserContext ctx) {
     super(ctx);
     this.operation = operation;
+    this.numericMode = getNumericMode(ctx);
   }
 
   public BinaryOperation(int operation, ASTNode left, ASTNode right, ParserContext ctx) {
     super(ctx);
     this.operation = operation;
+    this.numericMode = getNumericMode(ctx);
     if ((this.left = left) == null) {
       throw new ScriptRuntimeException("not a statement");
     }
@@ -143,8 +157,27 @@ public class BinaryOperation extends BooleanNode {
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-    return doOperations(lType, left.getReducedValueAccelerated(ctx, thisValue, factory), operation, rType,
-        right.getReducedValueAccelerated(ctx, thisValue, factory));
+    Object val1 = left.getReducedValueAccelerated(ctx, thisValue, factory);
+    Object val2 = right.getReducedValueAccelerated(ctx, thisValue, factory);
+
+    if (val1 != null && val2 != null) {
+      CachedOperation cached = cachedOperation;
+      if (cached == null || cached.type1 != val1.getClass() || cached.type2 != val2.getClass()) {
+        cached = cacheOperation(val1.getClass(), val2.getClass());
+      }
+      if (cached != null && cached.operation != null) {
+        return cached.operation.doOperation(val1, val2);
+      }
+    }
+    return doOperations(lType, val1, operation, rType, val2, numericMode);
+  }
+
+  private CachedOperation cacheOperation(Class<?> type1, Class<?> type2) {
+    // stop caching at a site whose operand types keep changing.
+    if (cacheMisses > MAX_CACHE_MISSES) return null;
+    cacheMisses++;
+    return cachedOperation = new CachedOperation(type1, type2,
+        MathProcessor.getOperation(lType, type1, operation, rType, type2));
   }
 
 
@@ -156,6 +189,18 @@ public class BinaryOperation extends BooleanNode {
     return operation;
   }
 
+  public NumericMode getNumericMode() {
+    return numericMode;
+  }
+
+  public int getLeftType() {
+    return lType;
+  }
+
+  public int getRightType() {
+    return rType;
+  }
+
   public void setRightMost(ASTNode right) {
     BinaryOperation n = this;
     while (n.right != null && n.right instanceof BinaryOperation) {
@@ -184,4 +229,16 @@ public class BinaryOperation extends BooleanNode {
   public String toString() {
     return "(" + left + " " + getOperatorSymbol(operation) + " " + right + ")";
   }
+
+  private static final class CachedOperation {
+    private final Class<?> type1;
+    private final Class<?> type2;
+    private final MathOperation operation;
+
+    private CachedOperation(Class<?> type1, Class<?> type2, MathOperation operation) {
+      this.type1 = type1;
+      this.type2 = type2;
+      this.operation = operation;
+    }
+  }
 }
@@ -21,19 +21,71 @@ package org.mvel2.ast;
 import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolverFactory;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.mvel2.util.ParseTools.containsCheck;
 
 public class Contains extends ASTNode {
   private ASTNode stmt;
   private ASTNode stmt2;
 
+  /**
+   * The elements of an inline collection of literals on the left, hashed once at compile time.
+   */
+  private Set<Object> literals;
+
+  /**
+   * For an inline array, the class of all its elements: arrays compare their elements with the <tt>==</tt>
+   * operator, which only agrees with the hash set for values of that very class.
+   */
+  private Class literalType;
+  private Object[] literalArray;
+
   public Contains(ASTNode stmt, ASTNode stmt2, ParserContext pCtx) {
     super(pCtx);
     this.stmt = stmt;
     this.stmt2 = stmt2;
+
+    if (stmt instanceof InlineCollectionNode) {
+      Object[] values = ((InlineCollectionNode) stmt).getLiteralElements();
+      if (values != null) {
+        if (stmt.getEgressType() == Object[].class) {
+          if ((literalType = exactType(values)) != null) {
+            literals = new HashSet<Object>(Arrays.asList(literalArray = values));
+          }
+        }
+        else {
+          literals = new HashSet<Object>(Arrays.asList(values));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the class of all the values, if the <tt>==</tt> operator and <tt>equals()</tt> agree on it.
+   */
+  private static Class exactType(Object[] values) {
+    Class type = values.length == 0 || values[0] == null ? null : values[0].getClass();
+    if (type != String.class && type != Integer.class && type != Long.class && type != Character.class
+        && type != Boolean.class) {
+      return null;
+    }
+    for (Object o : values) {
+      if (o == null || o.getClass() != type) return null;
+    }
+    return type;
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    if (literals != null) {
+      Object test = stmt2.getReducedValueAccelerated(ctx, thisValue, factory);
+      if (literalType == null || (test != null && test.getClass() == literalType)) {
+        return literals.contains(test);
+      }
+      return containsCheck(literalArray, test);
+    }
     return containsCheck(stmt.getReducedValueAccelerated(ctx, thisValue, factory), stmt2.getReducedValueAccelerated(ctx, thisValue, factory));
   }
 
@@ -21,6 +21,7 @@ package org.mvel2.ast;
 import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 
 import static org.mvel2.MVEL.eval;
 import static org.mvel2.PropertyAccessor.get;
@@ -29,11 +30,13 @@ import static org.mvel2.PropertyAccessor.set;
 public class DeepOperativeAssignmentNode extends DeepAssignmentNode {
 
     private final int operation;
+    private final NumericMode numericMode;
 
     public DeepOperativeAssignmentNode(char[] expr, int start, int offset, int fields, int operation, String name, ParserContext pCtx) {
         super(expr, start, offset, fields, operation, name, pCtx);
 
         this.operation = operation;
+        this.numericMode = getNumericMode(pCtx);
     }
 
     // No need to override DeepAssignmentNode.getReducedValueAccelerated() because it already works properly (calculate and assign).
@@ -41,7 +44,7 @@ public class DeepOperativeAssignmentNode extends DeepAssignmentNode {
     @Override
     public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
         Object value = get(property, ctx, factory, thisValue, pCtx);
-        ctx = MathProcessor.doOperations(value, operation, eval(expr, start, offset, ctx, factory));
+        ctx = MathProcessor.doOperations(value, operation, eval(expr, start, offset, ctx, factory), numericMode);
         set(ctx, factory, property, ctx, pCtx);
         return ctx;
     }
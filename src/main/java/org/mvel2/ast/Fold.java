@@ -19,24 +19,58 @@
 package org.mvel2.ast;
 
 import org.mvel2.CompileException;
+import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
+import org.mvel2.compiler.AbstractParser;
 import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.DefaultLocalVariableResolverFactory;
 import org.mvel2.integration.impl.ItemResolverFactory;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 import static org.mvel2.util.CompilerTools.expectType;
 import static org.mvel2.util.ParseTools.*;
 
 public class Fold extends ASTNode {
+  /**
+   * The number of elements below which a worker of a parallel projection stops splitting its share.
+   */
+  private static final int LEAF_SIZE = 512;
+
   private ExecutableStatement subEx;
   private ExecutableStatement dataEx;
   private ExecutableStatement constraintEx;
 
+  /**
+   * Whether the projection and its constraint are free of side effects, and so may be evaluated in parallel or
+   * lazily.
+   */
+  private boolean sideEffectFree;
+
+  /**
+   * The names read by the projection and by its constraint, which a lazy projection copies when it is created if
+   * they are variables; or <tt>null</tt> if it is not free of side effects.
+   */
+  private String[] freeVariables;
+  private String[] constraintVariables;
+
   public Fold(char[] expr, int start, int offset, int fields, ParserContext pCtx) {
     super(pCtx);
     this.expr = expr;
@@ -56,6 +90,10 @@ public class Fold extends ASTNode {
     }
 
     subEx = (ExecutableStatement) subCompileExpression(expr, start, cursor - start - 1, pCtx);
+    sideEffectFree = isSideEffectFree(expr, start, cursor - 1);
+    Set<String> names = new LinkedHashSet<String>();
+    Set<String> constraintNames = new LinkedHashSet<String>();
+    collectVariables(expr, start, cursor - 1, pCtx, names);
     int st = cursor += 2; // skip 'in'
 
     for (; cursor < end; cursor++) {
@@ -65,11 +103,18 @@ public class Fold extends ASTNode {
         if (expr[cursor] == 'i' && expr[cursor + 1] == 'f' && isJunct(expr[cursor + 2])) {
           int s = cursor + 2;
           constraintEx = (ExecutableStatement) subCompileExpression(expr, s, end - s, pCtx);
+          sideEffectFree &= isSideEffectFree(expr, s, end);
+          collectVariables(expr, s, end, pCtx, constraintNames);
           break;
         }
       }
     }
 
+    if (sideEffectFree) {
+      freeVariables = names.toArray(new String[names.size()]);
+      constraintVariables = constraintNames.toArray(new String[constraintNames.size()]);
+    }
+
     while (isWhitespace(expr[cursor])) cursor--;
 
     expectType(pCtx, dataEx = (ExecutableStatement) subCompileExpression(expr, st, cursor - st, pCtx),
@@ -77,6 +122,24 @@ public class Fold extends ASTNode {
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    Map<String, Object> snapshot;
+    if (MVEL.RUNTIME_OPT_LAZY_PROJECTIONS && sideEffectFree && (snapshot = snapshot(factory)) != null) {
+      Object x = dataEx.getValue(ctx, thisValue, factory);
+      if (x == null)
+        throw new CompileException("was expecting type: Collection; but found type: null", expr, start);
+
+      return new LazyProjection(subEx, constraintEx, (Collection) x, ctx, thisValue,
+          new MapVariableResolverFactory(snapshot));
+    }
+
+    if (MVEL.RUNTIME_OPT_PARALLEL_PROJECTIONS && sideEffectFree && factory != null) {
+      Collection col = ((Collection) dataEx.getValue(ctx, thisValue, factory));
+      if (col.size() >= MVEL.RUNTIME_OPT_PARALLEL_PROJECTION_THRESHOLD) {
+        return ForkJoinPool.commonPool().invoke(new Projection(col.spliterator(), ctx, thisValue, factory));
+      }
+      return project(col, ctx, thisValue, new DefaultLocalVariableResolverFactory(factory));
+    }
+
     ItemResolverFactory.ItemResolver itemR = new ItemResolverFactory.ItemResolver("$");
     ItemResolverFactory itemFactory = new ItemResolverFactory(itemR, new DefaultLocalVariableResolverFactory(factory));
 
@@ -141,7 +204,300 @@ public class Fold extends ASTNode {
     return list;
   }
 
+  /**
+   * Copies the variables the projection reads, so that a lazy projection sees them as they were when it was created.
+   * The names of the projection which are not variables are properties of the elements.
+   *
+   * @return the copy, or <tt>null</tt> if the constraint reads names which are not variables - they are properties
+   *         of the context, which could change - in which case the projection is built at once.
+   */
+  private Map<String, Object> snapshot(VariableResolverFactory factory) {
+    Map<String, Object> snapshot = new HashMap<String, Object>();
+    for (String name : freeVariables) {
+      if (factory != null && factory.isResolveable(name)) {
+        snapshot.put(name, factory.getVariableResolver(name).getValue());
+      }
+    }
+    for (String name : constraintVariables) {
+      if (factory == null || !factory.isResolveable(name)) return null;
+      snapshot.put(name, factory.getVariableResolver(name).getValue());
+    }
+    return snapshot;
+  }
+
+  private List project(Collection col, Object ctx, Object thisValue, VariableResolverFactory localFactory) {
+    ItemResolverFactory.ItemResolver itemR = new ItemResolverFactory.ItemResolver("$");
+    ItemResolverFactory itemFactory = new ItemResolverFactory(itemR, localFactory);
+
+    List list = new ArrayList(col.size());
+    for (Object o : col) {
+      itemR.value = o;
+      if (constraintEx == null || (Boolean) constraintEx.getValue(ctx, thisValue, itemFactory)) {
+        list.add(subEx.getValue(o, thisValue, itemFactory));
+      }
+    }
+    return list;
+  }
+
   public Class getEgressType() {
     return Collection.class;
   }
+
+  public boolean isParallelSafe() {
+    return sideEffectFree;
+  }
+
+  /**
+   * A conservative, lexical check that an expression neither assigns nor calls anything: it rejects assignments,
+   * increments and decrements, method, function and constructor calls, blocks and statement separators.  Property
+   * reads are taken to be free of side effects.
+   */
+  static boolean isSideEffectFree(char[] expr, int start, int end) {
+    for (int i = start; i < end; i++) {
+      switch (expr[i]) {
+        case '\'':
+        case '"':
+          i = captureStringLiteral(expr[i], expr, i, end);
+          break;
+
+        case '=':
+          if (i + 1 < end && expr[i + 1] == '=') {
+            i++;
+          }
+          else if (i == start || "!<>~".indexOf(expr[i - 1]) == -1) {
+            return false;
+          }
+          break;
+
+        case '+':
+        case '-':
+          if (i + 1 < end && expr[i + 1] == expr[i]) return false;
+          break;
+
+        case '(':
+          int j = i - 1;
+          while (j >= start && isWhitespace(expr[j])) j--;
+          if (j >= start && isIdentifierPart(expr[j])) return false;
+          break;
+
+        case '{':
+        case ';':
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects the names an expression reads as variables, by the same lexical scan: the identifiers which are not
+   * preceded by a dot, leaving out <tt>$</tt>, <tt>this</tt>, literals, operators and imports.
+   */
+  static void collectVariables(char[] expr, int start, int end, ParserContext pCtx, Set<String> names) {
+    for (int i = start; i < end; i++) {
+      char c = expr[i];
+      if (c == '\'' || c == '"') {
+        i = captureStringLiteral(c, expr, i, end);
+      }
+      else if (isDigit(c)) {
+        while (i + 1 < end && (isIdentifierPart(expr[i + 1]) || expr[i + 1] == '.')) i++;
+      }
+      else if (isIdentifierPart(c)) {
+        int st = i;
+        while (i + 1 < end && isIdentifierPart(expr[i + 1])) i++;
+
+        int j = st - 1;
+        while (j >= start && isWhitespace(expr[j])) j--;
+        if (j >= start && expr[j] == '.') continue;
+
+        String name = new String(expr, st, i + 1 - st);
+        if (!"$".equals(name) && !"this".equals(name) && !AbstractParser.LITERALS.containsKey(name)
+            && !AbstractParser.OPERATORS.containsKey(name) && (pCtx == null || !pCtx.hasImport(name))) {
+          names.add(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * A projection which is only evaluated as far as it is read, so that <tt>contains</tt>, <tt>foreach</tt> or a
+   * stream taking the first element stop as soon as they have their answer.  Each element is evaluated once, and
+   * kept: later reads, indexed or not, are served from what has been evaluated so far.  The source collection and
+   * the variables of the evaluation which returned it are released once the projection has been read to the end.
+   * <p>
+   * Only projections free of side effects are made lazy, and only if the variables they read can be copied when
+   * they are created: they are evaluated against that copy, so that assigning a variable afterwards does not change
+   * what they hold.  Without a constraint, the size is that of the source; with one, asking for the size evaluates
+   * every element.
+   */
+  public static final class LazyProjection extends AbstractList {
+    private final ExecutableStatement subEx;
+    private final ExecutableStatement constraintEx;
+    private final List values;
+    private Iterator source;
+    private Object ctx;
+    private Object thisValue;
+    private ItemResolverFactory.ItemResolver itemR;
+    private ItemResolverFactory itemFactory;
+
+    /**
+     * The size of the projection, or -1 while it depends on elements which have yet to be evaluated.
+     */
+    private int size;
+
+    LazyProjection(ExecutableStatement subEx, ExecutableStatement constraintEx, Collection source, Object ctx,
+                   Object thisValue, VariableResolverFactory factory) {
+      this.subEx = subEx;
+      this.constraintEx = constraintEx;
+      this.values = new ArrayList(constraintEx == null ? source.size() : 10);
+      this.source = source.iterator();
+      this.ctx = ctx;
+      this.thisValue = thisValue;
+      this.itemR = new ItemResolverFactory.ItemResolver("$");
+      this.itemFactory = new ItemResolverFactory(itemR, factory);
+      this.size = constraintEx == null ? source.size() : -1;
+    }
+
+    /**
+     * Evaluates the projection up to the given index.
+     *
+     * @return whether the projection has an element at that index.
+     */
+    private boolean evaluateTo(int index) {
+      while (values.size() <= index && source != null) {
+        if (source.hasNext()) {
+          Object o = itemR.value = source.next();
+          if (constraintEx == null || (Boolean) constraintEx.getValue(ctx, thisValue, itemFactory)) {
+            values.add(subEx.getValue(o, thisValue, itemFactory));
+          }
+        }
+        else {
+          size = values.size();
+          source = null;
+          ctx = thisValue = null;
+          itemR = null;
+          itemFactory = null;
+        }
+      }
+      return index < values.size();
+    }
+
+    public Object get(int index) {
+      if (index < 0 || !evaluateTo(index)) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+      }
+      return values.get(index);
+    }
+
+    public int size() {
+      if (size < 0) evaluateTo(Integer.MAX_VALUE);
+      return size;
+    }
+
+    public boolean isEmpty() {
+      return !evaluateTo(0);
+    }
+
+    public Iterator iterator() {
+      return new Iterator() {
+        private int cursor;
+
+        public boolean hasNext() {
+          return evaluateTo(cursor);
+        }
+
+        public Object next() {
+          if (!hasNext()) throw new NoSuchElementException();
+          return values.get(cursor++);
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    public Spliterator spliterator() {
+      return size >= 0 ? Spliterators.spliterator(iterator(), size, Spliterator.ORDERED)
+          : Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+    }
+  }
+
+  /**
+   * Projects a share of the source collection, splitting it between the workers of the pool.  The shares are
+   * split off the front of the source, and their results are joined in that order.
+   */
+  private final class Projection extends RecursiveTask<List> {
+    private final Spliterator spliterator;
+    private final Object ctx;
+    private final Object thisValue;
+    private final VariableResolverFactory factory;
+
+    Projection(Spliterator spliterator, Object ctx, Object thisValue, VariableResolverFactory factory) {
+      this.spliterator = spliterator;
+      this.ctx = ctx;
+      this.thisValue = thisValue;
+      this.factory = factory;
+    }
+
+    protected List compute() {
+      Spliterator prefix;
+      if (spliterator.estimateSize() > LEAF_SIZE && (prefix = spliterator.trySplit()) != null) {
+        Projection head = new Projection(prefix, ctx, thisValue, factory);
+        head.fork();
+        List tail = new Projection(spliterator, ctx, thisValue, factory).compute();
+        List list = head.join();
+        list.addAll(tail);
+        return list;
+      }
+
+      final ItemResolverFactory.ItemResolver itemR = new ItemResolverFactory.ItemResolver("$");
+      final ItemResolverFactory itemFactory = new ItemResolverFactory(itemR, new WorkerResolverFactory(factory));
+      final List list = new ArrayList((int) Math.min(spliterator.estimateSize(), LEAF_SIZE));
+
+      spliterator.forEachRemaining(new Consumer() {
+        public void accept(Object o) {
+          itemR.value = o;
+          if (constraintEx == null || (Boolean) constraintEx.getValue(ctx, thisValue, itemFactory)) {
+            list.add(subEx.getValue(o, thisValue, itemFactory));
+          }
+        }
+      });
+      return list;
+    }
+  }
+
+  /**
+   * The local scope of a worker of a parallel projection.  The factories of the enclosing scope cache the resolvers
+   * they hand out, so they are only consulted by one worker at a time; what they resolve is then kept here.
+   */
+  private static final class WorkerResolverFactory extends DefaultLocalVariableResolverFactory {
+    private final VariableResolverFactory shared;
+
+    WorkerResolverFactory(VariableResolverFactory shared) {
+      super(shared);
+      this.shared = shared;
+    }
+
+    public VariableResolver getVariableResolver(String name) {
+      VariableResolver vr = variableResolvers.get(name);
+      if (vr != null || variables.containsKey(name)) {
+        return super.getVariableResolver(name);
+      }
+
+      synchronized (shared) {
+        vr = shared.getVariableResolver(name);
+      }
+      variableResolvers.put(name, vr);
+      return vr;
+    }
+
+    public boolean isResolveable(String name) {
+      if (variableResolvers.containsKey(name) || variables.containsKey(name)) {
+        return true;
+      }
+      synchronized (shared) {
+        return shared.isResolveable(name);
+      }
+    }
+  }
 }
@@ -18,6 +18,9 @@
 package org.mvel2.ast;
 
 import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.stream.BaseStream;
 
 import org.mvel2.CompileException;
 import org.mvel2.DataConversion;
@@ -29,6 +32,7 @@ import org.mvel2.integration.impl.DefaultLocalVariableResolverFactory;
 import org.mvel2.integration.impl.ItemResolverFactory;
 import org.mvel2.util.ParseTools;
 
+import static org.mvel2.util.ParseTools.asIterator;
 import static org.mvel2.util.ParseTools.createStringTrimmed;
 import static org.mvel2.util.ParseTools.getBaseComponentType;
 import static org.mvel2.util.ParseTools.subCompileExpression;
@@ -46,6 +50,7 @@ public class ForEachNode extends BlockNode {
   private static final int ARRAY = 1;
   private static final int CHARSEQUENCE = 2;
   private static final int INTEGER = 3;
+  private static final int ITERATOR = 4;
 
   private int type = -1;
 
@@ -84,13 +89,7 @@ public class ForEachNode extends BlockNode {
     Object v;
     switch (type) {
       case ARRAY:
-        int len = Array.getLength(iterCond);
-        for (int i = 0; i < len; i++) {
-          itemR.setValue(Array.get(iterCond, i));
-          v = compiledBlock.getValue(ctx, thisValue, itemFactory);
-          if (itemFactory.tiltFlag()) return v;
-        }
-        break;
+        return iterateArray(iterCond, itemR, itemFactory, ctx, thisValue);
       case CHARSEQUENCE:
         for (Object o : iterCond.toString().toCharArray()) {
           itemR.setValue(o);
@@ -115,11 +114,83 @@ public class ForEachNode extends BlockNode {
         }
 
         break;
+
+      case ITERATOR:
+        return iterate(iterCond, itemR, itemFactory, ctx, thisValue);
     }
 
     return null;
   }
 
+  /**
+   * Walks an array by index.  The int, long and double arrays are read directly rather than reflectively, each element
+   * being boxed only as it is handed to the loop variable.
+   */
+  private Object iterateArray(Object array, ItemResolverFactory.ItemResolver itemR, ItemResolverFactory itemFactory,
+                              Object ctx, Object thisValue) {
+    Object v;
+    if (array instanceof Object[]) {
+      for (Object o : (Object[]) array) {
+        itemR.setValue(o);
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+    }
+    else if (array instanceof int[]) {
+      for (int i : (int[]) array) {
+        itemR.setValue(i);
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+    }
+    else if (array instanceof long[]) {
+      for (long l : (long[]) array) {
+        itemR.setValue(l);
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+    }
+    else if (array instanceof double[]) {
+      for (double d : (double[]) array) {
+        itemR.setValue(d);
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+    }
+    else {
+      int len = Array.getLength(array);
+      for (int i = 0; i < len; i++) {
+        itemR.setValue(Array.get(array, i));
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Walks an iterator, stream or spliterator as far as the loop goes, without collecting it first.  A stream is
+   * consumed by the loop, and so is closed once the loop is done with it, however it ends.
+   */
+  private Object iterate(Object source, ItemResolverFactory.ItemResolver itemR, ItemResolverFactory itemFactory,
+                         Object ctx, Object thisValue) {
+    try {
+      Iterator iter = asIterator(source);
+      Object v;
+      while (iter.hasNext()) {
+        itemR.setValue(iter.next());
+        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
+        if (itemFactory.tiltFlag()) return v;
+      }
+      return null;
+    }
+    finally {
+      if (source instanceof BaseStream) {
+        ((BaseStream) source).close();
+      }
+    }
+  }
+
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     ItemResolverFactory.ItemResolver itemR = new ItemResolverFactory.ItemResolver(item);
     ItemResolverFactory itemFactory = new ItemResolverFactory(itemR, new DefaultLocalVariableResolverFactory(factory));
@@ -140,12 +211,10 @@ public class ForEachNode extends BlockNode {
       }
     }
     else if (iterCond != null && iterCond.getClass().isArray()) {
-      int len = Array.getLength(iterCond);
-      for (int i = 0; i < len; i++) {
-        itemR.setValue(Array.get(iterCond, i));
-        v = compiledBlock.getValue(ctx, thisValue, itemFactory);
-        if (itemFactory.tiltFlag()) return v;
-      }
+      return iterateArray(iterCond, itemR, itemFactory, ctx, thisValue);
+    }
+    else if (iterCond instanceof Iterator || iterCond instanceof BaseStream || iterCond instanceof Spliterator) {
+      return iterate(iterCond, itemR, itemFactory, ctx, thisValue);
     }
     else if (iterCond instanceof CharSequence) {
       for (Object o : iterCond.toString().toCharArray()) {
@@ -220,6 +289,10 @@ public class ForEachNode extends BlockNode {
     else if (Integer.class.isAssignableFrom(t)) {
       type = INTEGER;
     }
+    else if (Iterator.class.isAssignableFrom(t) || BaseStream.class.isAssignableFrom(t)
+        || Spliterator.class.isAssignableFrom(t)) {
+      type = ITERATOR;
+    }
     else {
       throw new CompileException("non-iterable type: " + t.getName(), expr, start);
     }
@@ -25,6 +25,7 @@ import org.mvel2.compiler.ExpressionCompiler;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.DefaultLocalVariableResolverFactory;
+import org.mvel2.integration.impl.Frame;
 import org.mvel2.integration.impl.FunctionVariableResolverFactory;
 import org.mvel2.integration.impl.MapVariableResolverFactory;
 import org.mvel2.integration.impl.StackDemarcResolverFactory;
@@ -127,7 +128,7 @@ public class Function extends ASTNode implements Safe {
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     PrototypalFunctionInstance instance = new PrototypalFunctionInstance(this, new MapVariableResolverFactory());
     if (name != null) {
-      if (!factory.isIndexedFactory() && factory.isResolveable(name))
+      if ((!factory.isIndexedFactory() || Frame.of(factory) != null) && factory.isResolveable(name))
         throw new CompileException("duplicate function: " + name, expr, start);
 
       factory.createVariable(name, instance);
@@ -138,7 +139,7 @@ public class Function extends ASTNode implements Safe {
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     PrototypalFunctionInstance instance = new PrototypalFunctionInstance(this, new MapVariableResolverFactory());
     if (name != null) {
-      if (!factory.isIndexedFactory() && factory.isResolveable(name))
+      if ((!factory.isIndexedFactory() || Frame.of(factory) != null) && factory.isResolveable(name))
         throw new CompileException("duplicate function: " + name, expr, start);
       factory.createVariable(name, instance);
     }
@@ -20,6 +20,7 @@ package org.mvel2.ast;
 
 import org.mvel2.CompileException;
 import org.mvel2.ParserContext;
+import org.mvel2.compiler.ExecutableLiteral;
 import org.mvel2.compiler.ExecutableStatement;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.integration.impl.MapVariableResolverFactory;
@@ -99,10 +100,22 @@ public class IfNode extends BlockNode implements NestedStatement {
     }
   }
 
+  public ExecutableStatement getCondition() {
+    return condition;
+  }
+
   public ExecutableStatement getNestedStatement() {
     return nestedStatement;
   }
 
+  public IfNode getElseIf() {
+    return elseIf;
+  }
+
+  public boolean isIndexAllocation() {
+    return idxAlloc;
+  }
+
   public IfNode setElseIf(IfNode elseIf) {
     return this.elseIf = elseIf;
   }
@@ -116,6 +129,37 @@ public class IfNode extends BlockNode implements NestedStatement {
     return this;
   }
 
+  /**
+   * Removes the branches which can never be taken because of a constant condition: the branches after one whose
+   * condition is always true, and the branches whose condition is always false.
+   *
+   * @return the node to execute in place of this one, or <tt>null</tt> if no branch can ever be taken.
+   */
+  public IfNode eliminateDeadBranches() {
+    if (elseIf != null) {
+      elseIf = elseIf.eliminateDeadBranches();
+    }
+
+    if (!(condition instanceof ExecutableLiteral) || !(condition.getValue(null, null) instanceof Boolean)) {
+      return this;
+    }
+    else if ((Boolean) condition.getValue(null, null)) {
+      elseIf = null;
+      elseBlock = null;
+      return this;
+    }
+    else if (elseIf != null) {
+      return elseIf;
+    }
+    else if (elseBlock != null) {
+      condition = new ExecutableLiteral(Boolean.TRUE);
+      nestedStatement = elseBlock;
+      elseBlock = null;
+      return this;
+    }
+    return null;
+  }
+
   public String toString() {
     return new String(expr, start, offset);
   }
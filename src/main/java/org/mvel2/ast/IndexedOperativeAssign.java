@@ -23,6 +23,7 @@ import org.mvel2.compiler.ExecutableStatement;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 
 import static org.mvel2.MVEL.eval;
 import static org.mvel2.util.ParseTools.subCompileExpression;
@@ -31,6 +32,7 @@ public class IndexedOperativeAssign extends ASTNode {
   private final int register;
   private ExecutableStatement statement;
   private final int operation;
+  private final NumericMode numericMode;
 
   public IndexedOperativeAssign(char[] expr, int start, int offset, int operation, int register, int fields, ParserContext pCtx) {
     super(pCtx);
@@ -39,6 +41,7 @@ public class IndexedOperativeAssign extends ASTNode {
     this.start = start;
     this.offset = offset;
     this.register = register;
+    this.numericMode = getNumericMode(pCtx);
 
     if ((fields & COMPILE_IMMEDIATE) != 0) {
       statement = (ExecutableStatement) subCompileExpression(expr, start, offset, pCtx);
@@ -48,13 +51,15 @@ public class IndexedOperativeAssign extends ASTNode {
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver resolver = factory.getIndexedVariableResolver(register);
-    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, statement.getValue(ctx, thisValue, factory)));
+    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, statement.getValue(ctx, thisValue, factory),
+        numericMode));
     return ctx;
   }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver resolver = factory.getIndexedVariableResolver(register);
-    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, eval(expr, start, offset, ctx, factory)));
+    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, eval(expr, start, offset, ctx, factory),
+        numericMode));
     return ctx;
   }
 }
\ No newline at end of file
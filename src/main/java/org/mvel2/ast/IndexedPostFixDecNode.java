@@ -24,6 +24,7 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 import org.mvel2.util.ParseTools;
 
 /**
@@ -31,9 +32,11 @@ import org.mvel2.util.ParseTools;
  */
 public class IndexedPostFixDecNode extends ASTNode {
   private int register;
+  private final NumericMode numericMode;
 
   public IndexedPostFixDecNode(int register, ParserContext pCtx) {
     super(pCtx);
+    this.numericMode = getNumericMode(pCtx);
     this.register = register;
     this.egressType = pCtx.getVarOrInputType(pCtx.getIndexedVarNames()[register]);
   }
@@ -42,7 +45,7 @@ public class IndexedPostFixDecNode extends ASTNode {
     VariableResolver vResolver = factory.getIndexedVariableResolver(register);
     //  ctx = vResolver.getValue();
     vResolver.setValue(MathProcessor.doOperations(ParseTools.resolveType(ctx = vResolver.getValue()),
-        ctx, Operator.SUB, DataTypes.INTEGER, 1));
+        ctx, Operator.SUB, DataTypes.INTEGER, 1, numericMode));
     return ctx;
   }
 
@@ -23,22 +23,25 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 
 /**
  * @author Christopher Brock
  */
 public class IndexedPreFixDecNode extends ASTNode {
   private int register;
+  private final NumericMode numericMode;
 
   public IndexedPreFixDecNode(int register, ParserContext pCtx) {
     super(pCtx);
+    this.numericMode = getNumericMode(pCtx);
     this.register = register;
     this.egressType = pCtx.getVarOrInputType(pCtx.getIndexedVarNames()[register]);
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver vResolver = factory.getIndexedVariableResolver(register);
-    vResolver.setValue(ctx = MathProcessor.doOperations(vResolver.getValue(), Operator.SUB, DataTypes.INTEGER, 1));
+    vResolver.setValue(ctx = MathProcessor.doOperations(vResolver.getValue(), Operator.SUB, DataTypes.INTEGER, 1, numericMode));
     return ctx;
   }
 
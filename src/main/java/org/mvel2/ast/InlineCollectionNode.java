@@ -21,13 +21,18 @@ package org.mvel2.ast;
 import org.mvel2.CompileException;
 import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
+import org.mvel2.compiler.ExecutableLiteral;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.ImmutableDefaultFactory;
 import org.mvel2.optimizers.AccessorOptimizer;
 import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.refl.collection.ConstantCollectionCreator;
 import org.mvel2.util.CollectionParser;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +47,13 @@ public class InlineCollectionNode extends ASTNode {
   int trailingStart;
   int trailingOffset;
 
+  /**
+   * The values of the elements (the keys, then the values, of a map) if they are all literals, as found by
+   * {@link #literals()}.
+   */
+  private Object[] literals;
+  private boolean literalsChecked;
+
   public InlineCollectionNode(char[] expr, int start, int end, int fields, ParserContext pctx) {
     super(expr, start, end, fields | INLINE_COLLECTION, pctx);
 
@@ -51,6 +63,7 @@ public class InlineCollectionNode extends ASTNode {
         AccessorOptimizer ao = OptimizerFactory.getThreadAccessorOptimizer();
         accessor = ao.optimizeCollection(pctx, collectionGraph, egressType, expr, trailingStart, trailingOffset, null, null, null);
         egressType = ao.getEgressType();
+        hoistConstant();
       }
       finally {
         OptimizerFactory.clearThreadAccessorOptimizer();
@@ -69,6 +82,7 @@ public class InlineCollectionNode extends ASTNode {
         AccessorOptimizer ao = OptimizerFactory.getThreadAccessorOptimizer();
         accessor = ao.optimizeCollection(pctx, collectionGraph, egressType, expr, this.trailingStart, trailingOffset, null, null, null);
         egressType = ao.getEgressType();
+        hoistConstant();
       }
       finally {
         OptimizerFactory.clearThreadAccessorOptimizer();
@@ -98,6 +112,68 @@ public class InlineCollectionNode extends ASTNode {
 
   }
 
+  /**
+   * Builds a flat collection made of literals only once, rather than on every evaluation.  Lists and maps are then
+   * handed out as copy-on-write views rather than as an <tt>ArrayList</tt> or a <tt>HashMap</tt>, so this is only
+   * done when constant folding is enabled.
+   */
+  private void hoistConstant() {
+    if (MVEL.COMPILER_OPT_FOLD_CONSTANTS && literals() != null) {
+      accessor = new ConstantCollectionCreator(accessor.getValue(null, null, new ImmutableDefaultFactory()));
+    }
+  }
+
+  /**
+   * @return the elements of a flat list or untyped array made of literals only, and not followed by any property
+   *         access; or <tt>null</tt> if this collection is anything else, or has not been compiled.
+   */
+  public Object[] getLiteralElements() {
+    if (collectionGraph instanceof List || (collectionGraph instanceof Object[] && egressType == Object[].class)) {
+      Object[] values = literals();
+      return values == null ? null : values.clone();
+    }
+    return null;
+  }
+
+  /**
+   * Finds whether this is a flat collection made of literals only, and not followed by any property access.  The
+   * elements are only compiled for this once.
+   *
+   * @return the values of the elements, or <tt>null</tt> if any of them is not a literal.
+   */
+  private Object[] literals() {
+    if (literalsChecked) return literals;
+    literalsChecked = true;
+
+    if (trailingOffset > 0 || pCtx == null) return null;
+
+    Collection elements;
+    if (collectionGraph instanceof List) {
+      elements = (List) collectionGraph;
+    }
+    else if (collectionGraph instanceof Object[]) {
+      elements = Arrays.asList((Object[]) collectionGraph);
+    }
+    else if (collectionGraph instanceof Map) {
+      elements = new ArrayList(((Map) collectionGraph).keySet());
+      elements.addAll(((Map) collectionGraph).values());
+    }
+    else {
+      return null;
+    }
+
+    Object[] values = new Object[elements.size()];
+    int i = 0;
+    for (Object o : elements) {
+      if (!(o instanceof String)) return null;
+
+      Object stmt = subCompileExpression(((String) o).toCharArray(), pCtx);
+      if (!(stmt instanceof ExecutableLiteral)) return null;
+      values[i++] = ((ExecutableLiteral) stmt).getLiteral();
+    }
+    return literals = values;
+  }
+
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     parseGraph(false, egressType, pCtx);
 
@@ -14,8 +14,22 @@ public class IntSub extends BinaryOperation implements IntOptimized {
 
   @Override
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-    return ((Integer) left.getReducedValueAccelerated(ctx, thisValue, factory))
-        - ((Integer) right.getReducedValueAccelerated(ctx, thisValue, factory));
+    return getIntValue(ctx, thisValue, factory);
+  }
+
+  @Override
+  public int getIntValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return left.getIntValue(ctx, thisValue, factory) - right.getIntValue(ctx, thisValue, factory);
+  }
+
+  @Override
+  public long getLongValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return getIntValue(ctx, thisValue, factory);
+  }
+
+  @Override
+  public double getDoubleValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return getIntValue(ctx, thisValue, factory);
   }
 
   @Override
@@ -0,0 +1,62 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.ast;
+
+import org.mvel2.ParserContext;
+import org.mvel2.integration.VariableResolverFactory;
+
+import static org.mvel2.Operator.*;
+
+/**
+ * Arithmetic on two <tt>long</tt> operands, evaluated without boxing the operands.
+ */
+public class LongOperation extends BinaryOperation {
+
+  public LongOperation(int operation, ASTNode left, ASTNode right, ParserContext pCtx) {
+    super(operation, left, right, pCtx);
+    this.egressType = long.class;
+  }
+
+  @Override
+  public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return getLongValue(ctx, thisValue, factory);
+  }
+
+  @Override
+  public long getLongValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    long l = left.getLongValue(ctx, thisValue, factory);
+    long r = right.getLongValue(ctx, thisValue, factory);
+    switch (getOperation()) {
+      case ADD:
+        return l + r;
+      case SUB:
+        return l - r;
+      case MULT:
+        return l * r;
+      case MOD:
+        return l % r;
+    }
+    throw new IllegalStateException("unsupported long operation: " + getOperation());
+  }
+
+  @Override
+  public double getDoubleValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return getLongValue(ctx, thisValue, factory);
+  }
+}
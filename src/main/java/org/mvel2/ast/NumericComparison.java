@@ -0,0 +1,77 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.ast;
+
+import org.mvel2.ParserContext;
+import org.mvel2.integration.VariableResolverFactory;
+
+import static org.mvel2.Operator.*;
+
+/**
+ * A comparison of two primitive numeric operands, evaluated without boxing the operands.  Operands of the same
+ * integral type are compared as <tt>long</tt>, others as <tt>double</tt>, like {@link org.mvel2.math.MathProcessor}.
+ */
+public class NumericComparison extends BinaryOperation {
+  private final boolean integral;
+
+  public NumericComparison(int operation, ASTNode left, ASTNode right, boolean integral, ParserContext pCtx) {
+    super(operation, left, right, pCtx);
+    this.integral = integral;
+  }
+
+  @Override
+  public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    return getBooleanValue(ctx, thisValue, factory);
+  }
+
+  @Override
+  public boolean getBooleanValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
+    int c;
+    if (integral) {
+      long l = left.getLongValue(ctx, thisValue, factory);
+      long r = right.getLongValue(ctx, thisValue, factory);
+      c = l < r ? -1 : (l == r ? 0 : 1);
+    }
+    else {
+      double l = left.getDoubleValue(ctx, thisValue, factory);
+      double r = right.getDoubleValue(ctx, thisValue, factory);
+      if (l != l || r != r) {
+        // NaN is neither less, greater, nor equal to anything.
+        return getOperation() == NEQUAL;
+      }
+      c = l < r ? -1 : (l == r ? 0 : 1);
+    }
+
+    switch (getOperation()) {
+      case LTHAN:
+        return c < 0;
+      case LETHAN:
+        return c <= 0;
+      case GTHAN:
+        return c > 0;
+      case GETHAN:
+        return c >= 0;
+      case EQUAL:
+        return c == 0;
+      case NEQUAL:
+        return c != 0;
+    }
+    throw new IllegalStateException("unsupported comparison: " + getOperation());
+  }
+}
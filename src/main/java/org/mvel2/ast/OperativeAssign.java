@@ -22,6 +22,7 @@ import org.mvel2.compiler.ExecutableStatement;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 import org.mvel2.util.ParseTools;
 
 import static org.mvel2.MVEL.eval;
@@ -32,6 +33,7 @@ public class OperativeAssign extends ASTNode {
   private ExecutableStatement statement;
   private final int operation;
   private int knownInType = -1;
+  private final NumericMode numericMode;
 
   public OperativeAssign(String variableName, char[] expr, int start, int offset, int operation, int fields, ParserContext pCtx) {
     super(pCtx);
@@ -40,6 +42,7 @@ public class OperativeAssign extends ASTNode {
     this.expr = expr;
     this.start = start;
     this.offset = offset;
+    this.numericMode = getNumericMode(pCtx);
 
     if ((fields & COMPILE_IMMEDIATE) != 0) {
       egressType = (statement = (ExecutableStatement) subCompileExpression(expr, start, offset, pCtx)).getKnownEgressType();
@@ -56,13 +59,15 @@ public class OperativeAssign extends ASTNode {
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver resolver = factory.getVariableResolver(varName);
-    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, knownInType, statement.getValue(ctx, thisValue, factory)));
+    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, knownInType,
+        statement.getValue(ctx, thisValue, factory), numericMode));
     return ctx;
   }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver resolver = factory.getVariableResolver(varName);
-    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, eval(expr, start, offset, ctx, factory)));
+    resolver.setValue(ctx = MathProcessor.doOperations(resolver.getValue(), operation, eval(expr, start, offset, ctx, factory),
+        numericMode));
     return ctx;
   }
 }
\ No newline at end of file
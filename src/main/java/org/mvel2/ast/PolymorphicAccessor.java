@@ -0,0 +1,161 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.ast;
+
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.Accessor;
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.AccessorOptimizer;
+import org.mvel2.optimizers.OptimizationNotSupported;
+
+import static org.mvel2.PropertyAccessor.get;
+import static org.mvel2.PropertyAccessor.set;
+import static org.mvel2.optimizers.OptimizerFactory.SAFE_REFLECTIVE;
+import static org.mvel2.optimizers.OptimizerFactory.getAccessorCompiler;
+import static org.mvel2.optimizers.OptimizerFactory.getDefaultAccessorCompiler;
+
+/**
+ * A polymorphic inline cache, installed on an {@link ASTNode} whose accessor failed with a
+ * <tt>ClassCastException</tt>: it keeps an accessor optimized for each receiver type seen by the node, the receiver
+ * being the root variable of the property if there is one, or the context object otherwise.  Switching from one
+ * type to another then costs a class check rather than a thrown exception.
+ * <p>
+ * Once more than {@link #MAX_ENTRIES} types have been seen, or if an accessor fails although the receiver type
+ * matches, the node goes megamorphic and falls back to the reflective optimizer for good.
+ */
+public class PolymorphicAccessor implements Accessor {
+  public static final int MAX_ENTRIES = 4;
+
+  private final ASTNode node;
+  private final String root;
+
+  private volatile Entry[] entries = new Entry[0];
+
+  private static final class Entry {
+    private final Class type;
+    private final Accessor accessor;
+
+    private Entry(Class type, Accessor accessor) {
+      this.type = type;
+      this.accessor = accessor;
+    }
+  }
+
+  PolymorphicAccessor(ASTNode node) {
+    this.node = node;
+    String root = node.getAbsoluteRootElement();
+    this.root = root != null ? root : node.getName();
+  }
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+    Class type = receiverType(ctx, variableFactory);
+
+    for (Entry entry : entries) {
+      if (entry.type == type) {
+        try {
+          return entry.accessor.getValue(ctx, elCtx, variableFactory);
+        }
+        catch (ClassCastException e) {
+          // the types further down the property are not determined by the receiver type.
+          return node.megamorphic(ctx, elCtx, variableFactory, e);
+        }
+      }
+    }
+
+    return miss(type, ctx, elCtx, variableFactory);
+  }
+
+  public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+    Class type = receiverType(ctx, variableFactory);
+
+    for (Entry entry : entries) {
+      if (entry.type == type) {
+        return entry.accessor.setValue(ctx, elCtx, variableFactory, value);
+      }
+    }
+
+    // only reads add receiver types to the cache.
+    set(ctx, variableFactory, new String(node.expr, node.start, node.offset), value,
+        node.getOptimizationContext(variableFactory));
+    return value;
+  }
+
+  public Class getKnownEgressType() {
+    Entry[] entries = this.entries;
+    return entries.length == 0 ? Object.class : entries[0].accessor.getKnownEgressType();
+  }
+
+  /**
+   * @return the number of receiver types for which an accessor is cached.
+   */
+  public int getEntryCount() {
+    return entries.length;
+  }
+
+  /**
+   * Resolves the receiver afresh on every call: factories are often built per evaluation, so caching the resolver
+   * would cost more than the lookup it saves.
+   */
+  private Class receiverType(Object ctx, VariableResolverFactory factory) {
+    Object receiver = ctx;
+    if (factory != null && factory.isResolveable(root)) {
+      VariableResolver resolver = factory.getVariableResolver(root);
+      receiver = resolver == null ? null : resolver.getValue();
+    }
+    return receiver == null ? null : receiver.getClass();
+  }
+
+  private synchronized Object miss(Class type, Object ctx, Object elCtx, VariableResolverFactory factory) {
+    for (Entry entry : entries) {
+      if (entry.type == type) {
+        return getValue(ctx, elCtx, factory);
+      }
+    }
+
+    if (entries.length == MAX_ENTRIES) {
+      return node.megamorphic(ctx, elCtx, factory, null);
+    }
+
+    AccessorOptimizer optimizer = factory != null && factory.isResolveable(node.getName()) ?
+        getAccessorCompiler(SAFE_REFLECTIVE) : getDefaultAccessorCompiler();
+    ParserContext pCtx = node.getOptimizationContext(factory);
+
+    Accessor accessor;
+    try {
+      pCtx.optimizationNotify();
+      accessor = optimizer.optimizeAccessor(pCtx, node.expr, node.start, node.offset, ctx, elCtx, factory, true,
+          node.egressType);
+    }
+    catch (OptimizationNotSupported ne) {
+      accessor = (optimizer = getAccessorCompiler(SAFE_REFLECTIVE))
+          .optimizeAccessor(pCtx, node.expr, node.start, node.offset, ctx, elCtx, factory, true, null);
+    }
+
+    if (accessor == null) {
+      return get(node.expr, node.start, node.offset, ctx, factory, elCtx, pCtx);
+    }
+
+    Entry[] newEntries = new Entry[entries.length + 1];
+    System.arraycopy(entries, 0, newEntries, 0, entries.length);
+    newEntries[entries.length] = new Entry(type, accessor);
+    entries = newEntries;
+
+    return optimizer.getResultOptPass();
+  }
+}
@@ -23,15 +23,18 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 
 /**
  * @author Christopher Brock
  */
 public class PostFixDecNode extends ASTNode {
   private String name;
+  private final NumericMode numericMode;
 
   public PostFixDecNode(String name, ParserContext pCtx) {
     super(pCtx);
+    this.numericMode = getNumericMode(pCtx);
     this.name = name;
     if (pCtx != null) {
       this.egressType = pCtx.getVarOrInputType(name);
@@ -40,7 +43,7 @@ public class PostFixDecNode extends ASTNode {
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver vResolver = factory.getVariableResolver(name);
-    vResolver.setValue(MathProcessor.doOperations(ctx = vResolver.getValue(), Operator.SUB, DataTypes.INTEGER, 1));
+    vResolver.setValue(MathProcessor.doOperations(ctx = vResolver.getValue(), Operator.SUB, DataTypes.INTEGER, 1, numericMode));
     return ctx;
   }
 
@@ -23,6 +23,7 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
 
 
 /**
@@ -30,9 +31,11 @@ import org.mvel2.math.MathProcessor;
  */
 public class PreFixIncNode extends ASTNode {
   private String name;
+  private final NumericMode numericMode;
 
   public PreFixIncNode(String name, ParserContext pCtx) {
     super(pCtx);
+    this.numericMode = getNumericMode(pCtx);
     this.name = name;
     if (pCtx != null) {
       this.egressType = pCtx.getVarOrInputType(name);
@@ -41,7 +44,7 @@ public class PreFixIncNode extends ASTNode {
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolver vResolver = factory.getVariableResolver(name);
-    vResolver.setValue(ctx = MathProcessor.doOperations(vResolver.getValue(), Operator.ADD, DataTypes.INTEGER, 1));
+    vResolver.setValue(ctx = MathProcessor.doOperations(vResolver.getValue(), Operator.ADD, DataTypes.INTEGER, 1, numericMode));
     return ctx;
   }
 
@@ -30,6 +30,7 @@ import static java.lang.String.valueOf;
 import static java.util.regex.Pattern.compile;
 import static org.mvel2.MVEL.eval;
 import static org.mvel2.util.ParseTools.subCompileExpression;
+import static org.mvel2.util.PatternCache.matches;
 
 public class RegExMatch extends ASTNode {
   private ExecutableStatement stmt;
@@ -65,16 +66,16 @@ public class RegExMatch extends ASTNode {
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     if (p == null) {
-      return compile(valueOf(patternStmt.getValue(ctx, thisValue, factory))).matcher(valueOf(stmt.getValue(ctx, thisValue, factory))).matches();
+      return matches(valueOf(patternStmt.getValue(ctx, thisValue, factory)), valueOf(stmt.getValue(ctx, thisValue, factory)));
     }
     else {
-      return p.matcher(valueOf(stmt.getValue(ctx, thisValue, factory))).matches();
+      return matches(p, valueOf(stmt.getValue(ctx, thisValue, factory)));
     }
   }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
     try {
-      return compile(valueOf(eval(expr, patternStart, patternOffset, ctx, factory))).matcher(valueOf(eval(expr, start, offset, ctx, factory))).matches();
+      return matches(valueOf(eval(expr, patternStart, patternOffset, ctx, factory)), valueOf(eval(expr, start, offset, ctx, factory)));
     }
     catch (PatternSyntaxException e) {
       throw new CompileException("bad regular expression", expr, patternStart, e);
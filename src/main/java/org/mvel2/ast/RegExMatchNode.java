@@ -22,8 +22,8 @@ import org.mvel2.ParserContext;
 import org.mvel2.integration.VariableResolverFactory;
 
 import static java.lang.String.valueOf;
-import static java.util.regex.Pattern.compile;
 import static org.mvel2.MVEL.eval;
+import static org.mvel2.util.PatternCache.matches;
 
 public class RegExMatchNode extends ASTNode {
   private ASTNode node;
@@ -36,12 +36,12 @@ public class RegExMatchNode extends ASTNode {
   }
 
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-    return compile(valueOf(patternNode.getReducedValueAccelerated(ctx, thisValue, factory))).matcher(valueOf(node.getReducedValueAccelerated(ctx, thisValue, factory))).matches();
+    return matches(valueOf(patternNode.getReducedValueAccelerated(ctx, thisValue, factory)), valueOf(node.getReducedValueAccelerated(ctx, thisValue, factory)));
   }
 
   public Object getReducedValue(Object ctx, Object thisValue, VariableResolverFactory factory) {
-    return compile(valueOf(eval(expr, patternNode.start, patternNode.offset, ctx, factory)))
-        .matcher(valueOf(eval(expr, node.start, node.offset, ctx, factory))).matches();
+    return matches(valueOf(eval(expr, patternNode.start, patternNode.offset, ctx, factory)),
+        valueOf(eval(expr, node.start, node.offset, ctx, factory)));
   }
 
   public Class getEgressType() {
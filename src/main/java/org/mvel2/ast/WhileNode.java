@@ -52,6 +52,10 @@ public class WhileNode extends BlockNode {
     }
   }
 
+  public ExecutableStatement getCondition() {
+    return condition;
+  }
+
   public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
     VariableResolverFactory ctxFactory = new MapVariableResolverFactory(new HashMap<String, Object>(), factory);
     while ((Boolean) condition.getValue(ctx, thisValue, factory)) {
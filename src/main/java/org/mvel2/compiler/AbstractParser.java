@@ -88,6 +88,7 @@ import org.mvel2.util.ErrorUtil;
 import org.mvel2.util.ExecutionStack;
 import org.mvel2.util.FunctionParser;
 import org.mvel2.util.ParseTools;
+import org.mvel2.util.PatternCache;
 import org.mvel2.util.ProtoParser;
 
 import static java.lang.Boolean.FALSE;
@@ -134,7 +135,10 @@ public class AbstractParser implements Parser, Serializable {
 
   protected ASTNode lastNode;
 
-  private static final WeakHashMap<String, char[]> EX_PRECACHE = new WeakHashMap<String, char[]>(15);
+  /**
+   * The trimmed sources of the parsed expressions, striped by hash so that concurrent parsers rarely contend.
+   */
+  private static final WeakHashMap<String, char[]>[] EX_PRECACHE = newPrecache(16);
 
   public static HashMap<String, Object> LITERALS;
   public static HashMap<String, Object> CLASS_LITERALS;
@@ -2109,30 +2113,41 @@ public class AbstractParser implements Parser, Serializable {
    */
   protected void setExpression(String expression) {
     if (expression != null && !expression.isEmpty()) {
-      synchronized (EX_PRECACHE) {
-        if ((this.expr = EX_PRECACHE.get(expression)) == null) {
-
-          int startIndex = 0;
-          while (startIndex< length && ParseTools.isWhitespace(expression.charAt(startIndex))) {
-            startIndex++;
-          }
-          int endIndex = expression.length() - 1;
-          while (endIndex > 0 && ParseTools.isWhitespace(expression.charAt(endIndex))) {
-            endIndex--;
-          }
-          this.expr=expression.substring(startIndex, endIndex + 1).toCharArray();
-
-          this.end = this.length = this.expr.length;
+      WeakHashMap<String, char[]> precache = EX_PRECACHE[expression.hashCode() & (EX_PRECACHE.length - 1)];
+      synchronized (precache) {
+        this.expr = precache.get(expression);
+      }
 
-          EX_PRECACHE.put(expression, this.expr);
+      if (this.expr == null) {
+        int startIndex = 0;
+        while (startIndex< length && ParseTools.isWhitespace(expression.charAt(startIndex))) {
+          startIndex++;
         }
-        else {
-          end = length = this.expr.length;
+        int endIndex = expression.length() - 1;
+        while (endIndex > 0 && ParseTools.isWhitespace(expression.charAt(endIndex))) {
+          endIndex--;
+        }
+        this.expr=expression.substring(startIndex, endIndex + 1).toCharArray();
+
+        synchronized (precache) {
+          precache.put(expression, this.expr);
         }
       }
+
+      end = length = this.expr.length;
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private static WeakHashMap<String, char[]>[] newPrecache(int stripes) {
+    WeakHashMap<String, char[]>[] precache = new WeakHashMap[stripes];
+    for (int i = 0; i < stripes; i++) {
+      precache[i] = new WeakHashMap<String, char[]>(15);
+    }
+    return precache;
+  }
+
+
   /**
    * Set and finesse the expression, trimming an leading or proceeding whitespace.
    *
@@ -2591,8 +2606,7 @@ public class AbstractParser implements Parser, Serializable {
           break;
 
         case REGEX:
-          stk.push(java.util.regex.Pattern.compile(java.lang.String.valueOf(stk.pop()))
-              .matcher(java.lang.String.valueOf(stk.pop())).matches());
+          stk.push(PatternCache.matches(java.lang.String.valueOf(stk.pop()), java.lang.String.valueOf(stk.pop())));
           break;
 
         case INSTANCEOF:
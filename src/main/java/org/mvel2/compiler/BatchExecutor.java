@@ -0,0 +1,195 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.compiler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.mvel2.ScriptRuntimeException;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.CachingMapVariableResolverFactory;
+import org.mvel2.integration.impl.DefaultLocalVariableResolverFactory;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+
+import static org.mvel2.DataConversion.convert;
+
+/**
+ * Executes one compiled expression against many context objects, writing the results into an array supplied by the
+ * caller.  Consecutive elements share a single variable frame, rather than building one per execution, and can be
+ * split across a {@link ForkJoinPool}.  Each element runs in a local scope of its own, cleared before the next one,
+ * so that the variables and functions the statement declares do not outlive it.
+ */
+public class BatchExecutor extends RecursiveAction {
+  /**
+   * The number of elements below which a task executes them itself rather than splitting them further.
+   */
+  private static final int THRESHOLD = 1024;
+
+  private final ExecutableStatement statement;
+  private final Object[] contexts;
+  private final Map vars;
+  private final Object[] objects;
+  private final boolean[] booleans;
+  private final double[] doubles;
+  private final int from;
+  private final int to;
+
+  private BatchExecutor(ExecutableStatement statement, Object[] contexts, Map vars, Object[] objects,
+                        boolean[] booleans, double[] doubles, int from, int to) {
+    this.statement = statement;
+    this.contexts = contexts;
+    this.vars = vars;
+    this.objects = objects;
+    this.booleans = booleans;
+    this.doubles = doubles;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Executes the statement against each context in turn.  Assignments to the variables of <tt>vars</tt> are written
+   * back to it once the batch is done; the variables the statement introduces are local to each element.
+   *
+   * @param results the array receiving the results: an <tt>Object[]</tt>, a <tt>boolean[]</tt> or a
+   *                <tt>double[]</tt> at least as long as <tt>contexts</tt>.
+   */
+  public static void executeAll(Object statement, Object[] contexts, Map vars, Object results) {
+    Map variables = vars == null ? new HashMap() : vars;
+    BatchExecutor executor = create(statement, contexts, variables, results);
+    CachingMapVariableResolverFactory factory = new CachingMapVariableResolverFactory(variables);
+    try {
+      executor.execute(factory);
+    }
+    finally {
+      factory.externalize();
+    }
+  }
+
+  /**
+   * Executes the statement against each context on the pool.  The elements must not depend on one another: each
+   * task works in a frame of its own, and variables assigned by the statement are not written back to <tt>vars</tt>,
+   * which must not be modified while the batch is running.
+   */
+  public static void executeAll(Object statement, Object[] contexts, Map vars, Object results, ForkJoinPool pool) {
+    pool.invoke(create(statement, contexts, vars == null ? new HashMap() : vars, results));
+  }
+
+  /**
+   * Executes the statement against each context in turn, as {@link #executeAll(Object, Object[], Map, Object)}.
+   *
+   * @return the results, in the order of the contexts.
+   */
+  public static List<Object> executeAll(Object statement, Iterable<?> contexts, Map vars) {
+    ExecutableStatement stmt = (ExecutableStatement) statement;
+    List<Object> results = contexts instanceof Collection
+        ? new ArrayList<Object>(((Collection) contexts).size()) : new ArrayList<Object>();
+    CachingMapVariableResolverFactory factory
+        = new CachingMapVariableResolverFactory(vars == null ? new HashMap() : vars);
+    MapVariableResolverFactory scope = new DefaultLocalVariableResolverFactory(factory);
+    VariableResolverFactory frame = createFrame(stmt, scope);
+    try {
+      for (Object ctx : contexts) {
+        results.add(execute(stmt, ctx, scope, frame));
+      }
+    }
+    finally {
+      factory.externalize();
+    }
+    return results;
+  }
+
+  private static BatchExecutor create(Object statement, Object[] contexts, Map vars, Object results) {
+    Object[] objects = null;
+    boolean[] booleans = null;
+    double[] doubles = null;
+    int length;
+
+    if (results instanceof Object[]) {
+      length = (objects = (Object[]) results).length;
+    }
+    else if (results instanceof boolean[]) {
+      length = (booleans = (boolean[]) results).length;
+    }
+    else if (results instanceof double[]) {
+      length = (doubles = (double[]) results).length;
+    }
+    else {
+      throw new IllegalArgumentException("unsupported result buffer: " + (results == null ? "null" : results.getClass()));
+    }
+
+    if (length < contexts.length) {
+      throw new IllegalArgumentException("result buffer too small: " + length + " < " + contexts.length);
+    }
+    return new BatchExecutor((ExecutableStatement) statement, contexts, vars, objects, booleans, doubles, 0,
+        contexts.length);
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= THRESHOLD) {
+      execute(new CachingMapVariableResolverFactory(vars));
+    }
+    else {
+      int mid = (from + to) >>> 1;
+      invokeAll(new BatchExecutor(statement, contexts, vars, objects, booleans, doubles, from, mid),
+          new BatchExecutor(statement, contexts, vars, objects, booleans, doubles, mid, to));
+    }
+  }
+
+  private void execute(VariableResolverFactory factory) {
+    MapVariableResolverFactory scope = new DefaultLocalVariableResolverFactory(factory);
+    VariableResolverFactory frame = createFrame(statement, scope);
+    for (int i = from; i < to; i++) {
+      Object value = execute(statement, contexts[i], scope, frame);
+      if (objects != null) {
+        objects[i] = value;
+      }
+      else if (booleans != null) {
+        if (!(value instanceof Boolean)) {
+          throw new ScriptRuntimeException("expected Boolean; but found: "
+              + (value == null ? "null" : value.getClass().getName()));
+        }
+        booleans[i] = (Boolean) value;
+      }
+      else {
+        doubles[i] = value == null ? Double.NaN
+            : value instanceof Number ? ((Number) value).doubleValue() : convert(value, Double.class);
+      }
+    }
+  }
+
+  private static VariableResolverFactory createFrame(ExecutableStatement statement, VariableResolverFactory factory) {
+    return statement instanceof CompiledExpression ? ((CompiledExpression) statement).createFrame(factory) : factory;
+  }
+
+  private static Object execute(ExecutableStatement statement, Object ctx, MapVariableResolverFactory scope,
+                                VariableResolverFactory frame) {
+    // each element starts afresh: without the locals of the previous one, nor the tilt of its return statement.
+    scope.clear();
+    scope.setTiltFlag(false);
+    if (frame != scope) {
+      return ((CompiledExpression) statement).getValueInFrame(ctx, scope, frame);
+    }
+    return statement.getValue(ctx, scope);
+  }
+}
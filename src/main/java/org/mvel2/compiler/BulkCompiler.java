@@ -0,0 +1,95 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+
+/**
+ * Compiles many expressions at once on a {@link ForkJoinPool}, each with its own {@link ParserContext} over a
+ * frozen snapshot of a shared {@link ParserConfiguration}.
+ */
+public class BulkCompiler extends RecursiveAction {
+  /**
+   * The number of expressions below which a task compiles them itself rather than splitting them further.
+   */
+  private static final int THRESHOLD = 8;
+
+  private final String[] expressions;
+  private final CompilationResult[] results;
+  private final ParserConfiguration configuration;
+  private final int from;
+  private final int to;
+
+  private BulkCompiler(String[] expressions, CompilationResult[] results, ParserConfiguration configuration,
+                       int from, int to) {
+    this.expressions = expressions;
+    this.results = results;
+    this.configuration = configuration;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Compiles the expressions.
+   *
+   * @return the result of each expression, in the order of the expressions.
+   */
+  public static List<CompilationResult> compileAll(Collection<String> expressions, ParserConfiguration configuration,
+                                                   ForkJoinPool pool) {
+    String[] source = expressions.toArray(new String[expressions.size()]);
+    CompilationResult[] results = new CompilationResult[source.length];
+
+    pool.invoke(new BulkCompiler(source, results, configuration == null ? new ParserConfiguration().freeze()
+        : configuration.freeze(), 0, source.length));
+
+    return new ArrayList<CompilationResult>(Arrays.asList(results));
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= THRESHOLD) {
+      for (int i = from; i < to; i++) {
+        results[i] = compile(expressions[i]);
+      }
+    }
+    else {
+      int mid = (from + to) >>> 1;
+      invokeAll(new BulkCompiler(expressions, results, configuration, from, mid),
+          new BulkCompiler(expressions, results, configuration, mid, to));
+    }
+  }
+
+  private CompilationResult compile(String expression) {
+    try {
+      return new CompilationResult(expression, MVEL.compileExpression(expression, new ParserContext(configuration)), null);
+    }
+    catch (RuntimeException e) {
+      return new CompilationResult(expression, null, e);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.compiler;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of compiling one expression of a bulk compilation: either the compiled expression, or the error
+ * which made it fail.
+ */
+public final class CompilationResult {
+  private final String expression;
+  private final Serializable compiled;
+  private final RuntimeException error;
+
+  CompilationResult(String expression, Serializable compiled, RuntimeException error) {
+    this.expression = expression;
+    this.compiled = compiled;
+    this.error = error;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return the compiled expression, or <tt>null</tt> if it failed to compile.
+   */
+  public Serializable getCompiled() {
+    return compiled;
+  }
+
+  /**
+   * @return the error the expression failed to compile with, or <tt>null</tt> if it compiled.
+   */
+  public RuntimeException getError() {
+    return error;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  public String toString() {
+    return isSuccess() ? expression : expression + " [" + error.getMessage() + "]";
+  }
+}
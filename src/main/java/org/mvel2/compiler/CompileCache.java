@@ -0,0 +1,257 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.compiler;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.mvel2.integration.Interceptor;
+import org.mvel2.math.NumericMode;
+import org.mvel2.util.BoundedCache;
+
+/**
+ * A bounded cache of compiled expressions, keyed by their source, the parser configuration they are compiled
+ * against and the compiler options.  It lets the <tt>MVEL.eval(String, ...)</tt> methods compile an expression once
+ * rather than interpret it on every call; see {@link MVEL#setEvalCache(CompileCache)}.
+ * <p>
+ * Concurrent misses for the same key compile the expression once: the other threads wait for its result.  When the
+ * cache holds more than its maximum number of expressions, or more than its maximum weight (the total length of
+ * their sources), the expressions used least recently are evicted.
+ */
+public class CompileCache extends BoundedCache<CompileCache.Key, CompileCache.Entry> {
+  private final ParserConfiguration configuration;
+  private final Signature configurationSignature;
+
+  /**
+   * The signatures of the frozen configurations seen so far, which cannot change.
+   */
+  private final Map<ParserConfiguration, Signature> signatures =
+      Collections.synchronizedMap(new WeakHashMap<ParserConfiguration, Signature>());
+
+  public CompileCache(int maxSize) {
+    this(maxSize, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * @param maxSize       the maximum number of compiled expressions.
+   * @param maxWeight     the maximum total length of the sources of the compiled expressions.
+   * @param configuration the configuration expressions are compiled against when none is given, which is frozen.
+   */
+  public CompileCache(int maxSize, long maxWeight, ParserConfiguration configuration) {
+    super(maxSize, maxWeight);
+    this.configuration = configuration == null ? new ParserConfiguration().freeze() : configuration.freeze();
+    this.configurationSignature = new Signature(this.configuration);
+  }
+
+  /**
+   * Returns the compiled expression, compiling it against the default configuration of the cache if it is not
+   * cached.
+   */
+  public Serializable compile(String expression) {
+    return compile(expression, configuration, configurationSignature);
+  }
+
+  /**
+   * Returns the compiled expression, compiling it against the given configuration if it is not cached.
+   */
+  public Serializable compile(String expression, ParserConfiguration conf) {
+    return conf == null || conf == configuration ? compile(expression) : compile(expression, conf, signature(conf));
+  }
+
+  private Signature signature(ParserConfiguration conf) {
+    if (!conf.isFrozen()) {
+      return new Signature(conf);
+    }
+    Signature signature = signatures.get(conf);
+    if (signature == null) {
+      signatures.put(conf, signature = new Signature(conf));
+    }
+    return signature;
+  }
+
+  private Serializable compile(final String expression, final ParserConfiguration conf, Signature signature) {
+    String source = expression.trim();
+    Key key = new Key(source, signature, compilerOptions());
+
+    Entry entry = lookup(key);
+    if (entry == null) {
+      Entry created = new Entry(source.length(), new FutureTask<Serializable>(new Callable<Serializable>() {
+        public Serializable call() {
+          return MVEL.compileExpression(expression, new ParserContext(conf));
+        }
+      }));
+
+      if ((entry = insert(key, created)) == null) {
+        (entry = created).task.run();
+        if (entry.failed()) {
+          remove(key, entry);
+        }
+        else {
+          trim();
+        }
+      }
+    }
+    return entry.get();
+  }
+
+  public ParserConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  public String toString() {
+    return "CompileCache[size=" + getSize() + ", weight=" + getWeight() + ", hits=" + getHits() + ", misses="
+        + getMisses() + ", evictions=" + getEvictions() + "]";
+  }
+
+  private static int compilerOptions() {
+    return (MVEL.COMPILER_OPT_ALLOW_NAKED_METH_CALL ? 1 : 0)
+        | (MVEL.COMPILER_OPT_ALLOW_OVERRIDE_ALL_PROPHANDLING ? 1 << 1 : 0)
+        | (MVEL.COMPILER_OPT_ALLOW_RESOLVE_INNERCLASSES_WITH_DOTNOTATION ? 1 << 2 : 0)
+        | (MVEL.COMPILER_OPT_SUPPORT_JAVA_STYLE_CLASS_LITERALS ? 1 << 3 : 0)
+        | (MVEL.COMPILER_OPT_ALLOCATE_TYPE_LITERALS_TO_SHARED_SYMBOL_TABLE ? 1 << 4 : 0)
+        | (MVEL.COMPILER_OPT_FOLD_CONSTANTS ? 1 << 5 : 0);
+  }
+
+  /**
+   * What of a configuration affects compilation: its imports, interceptors, class loader and flags.  Two
+   * configurations with the same signature compile an expression the same way.
+   */
+  static final class Signature {
+    private final ClassLoader classLoader;
+    private final boolean allowNakedMethCall;
+    private final boolean allowBootstrapBypass;
+    private final NumericMode numericMode;
+    private final Map<String, Object> imports;
+    private final Set<String> packageImports;
+    private final Map<String, Interceptor> interceptors;
+    private final int hash;
+
+    Signature(ParserConfiguration conf) {
+      this.classLoader = conf.getClassLoader();
+      this.allowNakedMethCall = conf.isAllowNakedMethCall();
+      this.allowBootstrapBypass = conf.isAllowBootstrapBypass();
+      this.numericMode = conf.getNumericMode();
+      this.imports = new HashMap<String, Object>(conf.getImports());
+      this.packageImports = conf.getPackageImports() == null ? Collections.<String>emptySet()
+          : new HashSet<String>(conf.getPackageImports());
+      this.interceptors = conf.getInterceptors() == null ? Collections.<String, Interceptor>emptyMap()
+          : new HashMap<String, Interceptor>(conf.getInterceptors());
+
+      int h = System.identityHashCode(classLoader);
+      h = 31 * h + (allowNakedMethCall ? 1 : 0);
+      h = 31 * h + (allowBootstrapBypass ? 1 : 0);
+      h = 31 * h + numericMode.hashCode();
+      h = 31 * h + imports.hashCode();
+      h = 31 * h + packageImports.hashCode();
+      this.hash = 31 * h + interceptors.hashCode();
+    }
+
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Signature)) return false;
+      Signature sig = (Signature) o;
+      return hash == sig.hash && classLoader == sig.classLoader && allowNakedMethCall == sig.allowNakedMethCall
+          && allowBootstrapBypass == sig.allowBootstrapBypass && numericMode.equals(sig.numericMode)
+          && imports.equals(sig.imports) && packageImports.equals(sig.packageImports)
+          && interceptors.equals(sig.interceptors);
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  static final class Key {
+    private final String source;
+    private final Signature signature;
+    private final int options;
+    private final int hash;
+
+    private Key(String source, Signature signature, int options) {
+      this.source = source;
+      this.signature = signature;
+      this.options = options;
+      this.hash = 31 * (31 * source.hashCode() + signature.hashCode()) + options;
+    }
+
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key k = (Key) o;
+      return hash == k.hash && options == k.options && source.equals(k.source) && signature.equals(k.signature);
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  static final class Entry extends BoundedCache.Entry {
+    private final FutureTask<Serializable> task;
+
+    private Entry(int weight, FutureTask<Serializable> task) {
+      super(weight);
+      this.task = task;
+    }
+
+    private boolean failed() {
+      try {
+        task.get();
+        return false;
+      }
+      catch (Exception e) {
+        return true;
+      }
+    }
+
+    private Serializable get() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            return task.get();
+          }
+          catch (InterruptedException e) {
+            interrupted = true;
+          }
+          catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+          }
+        }
+      }
+      finally {
+        if (interrupted) Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.compiler;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mvel2.compiler.CompiledBundleOutputStream.MAGIC;
+import static org.mvel2.compiler.CompiledBundleOutputStream.VERSION;
+
+/**
+ * Reads compiled expressions written by a {@link CompiledBundleOutputStream}, resolving their classes with the given
+ * class loader.  The header of the bundle is checked before anything else is read.
+ */
+public class CompiledBundleInputStream extends ObjectInputStream {
+  private final ClassLoader classLoader;
+
+  public CompiledBundleInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+    super(readHeader(in));
+    this.classLoader = classLoader;
+  }
+
+  private static InputStream readHeader(InputStream in) throws IOException {
+    DataInputStream header = new DataInputStream(in);
+    if (header.readInt() != MAGIC) {
+      throw new StreamCorruptedException("not a compiled MVEL bundle");
+    }
+    int version = header.readShort();
+    if (version != VERSION) {
+      throw new StreamCorruptedException("unsupported compiled MVEL bundle version: " + version);
+    }
+    return in;
+  }
+
+  public Serializable readExpression() throws IOException, ClassNotFoundException {
+    return (Serializable) readObject();
+  }
+
+  /**
+   * Reads the expressions written by {@link CompiledBundleOutputStream#writeBundle(Map)}, in the order they were
+   * written.
+   */
+  public Map<String, Serializable> readBundle() throws IOException, ClassNotFoundException {
+    int size = readInt();
+    Map<String, Serializable> bundle = new LinkedHashMap<String, Serializable>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      String name = readUTF();
+      bundle.put(name, readExpression());
+    }
+    return bundle;
+  }
+
+  @Override
+  protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+    try {
+      return Class.forName(desc.getName(), false, classLoader);
+    }
+    catch (ClassNotFoundException e) {
+      // primitive types, which have no class loader.
+      return super.resolveClass(desc);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mvel2.compiler;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes compiled expressions in the bundle format read by {@link CompiledBundleInputStream}.
+ * <p>
+ * A bundle starts with a header of its own, a magic number and a format version, followed by a standard Java
+ * serialization stream, so the classes of the expressions are still checked against their
+ * <tt>serialVersionUID</tt> on load.  Within that stream, equal strings are written once, and the accessors
+ * generated by the optimizers are not written; they are rebuilt the first time an expression is run.
+ * <p>
+ * The format is not a compact encoding of the expressions: it holds the same object graph as their Java
+ * serialization, and is about as large.  What it adds is the header, checked before anything is deserialized.
+ * <p>
+ * Bundles are written by the <tt>MVEL.writeCompiled</tt> methods.
+ */
+public class CompiledBundleOutputStream extends ObjectOutputStream {
+  static final int MAGIC = 0x4d56454c;
+  static final int VERSION = 1;
+
+  private final Map<String, String> stringPool = new HashMap<String, String>();
+
+  public CompiledBundleOutputStream(OutputStream out) throws IOException {
+    super(writeHeader(out));
+    enableReplaceObject(true);
+  }
+
+  private static OutputStream writeHeader(OutputStream out) throws IOException {
+    DataOutputStream header = new DataOutputStream(out);
+    header.writeInt(MAGIC);
+    header.writeShort(VERSION);
+    header.flush();
+    return out;
+  }
+
+  public void writeExpression(Serializable compiled) throws IOException {
+    writeObject(compiled);
+  }
+
+  /**
+   * Writes expressions by name.  The expressions of a bundle share the objects they have in common, such as their
+   * parser configuration.
+   */
+  public void writeBundle(Map<String, ? extends Serializable> bundle) throws IOException {
+    writeInt(bundle.size());
+    for (Map.Entry<String, ? extends Serializable> entry : bundle.entrySet()) {
+      writeUTF(entry.getKey());
+      writeObject(entry.getValue());
+    }
+  }
+
+  @Override
+  protected Object replaceObject(Object obj) throws IOException {
+    if (obj instanceof String) {
+      String s = stringPool.get(obj);
+      if (s == null) stringPool.put(s = (String) obj, s);
+      return s;
+    }
+    else if (obj instanceof Accessor && !(obj instanceof ExecutableStatement)) {
+      // an accessor generated by the optimizer: it is regenerated on first use.
+      return null;
+    }
+    return obj;
+  }
+}
@@ -20,11 +20,14 @@ package org.mvel2.compiler;
 
 import java.io.Serializable;
 
+import org.mvel2.MVEL;
 import org.mvel2.ParserConfiguration;
 import org.mvel2.ast.ASTNode;
 import org.mvel2.ast.TypeCast;
 import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.optimizers.impl.asm.ASMStatementCompiler;
 import org.mvel2.util.ASTLinkedList;
 
 import static org.mvel2.MVELRuntime.execute;
@@ -43,6 +46,11 @@ public class CompiledExpression implements Serializable, ExecutableStatement {
 
   private final ParserConfiguration parserConfiguration;
 
+  private String[] variableSlots;
+
+  private transient volatile ExecutableStatement jitStatement;
+  private transient int runcount;
+
   public CompiledExpression(ASTLinkedList astMap, String sourceName, Class egressType, ParserConfiguration parserConfiguration, boolean literalOnly) {
     this.firstNode = astMap.firstNode();
     this.sourceName = sourceName;
@@ -59,6 +67,18 @@ public class CompiledExpression implements Serializable, ExecutableStatement {
     return firstNode != null && firstNode.nextASTNode == null;
   }
 
+  /**
+   * @return the names of the variables the compiler allocated a slot of a {@link org.mvel2.integration.impl.Frame} to,
+   *         or <tt>null</tt> if none were allocated.
+   */
+  public String[] getVariableSlots() {
+    return variableSlots;
+  }
+
+  public void setVariableSlots(String[] variableSlots) {
+    this.variableSlots = variableSlots;
+  }
+
   public Class getKnownEgressType() {
     return knownEgressType;
   }
@@ -112,9 +132,53 @@ public class CompiledExpression implements Serializable, ExecutableStatement {
   }
 
   public Object getDirectValue(Object staticContext, VariableResolverFactory factory) {
+    ExecutableStatement jit = getJitStatement();
+    if (jit != null) {
+      return jit.getValue(staticContext, factory);
+    }
     return execute(false, this, staticContext, parserConfiguration.getVariableFactory(factory));
   }
 
+  /**
+   * Creates the frame the expression executes in over the given variable factory, so that consecutive executions
+   * over the same factory can share it.  See {@link #getValueInFrame(Object, VariableResolverFactory,
+   * VariableResolverFactory)}.
+   */
+  public VariableResolverFactory createFrame(VariableResolverFactory factory) {
+    return parserConfiguration.createVariableResolverFactory(factory);
+  }
+
+  /**
+   * Executes the expression over the variable factory, in a frame created for it by
+   * {@link #createFrame(VariableResolverFactory)}.
+   */
+  public Object getValueInFrame(Object staticContext, VariableResolverFactory factory, VariableResolverFactory frame) {
+    if (!optimized) {
+      return getValue(staticContext, factory);
+    }
+
+    ExecutableStatement jit = getJitStatement();
+    if (jit != null) {
+      return jit.getValue(staticContext, factory);
+    }
+    return execute(false, this, staticContext, frame);
+  }
+
+  private ExecutableStatement getJitStatement() {
+    if (MVEL.RUNTIME_OPT_JIT_STATEMENTS) {
+      ExecutableStatement jit = jitStatement;
+      if (jit != null) {
+        return jit;
+      }
+      else if (runcount >= 0 && ++runcount > DynamicOptimizer.tenuringThreshold) {
+        // compile once; if the statement can't be compiled, it stays with the interpreter for good.
+        runcount = -1;
+        jitStatement = ASMStatementCompiler.compile(this);
+      }
+    }
+    return null;
+  }
+
   private void setupOptimizers() {
     optimized = true;
   }
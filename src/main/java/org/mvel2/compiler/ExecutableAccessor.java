@@ -18,9 +18,12 @@
 
 package org.mvel2.compiler;
 
+import org.mvel2.MVEL;
 import org.mvel2.ast.ASTNode;
 import org.mvel2.ast.TypeCast;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.optimizers.impl.asm.ASMStatementCompiler;
 
 public class ExecutableAccessor implements ExecutableStatement {
   private ASTNode node;
@@ -29,19 +32,53 @@ public class ExecutableAccessor implements ExecutableStatement {
   private Class egress;
   private boolean convertable;
 
+  private String[] variableSlots;
+
+  private transient volatile ExecutableStatement jitStatement;
+  private transient int runcount;
+
   public ExecutableAccessor(ASTNode node, Class egress) {
     this.node = node;
     this.egress = egress;
   }
 
   public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+    if (MVEL.RUNTIME_OPT_JIT_STATEMENTS) {
+      ExecutableStatement jit = getJitStatement();
+      if (jit != null) return jit.getValue(ctx, elCtx, variableFactory);
+    }
     return node.getReducedValueAccelerated(ctx, elCtx, variableFactory);
   }
 
   public Object getValue(Object staticContext, VariableResolverFactory factory) {
+    if (MVEL.RUNTIME_OPT_JIT_STATEMENTS) {
+      ExecutableStatement jit = getJitStatement();
+      if (jit != null) return jit.getValue(staticContext, factory);
+    }
     return node.getReducedValueAccelerated(staticContext, staticContext, factory);
   }
 
+  private ExecutableStatement getJitStatement() {
+    ExecutableStatement jit = jitStatement;
+    if (jit == null && runcount >= 0 && ++runcount > DynamicOptimizer.tenuringThreshold) {
+      runcount = -1;
+      jitStatement = jit = ASMStatementCompiler.compile(this);
+    }
+    return jit;
+  }
+
+  /**
+   * @return the names of the variables the compiler allocated a slot of a {@link org.mvel2.integration.impl.Frame} to,
+   *         or <tt>null</tt> if none were allocated.
+   */
+  public String[] getVariableSlots() {
+    return variableSlots;
+  }
+
+  public void setVariableSlots(String[] variableSlots) {
+    this.variableSlots = variableSlots;
+  }
+
   public void setKnownIngressType(Class type) {
     this.ingress = type;
   }
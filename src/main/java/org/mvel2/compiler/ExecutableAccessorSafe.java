@@ -31,6 +31,8 @@ public class ExecutableAccessorSafe implements ExecutableStatement, Safe {
   private Class egress;
   private boolean convertable;
 
+  private String[] variableSlots;
+
   public ExecutableAccessorSafe(ASTNode node) {
     this.node = node;
   }
@@ -48,6 +50,18 @@ public class ExecutableAccessorSafe implements ExecutableStatement, Safe {
     return node.getReducedValueAccelerated(staticContext, staticContext, factory);
   }
 
+  /**
+   * @return the names of the variables the compiler allocated a slot of a {@link org.mvel2.integration.impl.Frame} to,
+   *         or <tt>null</tt> if none were allocated.
+   */
+  public String[] getVariableSlots() {
+    return variableSlots;
+  }
+
+  public void setVariableSlots(String[] variableSlots) {
+    this.variableSlots = variableSlots;
+  }
+
   public void setKnownIngressType(Class type) {
     this.ingress = type;
   }
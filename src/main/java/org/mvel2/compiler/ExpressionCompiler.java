@@ -19,8 +19,10 @@
 package org.mvel2.compiler;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.mvel2.CompileException;
 import org.mvel2.ErrorDetail;
@@ -65,7 +67,11 @@ public class ExpressionCompiler extends AbstractParser {
   public CompiledExpression compile() {
     try {
       this.debugSymbols = pCtx.isDebugSymbols();
-      return _compile();
+      CompiledExpression compiled = _compile();
+      if (compiled != null) {
+        compiled.setVariableSlots(allocateVariableSlots());
+      }
+      return compiled;
     }
     finally {
       if (pCtx.isFatalError()) {
@@ -113,6 +119,8 @@ public class ExpressionCompiler extends AbstractParser {
     ASTLinkedList astBuild = new ASTLinkedList();
     stk = new ExecutionStack();
     dStack = new ExecutionStack();
+    stk.setNumericMode(pCtx.getParserConfiguration().getNumericMode());
+    dStack.setNumericMode(pCtx.getParserConfiguration().getNumericMode());
     compileMode = true;
 
     boolean firstLA;
@@ -322,6 +330,22 @@ public class ExpressionCompiler extends AbstractParser {
     }
   }
 
+  /**
+   * Allocates a slot to each input and local of the expression, unless the context already indexes its variables.
+   *
+   * @return the names of the slots, or <tt>null</tt> if there are none.
+   */
+  private String[] allocateVariableSlots() {
+    if (MVEL.COMPILER_OPT_DISABLE_VARIABLE_SLOTS || pCtx.isIndexAllocation() || pCtx.hasIndexedInputs()) {
+      return null;
+    }
+
+    Set<String> names = new LinkedHashSet<String>();
+    if (pCtx.getInputs() != null) names.addAll(pCtx.getInputs().keySet());
+    if (pCtx.getVariables() != null) names.addAll(pCtx.getVariables().keySet());
+    return names.isEmpty() ? null : names.toArray(new String[names.size()]);
+  }
+
   private Object getStackValueResult() {
     return (fields & OPT_SUBTR) == 0 ? stk.pop() : signNumber(stk.pop());
   }
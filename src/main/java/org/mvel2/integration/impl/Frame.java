@@ -0,0 +1,220 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.integration.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.VariableResolverFactory;
+
+import static org.mvel2.integration.impl.SimpleSTValueResolver.handleTypeCoercion;
+
+/**
+ * The variables of one execution of a compiled expression over a variable map.  The compiler allocates a slot to
+ * each input and local of the expression (see {@link org.mvel2.compiler.CompiledExpression#getVariableSlots()}), and
+ * the accessors of the expression resolve a variable held in a slot by its index rather than by name.
+ * <p>
+ * A slot is loaded from the map the first time it is used, and the variables assigned by the expression are written
+ * back to the map by {@link #externalize()}.  Any other variable is resolved as by the
+ * {@link CachingMapVariableResolverFactory}.
+ */
+@SuppressWarnings({"unchecked"})
+public class Frame extends CachingMapVariableResolverFactory {
+  private static final byte UNKNOWN = 0;
+  private static final byte ABSENT = 1;
+  private static final byte PRESENT = 2;
+  private static final byte ASSIGNED = 3;
+
+  private final Object[] values;
+  private final byte[] states;
+  private Class[] types;
+
+  public Frame(String[] slots, Map variables) {
+    super(variables);
+    this.indexedVariableNames = slots;
+    this.values = new Object[slots.length];
+    this.states = new byte[slots.length];
+  }
+
+  /**
+   * @return the frame the factory stands for, or <tt>null</tt> if it is not a frame.
+   */
+  public static Frame of(VariableResolverFactory factory) {
+    if (factory instanceof StackResetResolverFactory) {
+      factory = ((StackResetResolverFactory) factory).getDelegate();
+    }
+    return factory instanceof Frame ? (Frame) factory : null;
+  }
+
+  /**
+   * @return <tt>true</tt> if the slot is allocated to the named variable, and the variable is defined.
+   */
+  public boolean holds(int slot, String name) {
+    String[] names = indexedVariableNames;
+    return slot < names.length && (names[slot] == name || names[slot].equals(name)) && isDefined(slot);
+  }
+
+  public Object getSlot(int slot) {
+    return values[slot];
+  }
+
+  public void setSlot(int slot, Object value) {
+    values[slot] = handleTypeCoercion(types == null ? null : types[slot], value);
+    states[slot] = ASSIGNED;
+  }
+
+  private boolean isDefined(int slot) {
+    if (states[slot] == UNKNOWN) {
+      String name = indexedVariableNames[slot];
+      Object value = variables.get(name);
+      if (value != null || variables.containsKey(name)) {
+        values[slot] = value;
+        states[slot] = PRESENT;
+      }
+      else {
+        states[slot] = ABSENT;
+      }
+    }
+    return states[slot] != ABSENT;
+  }
+
+  private VariableResolver define(int slot, Object value, Class<?> type) {
+    if (types == null) types = new Class[values.length];
+    types[slot] = type;
+    setSlot(slot, value);
+    return getIndexedVariableResolver(slot);
+  }
+
+  public VariableResolver createVariable(String name, Object value) {
+    int slot = variableIndexOf(name);
+    if (slot == -1) {
+      return super.createVariable(name, value);
+    }
+
+    setSlot(slot, value);
+    return getIndexedVariableResolver(slot);
+  }
+
+  public VariableResolver createVariable(String name, Object value, Class<?> type) {
+    int slot = variableIndexOf(name);
+    if (slot == -1) {
+      return super.createVariable(name, value, type);
+    }
+
+    if (isDefined(slot) && types != null && types[slot] != null) {
+      throw new RuntimeException("variable already defined within scope: " + types[slot] + " " + name);
+    }
+    return define(slot, value, type);
+  }
+
+  public VariableResolver createIndexedVariable(int index, String name, Object value) {
+    setSlot(index, value);
+    return getIndexedVariableResolver(index);
+  }
+
+  public VariableResolver createIndexedVariable(int index, String name, Object value, Class<?> type) {
+    return define(index, value, type);
+  }
+
+  public VariableResolver getIndexedVariableResolver(int index) {
+    if (indexedVariableResolvers == null) {
+      indexedVariableResolvers = new VariableResolver[values.length];
+    }
+    VariableResolver vr = indexedVariableResolvers[index];
+    return vr != null ? vr : (indexedVariableResolvers[index] = new SlotResolver(index));
+  }
+
+  public VariableResolver getVariableResolver(String name) {
+    int slot = variableIndexOf(name);
+    if (slot != -1 && isDefined(slot)) {
+      return getIndexedVariableResolver(slot);
+    }
+    return super.getVariableResolver(name);
+  }
+
+  public boolean isResolveable(String name) {
+    int slot = variableIndexOf(name);
+    return slot != -1 ? isDefined(slot) || isNextResolveable(name) : super.isResolveable(name);
+  }
+
+  public boolean isTarget(String name) {
+    int slot = variableIndexOf(name);
+    return slot != -1 ? isDefined(slot) : super.isTarget(name);
+  }
+
+  public boolean isIndexedFactory() {
+    return true;
+  }
+
+  public void externalize() {
+    for (int i = 0; i < states.length; i++) {
+      if (states[i] == ASSIGNED) variables.put(indexedVariableNames[i], values[i]);
+    }
+    super.externalize();
+  }
+
+  public Set<String> getKnownVariables() {
+    Set<String> known = super.getKnownVariables();
+    for (int i = 0; i < states.length; i++) {
+      if (states[i] == ASSIGNED) known.add(indexedVariableNames[i]);
+    }
+    return known;
+  }
+
+  public void clear() {
+    super.clear();
+    Arrays.fill(values, null);
+    Arrays.fill(states, UNKNOWN);
+    types = null;
+  }
+
+  private class SlotResolver implements VariableResolver {
+    private final int slot;
+
+    private SlotResolver(int slot) {
+      this.slot = slot;
+    }
+
+    public String getName() {
+      return indexedVariableNames[slot];
+    }
+
+    public Class getType() {
+      return types == null ? null : types[slot];
+    }
+
+    public void setStaticType(Class type) {
+      if (types == null) types = new Class[values.length];
+      types[slot] = type;
+    }
+
+    public int getFlags() {
+      return states[slot] == ASSIGNED ? -1 : 0;
+    }
+
+    public Object getValue() {
+      return isDefined(slot) ? values[slot] : null;
+    }
+
+    public void setValue(Object value) {
+      setSlot(slot, value);
+    }
+  }
+}
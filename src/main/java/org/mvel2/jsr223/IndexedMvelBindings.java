@@ -0,0 +1,336 @@
+package org.mvel2.jsr223;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+import org.mvel2.UnresolveablePropertyException;
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.BaseVariableResolverFactory;
+
+/**
+ * <code>Bindings</code> whose values are held in slots: each name is given a slot once, and scripts read and write
+ * the slot through a resolver which is created once per name and reused, instead of wrapping the bindings in a new
+ * <code>Map</code> based variable factory, with resolvers of its own, on every evaluation.
+ * <p>
+ * Variables are still found by name: the factory of these bindings maps a name to its slot through a hash lookup,
+ * and is not an indexed factory in the sense of {@link VariableResolverFactory#isIndexedFactory()}, whose variables
+ * are resolved by an index fixed at compile time.
+ * <p>
+ * Removing a binding frees its slot for the next name bound, so the slots do not outgrow the bindings; a resolver
+ * still held for a removed name looks the name up again.  Like {@link MvelBindings}, these bindings are not
+ * thread-safe.
+ */
+public class IndexedMvelBindings extends AbstractMap<String, Object> implements Bindings {
+
+    private static final Object ABSENT = new Object();
+
+    private final Map<String, Integer> slots = new HashMap<String, Integer>();
+    private String[] names;
+    private Object[] values;
+    private SlotResolver[] resolvers;
+    private int slotCount;
+    private int size;
+
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+
+    private VariableResolverFactory factory;
+
+    public IndexedMvelBindings() {
+        this(16);
+    }
+
+    public IndexedMvelBindings(int initialCapacity) {
+        names = new String[Math.max(initialCapacity, 1)];
+        values = new Object[names.length];
+        resolvers = new SlotResolver[names.length];
+    }
+
+    public IndexedMvelBindings(Map<String, Object> m) {
+        this(m.size());
+        putAll(m);
+    }
+
+    /**
+     * Returns the variable factory resolving the variables of a script to the slots of these bindings.  Variables
+     * created by the script are added to the bindings.
+     */
+    public VariableResolverFactory getVariableResolverFactory() {
+        if (factory == null) {
+            factory = new SlotResolverFactory();
+        }
+        return factory;
+    }
+
+    public Object put(String name, Object value) {
+        checkKey(name);
+        Integer slot = slots.get(name);
+        int i = slot == null ? allocate(name) : slot;
+
+        Object previous = values[i];
+        values[i] = value;
+        if (previous == ABSENT) {
+            size++;
+            return null;
+        }
+        return previous;
+    }
+
+    public Object get(Object key) {
+        int i = slot(key);
+        return i == -1 ? null : values[i];
+    }
+
+    public boolean containsKey(Object key) {
+        return slot(key) != -1;
+    }
+
+    public Object remove(Object key) {
+        int i = slot(key);
+        if (i == -1) return null;
+
+        Object previous = values[i];
+        release(i);
+        return previous;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slotCount; i++) {
+            names[i] = null;
+            values[i] = null;
+            resolvers[i] = null;
+        }
+        slots.clear();
+        slotCount = 0;
+        freeCount = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new SlotIterator();
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return the slot of the bound name, or -1 if it is not bound.
+     */
+    private int slot(Object key) {
+        checkKey(key);
+        return find((String) key);
+    }
+
+    private int find(String name) {
+        Integer slot = slots.get(name);
+        return slot == null || values[slot] == ABSENT ? -1 : slot;
+    }
+
+    private int allocate(String name) {
+        if (freeCount != 0) {
+            int i = freeSlots[--freeCount];
+            names[i] = name;
+            slots.put(name, i);
+            return i;
+        }
+
+        if (slotCount == names.length) {
+            int capacity = names.length * 2;
+            String[] newNames = new String[capacity];
+            Object[] newValues = new Object[capacity];
+            SlotResolver[] newResolvers = new SlotResolver[capacity];
+            System.arraycopy(names, 0, newNames, 0, slotCount);
+            System.arraycopy(values, 0, newValues, 0, slotCount);
+            System.arraycopy(resolvers, 0, newResolvers, 0, slotCount);
+            names = newNames;
+            values = newValues;
+            resolvers = newResolvers;
+        }
+
+        int i = slotCount++;
+        names[i] = name;
+        values[i] = ABSENT;
+        slots.put(name, i);
+        return i;
+    }
+
+    /**
+     * Unbinds the name of the slot and makes the slot available to the next name bound.
+     */
+    private void release(int slot) {
+        slots.remove(names[slot]);
+        names[slot] = null;
+        values[slot] = ABSENT;
+        resolvers[slot] = null;
+        size--;
+
+        if (freeCount == freeSlots.length) {
+            int[] newFreeSlots = new int[Math.max(4, freeCount * 2)];
+            System.arraycopy(freeSlots, 0, newFreeSlots, 0, freeCount);
+            freeSlots = newFreeSlots;
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private SlotResolver resolver(int slot) {
+        SlotResolver resolver = resolvers[slot];
+        if (resolver == null) {
+            resolvers[slot] = resolver = new SlotResolver(slot);
+        }
+        return resolver;
+    }
+
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new NullPointerException("key can not be null");
+        }
+        if (!(key instanceof String)) {
+            throw new ClassCastException("key should be a String");
+        }
+        if (((String) key).length() == 0) {
+            throw new IllegalArgumentException("key can not be empty");
+        }
+    }
+
+    private class SlotIterator implements Iterator<Map.Entry<String, Object>> {
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int i) {
+            while (i < slotCount && values[i] == ABSENT) i++;
+            return i;
+        }
+
+        public boolean hasNext() {
+            return next < slotCount;
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            final int i = last = next;
+            next = advance(next + 1);
+
+            return new SimpleEntry<String, Object>(names[i], values[i]) {
+                public Object setValue(Object value) {
+                    super.setValue(value);
+                    Object previous = values[i];
+                    values[i] = value;
+                    return previous;
+                }
+            };
+        }
+
+        public void remove() {
+            if (last == -1 || values[last] == ABSENT) throw new IllegalStateException();
+            release(last);
+        }
+    }
+
+    private class SlotResolver implements VariableResolver {
+        private final int slot;
+        private final String name;
+
+        private SlotResolver(int slot) {
+            this.slot = slot;
+            this.name = names[slot];
+        }
+
+        /**
+         * @return the slot of the name, which has moved if the name was removed in the meantime, or -1.
+         */
+        private int slot() {
+            return names[slot] == name ? slot : find(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class getType() {
+            return Object.class;
+        }
+
+        public void setStaticType(Class type) {
+        }
+
+        public int getFlags() {
+            return 0;
+        }
+
+        public Object getValue() {
+            int i = slot();
+            return i == -1 ? null : values[i];
+        }
+
+        public void setValue(Object value) {
+            int i = slot();
+            if (i == -1) {
+                put(name, value);
+            }
+            else {
+                values[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Hands out the reusable resolver of each binding, finding its slot by name.
+     */
+    private class SlotResolverFactory extends BaseVariableResolverFactory {
+
+        public VariableResolver createVariable(String name, Object value) {
+            put(name, value);
+            return resolver(slots.get(name));
+        }
+
+        public VariableResolver createVariable(String name, Object value, Class<?> type) {
+            return createVariable(name, value);
+        }
+
+        public VariableResolver getVariableResolver(String name) {
+            int i = find(name);
+            if (i != -1) {
+                return resolver(i);
+            }
+            else if (nextFactory != null) {
+                return nextFactory.getVariableResolver(name);
+            }
+
+            throw new UnresolveablePropertyException("unable to resolve variable '" + name + "'");
+        }
+
+        public boolean isResolveable(String name) {
+            return find(name) != -1 || (nextFactory != null && nextFactory.isResolveable(name));
+        }
+
+        public boolean isTarget(String name) {
+            return find(name) != -1;
+        }
+
+        public Set<String> getKnownVariables() {
+            return new HashSet<String>(keySet());
+        }
+
+        public void clear() {
+            IndexedMvelBindings.this.clear();
+        }
+    }
+}
@@ -3,15 +3,48 @@ package org.mvel2.jsr223;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 
 import javax.script.*;
 
 import org.mvel2.MVEL;
+import org.mvel2.ast.FunctionInstance;
+import org.mvel2.compiler.CompileCache;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
 
-public class MvelScriptEngine extends AbstractScriptEngine implements ScriptEngine, Compilable {
+import static org.mvel2.DataConversion.convert;
+import static org.mvel2.util.ParseTools.getBestCandidate;
+import static org.mvel2.util.ParseTools.getWidenedTarget;
+import static org.mvel2.util.Varargs.normalizeArgsForVarArgs;
+import static org.mvel2.util.Varargs.paramTypeVarArgsSafe;
+
+public class MvelScriptEngine extends AbstractScriptEngine implements ScriptEngine, Compilable, Invocable {
+
+    /**
+     * The default number of compiled scripts kept by an engine.
+     */
+    public static final int DEFAULT_CACHE_SIZE = Integer.getInteger("mvel2.jsr223.cache_size", 512);
 
     private volatile MvelScriptEngineFactory factory;
 
+    private final CompileCache scripts;
+
+    public MvelScriptEngine() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize the number of compiled scripts the engine keeps, so that evaluating the same source again
+     *                  does not compile it again.
+     */
+    public MvelScriptEngine(int cacheSize) {
+        this.scripts = new CompileCache(cacheSize);
+    }
+
     @Override
     public Object eval(String script, ScriptContext context) throws ScriptException {
         Serializable expression = compiledScript(script);
@@ -28,6 +61,14 @@ public class MvelScriptEngine extends AbstractScriptEngine implements ScriptEngi
         return new MvelBindings();
     }
 
+    /**
+     * Creates bindings holding their values in slots, which scripts resolve their variables against through
+     * resolvers reused from one evaluation to the next.
+     */
+    public IndexedMvelBindings createIndexedBindings() {
+        return new IndexedMvelBindings();
+    }
+
     @Override
     public ScriptEngineFactory getFactory() {
         if (this.factory == null) {
@@ -67,20 +108,166 @@ public class MvelScriptEngine extends AbstractScriptEngine implements ScriptEngi
         return this.compile(readFully(reader));
     }
 
+    /**
+     * Returns the compiled script, which is only compiled the first time the engine sees its source.
+     */
     public Serializable compiledScript(String script) throws ScriptException {
         try {
-            Serializable expression = MVEL.compileExpression(script);
-            return expression;
+            return scripts.compile(script);
         } catch (Exception e) {
             throw new ScriptException(e);
         }
     }
 
+    /**
+     * @return the cache of the scripts compiled by this engine.
+     */
+    public CompileCache getScriptCache() {
+        return scripts;
+    }
+
     public Object evaluate(Serializable expression, ScriptContext context) throws ScriptException {
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        try {
+            if (bindings instanceof IndexedMvelBindings) {
+                return MVEL.executeExpression(expression, ((IndexedMvelBindings) bindings).getVariableResolverFactory());
+            }
+            return MVEL.executeExpression(expression, bindings);
+        } catch (Exception e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    private static VariableResolverFactory variableFactory(Bindings bindings) {
+        if (bindings instanceof IndexedMvelBindings) {
+            return ((IndexedMvelBindings) bindings).getVariableResolverFactory();
+        }
+        return new MapVariableResolverFactory(bindings);
+    }
+
+    /**
+     * Calls a function defined with <code>def</code> by a script evaluated in the engine scope.
+     */
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        if (name == null) {
+            throw new NullPointerException("function name is null");
+        }
+
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        Object function = bindings.get(name);
+        if (!(function instanceof FunctionInstance)) {
+            throw new NoSuchMethodException("no such function: " + name);
+        }
+
+        try {
+            return ((FunctionInstance) function).call(null, null, variableFactory(bindings), args);
+        } catch (Exception e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    /**
+     * Calls a method of an object, choosing the overload and coercing the arguments as a script calling it would.
+     */
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException, NoSuchMethodException {
+        if (thiz == null) {
+            throw new IllegalArgumentException("target object is null");
+        }
+        if (name == null) {
+            throw new NullPointerException("method name is null");
+        }
+
+        Object[] arguments = args == null ? new Object[0] : args.clone();
+        Class<?> cls = thiz.getClass();
+        Method method = getBestCandidate(arguments, name, cls, cls.getMethods(), false);
+        if (method == null) {
+            throw new NoSuchMethodException("no such method: " + cls.getName() + "." + name);
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = convert(arguments[i], paramTypeVarArgsSafe(parameterTypes, i, method.isVarArgs()));
+        }
+
         try {
-            return MVEL.executeExpression(expression, context.getBindings(ScriptContext.ENGINE_SCOPE));
+            return getWidenedTarget(cls, method).invoke(thiz,
+                    normalizeArgsForVarArgs(parameterTypes, arguments, method.isVarArgs()));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? new ScriptException((Exception) cause) : new ScriptException(e);
         } catch (Exception e) {
             throw new ScriptException(e);
         }
     }
+
+    /**
+     * Implements an interface with the functions of the engine scope.  The implementation answers
+     * <code>equals</code>, <code>hashCode</code> and <code>toString</code> by identity.
+     *
+     * @return the implementation, or <code>null</code> if a method of the interface has no function.
+     */
+    @Override
+    public <T> T getInterface(Class<T> clasz) {
+        checkInterface(clasz);
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        for (Method method : clasz.getMethods()) {
+            if (!(bindings.get(method.getName()) instanceof FunctionInstance)) {
+                return null;
+            }
+        }
+
+        return clasz.cast(Proxy.newProxyInstance(clasz.getClassLoader(), new Class[]{clasz}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, null);
+                }
+                return invokeFunction(method.getName(), args == null ? new Object[0] : args);
+            }
+        }));
+    }
+
+    /**
+     * Implements an interface with the methods of an object.  The implementation takes its <code>hashCode</code>
+     * and <code>toString</code> from the object, and is only equal to itself.
+     */
+    @Override
+    public <T> T getInterface(final Object thiz, Class<T> clasz) {
+        if (thiz == null) {
+            throw new IllegalArgumentException("target object is null");
+        }
+        checkInterface(clasz);
+
+        return clasz.cast(Proxy.newProxyInstance(clasz.getClassLoader(), new Class[]{clasz}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, thiz);
+                }
+                return invokeMethod(thiz, method.getName(), args == null ? new Object[0] : args);
+            }
+        }));
+    }
+
+    /**
+     * Answers the methods of <code>Object</code> which a proxy passes on: <code>equals</code> by identity, and
+     * <code>hashCode</code> and <code>toString</code> from the target object, or by identity if there is none.
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args, Object target) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        }
+        else if (name.equals("hashCode")) {
+            return target == null ? System.identityHashCode(proxy) : target.hashCode();
+        }
+        return target == null ? proxy.getClass().getInterfaces()[0].getName() + "@"
+            + Integer.toHexString(System.identityHashCode(proxy)) : target.toString();
+    }
+
+    private static void checkInterface(Class<?> clasz) {
+        if (clasz == null || !clasz.isInterface()) {
+            throw new IllegalArgumentException("not an interface: " + clasz);
+        }
+    }
 }
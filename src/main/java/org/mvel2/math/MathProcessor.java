@@ -43,17 +43,107 @@ import static org.mvel2.util.Soundex.soundex;
 public strictfp class MathProcessor {
   private static final MathContext MATH_CONTEXT = MathContext.DECIMAL128;
 
+  /**
+   * The specialized operations, indexed by the type of the left operand, the operator and the type of the right
+   * operand.  A <tt>null</tt> entry leaves the operation to the generic dispatch.
+   */
+  private static final MathOperation[][][] OPERATIONS = new MathOperation[3][NEQUAL + 1][3];
+
+  private static final int INT_OPERAND = 0;
+  private static final int LONG_OPERAND = 1;
+  private static final int DOUBLE_OPERAND = 2;
+
+  static {
+    for (int operation = 0; operation <= NEQUAL; operation++) {
+      if (operation >= BW_AND && operation <= BW_NOT) continue;
+
+      if (operation != POWER) {
+        OPERATIONS[INT_OPERAND][operation][INT_OPERAND] = new IntOperation(operation);
+        OPERATIONS[LONG_OPERAND][operation][LONG_OPERAND] = new LongOperation(operation);
+        OPERATIONS[INT_OPERAND][operation][LONG_OPERAND] = new IntegralOperation(operation);
+        OPERATIONS[LONG_OPERAND][operation][INT_OPERAND] = new IntegralOperation(operation);
+      }
+
+      DoubleOperation doubleOperation = new DoubleOperation(operation);
+      for (int i = 0; i < 3; i++) {
+        OPERATIONS[DOUBLE_OPERAND][operation][i] = doubleOperation;
+        OPERATIONS[i][operation][DOUBLE_OPERAND] = doubleOperation;
+      }
+    }
+  }
+
+  /**
+   * Returns the operation specialized for operands of the given classes, which must agree with the given type hints
+   * (as in {@link #doOperations(int, Object, int, int, Object)}, a hint below 1 is no hint).
+   *
+   * @return the operation, or <tt>null</tt> if the pair of types has none.
+   */
+  public static MathOperation getOperation(int type1, Class<?> cls1, int operation, int type2, Class<?> cls2) {
+    if (operation < 0 || operation > NEQUAL) return null;
+
+    int i1 = operandIndex(cls1);
+    int i2 = operandIndex(cls2);
+    if (i1 < 0 || i2 < 0 || (type1 > 0 && operandIndex(type1) != i1) || (type2 > 0 && operandIndex(type2) != i2)) {
+      return null;
+    }
+    return OPERATIONS[i1][operation][i2];
+  }
+
+  private static int operandIndex(Class<?> cls) {
+    if (cls == Integer.class) return INT_OPERAND;
+    if (cls == Long.class) return LONG_OPERAND;
+    if (cls == Double.class) return DOUBLE_OPERAND;
+    return -1;
+  }
+
+  private static int operandIndex(int type) {
+    switch (type) {
+      case DataTypes.INTEGER:
+      case DataTypes.W_INTEGER:
+        return INT_OPERAND;
+      case DataTypes.LONG:
+      case DataTypes.W_LONG:
+        return LONG_OPERAND;
+      case DataTypes.DOUBLE:
+      case DataTypes.W_DOUBLE:
+        return DOUBLE_OPERAND;
+    }
+    return -1;
+  }
+
   public static Object doOperations(Object val1, int operation, Object val2) {
+    return doOperations(val1, operation, val2, NumericMode.DEFAULT);
+  }
+
+  public static Object doOperations(Object val1, int operation, Object val2, NumericMode mode) {
+    if (val1 != null && val2 != null) {
+      MathOperation op = getOperation(-1, val1.getClass(), operation, -1, val2.getClass());
+      if (op != null) return op.doOperation(val1, val2);
+    }
     return doOperations(val1 == null ? DataTypes.OBJECT : __resolveType(val1.getClass()),
         val1, operation,
-        val2 == null ? DataTypes.NULL : __resolveType(val2.getClass()), val2);
+        val2 == null ? DataTypes.NULL : __resolveType(val2.getClass()), val2, mode);
   }
 
   public static Object doOperations(Object val1, int operation, int type2, Object val2) {
-    return doOperations(val1 == null ? DataTypes.OBJECT : __resolveType(val1.getClass()), val1, operation, type2, val2);
+    return doOperations(val1, operation, type2, val2, NumericMode.DEFAULT);
+  }
+
+  public static Object doOperations(Object val1, int operation, int type2, Object val2, NumericMode mode) {
+    return doOperations(val1 == null ? DataTypes.OBJECT : __resolveType(val1.getClass()), val1, operation, type2, val2,
+        mode);
   }
 
   public static Object doOperations(int type1, Object val1, int operation, int type2, Object val2) {
+    return doOperations(type1, val1, operation, type2, val2, NumericMode.DEFAULT);
+  }
+
+  public static Object doOperations(int type1, Object val1, int operation, int type2, Object val2, NumericMode mode) {
+    if (val1 != null && val2 != null) {
+      MathOperation op = getOperation(type1, val1.getClass(), operation, type2, val2.getClass());
+      if (op != null) return op.doOperation(val1, val2);
+    }
+
     if (type1 < 1)
       type1 = val1 == null ? DataTypes.OBJECT : __resolveType(val1.getClass());
 
@@ -62,17 +152,27 @@ public strictfp class MathProcessor {
 
     if (type1 == BIG_DECIMAL) {
       if (type2 == BIG_DECIMAL) {
-        return doBigDecimalArithmetic((BigDecimal) val1, operation, (BigDecimal) val2, false, -1);
+        return doBigDecimalArithmetic((BigDecimal) val1, operation, (BigDecimal) val2, false, -1, mode.getMathContext());
       }
       if (type2 > 99) {
-        return doBigDecimalArithmetic((BigDecimal) val1, operation, asBigDecimal(val2), false, -1);
+        return doBigDecimalArithmetic((BigDecimal) val1, operation, asBigDecimal(val2, mode), false, -1,
+            mode.getMathContext());
       } else {
         return _doOperations(type1, val1, operation, type2, val2);
       }
     }
+    else if (type2 == BIG_DECIMAL && val2 != null && mode.isFastDecimals() && val1 instanceof Number
+        && isDecimalOperation(operation)) {
+      return doBigDecimalArithmetic(asBigDecimal(val1, mode), operation, (BigDecimal) val2, false, -1,
+          mode.getMathContext());
+    }
     return _doOperations(type1, val1, operation, type2, val2);
   }
 
+  private static boolean isDecimalOperation(int operation) {
+    return operation <= POWER || (operation >= LTHAN && operation <= NEQUAL);
+  }
+
   private static Object doPrimWrapperArithmetic(final Number val1, final int operation, final Number val2, int returnTarget) {
     switch (operation) {
       case ADD:
@@ -132,44 +232,45 @@ public strictfp class MathProcessor {
     throw new RuntimeException("internal error: " + returnType);
   }
 
-  private static Object doBigDecimalArithmetic(final BigDecimal val1, final int operation, final BigDecimal val2, boolean iNumber, int returnTarget) {
+  private static Object doBigDecimalArithmetic(final BigDecimal val1, final int operation, final BigDecimal val2, boolean iNumber, int returnTarget,
+                                               final MathContext mathContext) {
     switch (operation) {
       case ADD:
         if (iNumber) {
-          return narrowType(val1.add(val2, MATH_CONTEXT), returnTarget);
+          return narrowType(val1.add(val2, mathContext), returnTarget);
         }
         else {
-          return val1.add(val2, MATH_CONTEXT);
+          return val1.add(val2, mathContext);
         }
       case DIV:
         if (iNumber) {
-          return narrowType(val1.divide(val2, MATH_CONTEXT), returnTarget);
+          return narrowType(val1.divide(val2, mathContext), returnTarget);
         }
         else {
-          return val1.divide(val2, MATH_CONTEXT);
+          return val1.divide(val2, mathContext);
         }
 
       case SUB:
         if (iNumber) {
-          return narrowType(val1.subtract(val2, MATH_CONTEXT), returnTarget);
+          return narrowType(val1.subtract(val2, mathContext), returnTarget);
         }
         else {
-          return val1.subtract(val2, MATH_CONTEXT);
+          return val1.subtract(val2, mathContext);
         }
       case MULT:
         if (iNumber) {
-          return narrowType(val1.multiply(val2, MATH_CONTEXT), returnTarget);
+          return narrowType(val1.multiply(val2, mathContext), returnTarget);
         }
         else {
-          return val1.multiply(val2, MATH_CONTEXT);
+          return val1.multiply(val2, mathContext);
         }
 
       case POWER:
         if (iNumber) {
-          return narrowType(val1.pow(val2.intValue(), MATH_CONTEXT), returnTarget);
+          return narrowType(val1.pow(val2.intValue(), mathContext), returnTarget);
         }
         else {
-          return val1.pow(val2.intValue(), MATH_CONTEXT);
+          return val1.pow(val2.intValue(), mathContext);
         }
 
       case MOD:
@@ -202,7 +303,13 @@ public strictfp class MathProcessor {
               (isIntegerType(type1) && isIntegerType(type2) && operation >= BW_AND && operation <= BW_NOT)) {
         return doOperationsSameType(type1, val1, operation, val2);
       }
-      else if (val2 != null && isNumericOperation(type1, val1, operation, type2, val2)) {
+
+      if (isIntegerType(type1) && isIntegerType(type2)) {
+        Object result = doIntegralArithmetic(val1, operation, val2, box(type1) == DataTypes.W_LONG || box(type2) == DataTypes.W_LONG);
+        if (result != null) return result;
+      }
+
+      if (val2 != null && isNumericOperation(type1, val1, operation, type2, val2)) {
         return doPrimWrapperArithmetic(getNumber(val1, type1), operation,
             getNumber(val2, type2), Math.max(box(type2), box(type1)));
       }
@@ -230,6 +337,66 @@ public strictfp class MathProcessor {
         || (operation != ADD && (type1 > 99 || type2 > 99 || operation < LTHAN || operation > GETHAN) && isNumber(val1) && isNumber(val2));
   }
 
+  /**
+   * Operates on a mix of int and long operands in exact long arithmetic, narrowing the result back to an int if
+   * neither operand is a long.
+   *
+   * @return the result, or <tt>null</tt> if it overflows, the operation is not supported, or the operands are not
+   *         integral values; the operation is then carried out in double precision as for other mixed types.
+   */
+  private static Object doIntegralArithmetic(Object val1, int operation, Object val2, boolean wide) {
+    if (!(val1 instanceof Integer || val1 instanceof Long) || !(val2 instanceof Integer || val2 instanceof Long)) {
+      return null;
+    }
+
+    long l1 = ((Number) val1).longValue();
+    long l2 = ((Number) val2).longValue();
+    long result;
+
+    try {
+      switch (operation) {
+        case ADD:
+          result = Math.addExact(l1, l2);
+          break;
+        case SUB:
+          result = Math.subtractExact(l1, l2);
+          break;
+        case MULT:
+          result = Math.multiplyExact(l1, l2);
+          break;
+        case DIV:
+          if (l2 == 0 || (l1 == Long.MIN_VALUE && l2 == -1)) return null;
+          result = l1 / l2;
+          break;
+        case MOD:
+          if (l2 == 0) return null;
+          result = l1 % l2;
+          break;
+        case LTHAN:
+          return l1 < l2;
+        case GTHAN:
+          return l1 > l2;
+        case LETHAN:
+          return l1 <= l2;
+        case GETHAN:
+          return l1 >= l2;
+        case EQUAL:
+          return l1 == l2;
+        case NEQUAL:
+          return l1 != l2;
+        default:
+          return null;
+      }
+    }
+    catch (ArithmeticException e) {
+      return null;
+    }
+
+    if (wide) return result;
+    if ((int) result != result) return null;
+    return (int) result;
+  }
+
   private static boolean isIntegerType(int type) {
     return type == DataTypes.INTEGER || type == DataTypes.W_INTEGER || type == DataTypes.LONG || type == DataTypes.W_LONG;
   }
@@ -711,6 +878,13 @@ public strictfp class MathProcessor {
   }
 
 
+  private static BigDecimal asBigDecimal(Object in, NumericMode mode) {
+    if (mode.isFastDecimals() && (in instanceof Integer || in instanceof Long || in instanceof Short || in instanceof Byte)) {
+      return BigDecimal.valueOf(((Number) in).longValue());
+    }
+    return asBigDecimal(in);
+  }
+
   private static BigDecimal asBigDecimal(Object in) {
     if (in == null || in == BlankLiteral.INSTANCE) {
       return null;
@@ -727,4 +901,140 @@ public strictfp class MathProcessor {
 
     throw new RuntimeException("cannot convert <" + in + "> to a numeric type: " + in.getClass());
   }
+
+  private static final class IntOperation implements MathOperation {
+    private final int operation;
+
+    private IntOperation(int operation) {
+      this.operation = operation;
+    }
+
+    public Object doOperation(Object val1, Object val2) {
+      int i1 = (Integer) val1;
+      int i2 = (Integer) val2;
+      switch (operation) {
+        case ADD:
+          return i1 + i2;
+        case SUB:
+          return i1 - i2;
+        case MULT:
+          return i1 * i2;
+        case DIV:
+          return (double) i1 / i2;
+        case MOD:
+          return i1 % i2;
+        case LTHAN:
+          return i1 < i2;
+        case GTHAN:
+          return i1 > i2;
+        case LETHAN:
+          return i1 <= i2;
+        case GETHAN:
+          return i1 >= i2;
+        case EQUAL:
+          return i1 == i2;
+        case NEQUAL:
+          return i1 != i2;
+      }
+      return null;
+    }
+  }
+
+  private static final class LongOperation implements MathOperation {
+    private final int operation;
+
+    private LongOperation(int operation) {
+      this.operation = operation;
+    }
+
+    public Object doOperation(Object val1, Object val2) {
+      long l1 = (Long) val1;
+      long l2 = (Long) val2;
+      switch (operation) {
+        case ADD:
+          return l1 + l2;
+        case SUB:
+          return l1 - l2;
+        case MULT:
+          return l1 * l2;
+        case DIV:
+          return (double) l1 / (double) l2;
+        case MOD:
+          return l1 % l2;
+        case LTHAN:
+          return l1 < l2;
+        case GTHAN:
+          return l1 > l2;
+        case LETHAN:
+          return l1 <= l2;
+        case GETHAN:
+          return l1 >= l2;
+        case EQUAL:
+          return l1 == l2;
+        case NEQUAL:
+          return l1 != l2;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * An int and a long operand.
+   */
+  private static final class IntegralOperation implements MathOperation {
+    private final int operation;
+
+    private IntegralOperation(int operation) {
+      this.operation = operation;
+    }
+
+    public Object doOperation(Object val1, Object val2) {
+      Object result = doIntegralArithmetic(val1, operation, val2, true);
+      if (result != null) return result;
+      return doPrimWrapperArithmetic((Number) val1, operation, (Number) val2, DataTypes.W_LONG);
+    }
+  }
+
+  /**
+   * A double and a double, long or int operand.
+   */
+  private static final class DoubleOperation implements MathOperation {
+    private final int operation;
+
+    private DoubleOperation(int operation) {
+      this.operation = operation;
+    }
+
+    public Object doOperation(Object val1, Object val2) {
+      double d1 = ((Number) val1).doubleValue();
+      double d2 = ((Number) val2).doubleValue();
+      switch (operation) {
+        case ADD:
+          return d1 + d2;
+        case SUB:
+          return d1 - d2;
+        case MULT:
+          return d1 * d2;
+        case DIV:
+          return d1 / d2;
+        case MOD:
+          return d1 % d2;
+        case POWER:
+          return Math.pow(d1, d2);
+        case LTHAN:
+          return d1 < d2;
+        case GTHAN:
+          return d1 > d2;
+        case LETHAN:
+          return d1 <= d2;
+        case GETHAN:
+          return d1 >= d2;
+        case EQUAL:
+          return d1 == d2;
+        case NEQUAL:
+          return d1 != d2;
+      }
+      return null;
+    }
+  }
 }
@@ -0,0 +1,92 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.math;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.MathContext;
+
+/**
+ * How the {@link MathProcessor} carries out decimal arithmetic, set per {@link org.mvel2.ParserConfiguration}.
+ * <p>
+ * The default mode rounds every <tt>BigDecimal</tt> result to {@link MathContext#DECIMAL128}, and converts the
+ * other numeric operand of a decimal operation through a <tt>double</tt>.
+ * <p>
+ * The fast decimal mode is meant for money-like rules.  {@link #FAST_DECIMAL} rounds to the 16 digits of
+ * {@link MathContext#DECIMAL64}, and a fast decimal mode may not round to more than 18 digits, so that a rounded
+ * result always fits the scaled long held by a compact <tt>BigDecimal</tt>; the rare results which need more digits
+ * before rounding transparently fall back to arbitrary precision.  Integral operands are converted exactly and keep
+ * their scale of 0, so that <tt>19.99B * 3</tt> is <tt>59.97</tt> rather than <tt>59.970</tt>, and an integral left
+ * operand of a decimal operation takes part in decimal rather than in double arithmetic.
+ */
+public final class NumericMode implements Serializable {
+  public static final NumericMode DEFAULT = new NumericMode(MathContext.DECIMAL128, false);
+
+  public static final NumericMode FAST_DECIMAL = new NumericMode(MathContext.DECIMAL64, true);
+
+  private static final int MAX_FAST_PRECISION = 18;
+
+  private final MathContext mathContext;
+  private final boolean fastDecimals;
+
+  public NumericMode(MathContext mathContext) {
+    this(mathContext, false);
+  }
+
+  public NumericMode(MathContext mathContext, boolean fastDecimals) {
+    if (mathContext == null) {
+      throw new IllegalArgumentException("mathContext must not be null");
+    }
+    if (fastDecimals && (mathContext.getPrecision() == 0 || mathContext.getPrecision() > MAX_FAST_PRECISION)) {
+      throw new IllegalArgumentException("fast decimal arithmetic needs a precision of 1 to " + MAX_FAST_PRECISION
+          + " digits: " + mathContext);
+    }
+    this.mathContext = mathContext;
+    this.fastDecimals = fastDecimals;
+  }
+
+  public MathContext getMathContext() {
+    return mathContext;
+  }
+
+  public boolean isFastDecimals() {
+    return fastDecimals;
+  }
+
+  private Object readResolve() throws ObjectStreamException {
+    if (equals(DEFAULT)) return DEFAULT;
+    if (equals(FAST_DECIMAL)) return FAST_DECIMAL;
+    return this;
+  }
+
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof NumericMode)) return false;
+
+    NumericMode that = (NumericMode) o;
+    return fastDecimals == that.fastDecimals && mathContext.equals(that.mathContext);
+  }
+
+  public int hashCode() {
+    return 31 * mathContext.hashCode() + (fastDecimals ? 1 : 0);
+  }
+
+  public String toString() {
+    return (fastDecimals ? "fast decimal " : "") + mathContext;
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.dynamic;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+
+/**
+ * Compiles the JIT accessors of the {@link DynamicOptimizer} off the request thread.  Accessors reaching the
+ * tenuring threshold are queued, and keep running through their reflective accessor until the compiled one is
+ * swapped in.
+ * <p>
+ * The number of pending compilations is bounded: when the queue is full, the accessor simply stays on its
+ * reflective accessor and will be queued again the next time it reaches the threshold.
+ * <p>
+ * Since the JIT generates an accessor by running it, the bytecode is generated on the thread which reached the
+ * threshold, as part of that evaluation.  Only defining and instantiating the class is done in the background, so
+ * that nothing of the expression, such as a getter, ever runs concurrently with the caller.
+ */
+public class BackgroundCompiler {
+  private final Executor executor;
+  private final int maxPending;
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong compiled = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong totalCompileTime = new AtomicLong();
+  private final AtomicLong maxCompileTime = new AtomicLong();
+
+  /**
+   * Creates a background compiler running on the specified executor.
+   *
+   * @param executor   the executor running the compilations
+   * @param maxPending the maximum number of compilations queued or running at any time
+   */
+  public BackgroundCompiler(Executor executor, int maxPending) {
+    if (executor == null) throw new IllegalArgumentException("executor");
+    if (maxPending < 1) throw new IllegalArgumentException("maxPending: " + maxPending);
+    this.executor = executor;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Creates a background compiler running on a single daemon thread.
+   */
+  public static BackgroundCompiler newSingleThreadCompiler(int maxPending) {
+    ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "mvel-jit-compiler");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    return new BackgroundCompiler(executor, maxPending);
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Queues the compilation of the accessor.
+   *
+   * @return false if the queue is full, in which case nothing was queued.
+   */
+  boolean submit(final DynamicGetAccessor accessor, final int generation, final ASMAccessorOptimizer generated) {
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+
+    try {
+      executor.execute(new Runnable() {
+        public void run() {
+          long time = System.nanoTime();
+          try {
+            accessor.install(generated.loadAccessor(), generation);
+            compiled.incrementAndGet();
+          }
+          catch (Throwable e) {
+            // the accessor stays on its reflective accessor.
+            failed.incrementAndGet();
+          }
+          finally {
+            record(System.nanoTime() - time);
+            pending.decrementAndGet();
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      pending.decrementAndGet();
+      rejected.incrementAndGet();
+      return false;
+    }
+
+    submitted.incrementAndGet();
+    return true;
+  }
+
+  private void record(long time) {
+    totalCompileTime.addAndGet(time);
+    long max;
+    while (time > (max = maxCompileTime.get()) && !maxCompileTime.compareAndSet(max, time)) ;
+  }
+
+  /**
+   * @return the number of compilations currently queued or running.
+   */
+  public int getQueueDepth() {
+    return pending.get();
+  }
+
+  public int getMaxPending() {
+    return maxPending;
+  }
+
+  public long getSubmittedCount() {
+    return submitted.get();
+  }
+
+  public long getCompiledCount() {
+    return compiled.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * @return the number of compilations which were not queued because the queue was full.
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * @return the average compile time in nanoseconds.
+   */
+  public long getAverageCompileTime() {
+    long count = compiled.get() + failed.get();
+    return count == 0 ? 0 : totalCompileTime.get() / count;
+  }
+
+  /**
+   * @return the longest compile time in nanoseconds.
+   */
+  public long getMaxCompileTime() {
+    return maxCompileTime.get();
+  }
+
+  public String toString() {
+    return "BackgroundCompiler[queueDepth=" + getQueueDepth() + "; submitted=" + getSubmittedCount()
+        + "; compiled=" + getCompiledCount() + "; failed=" + getFailedCount() + "; rejected=" + getRejectedCount()
+        + "; avgCompileTime=" + getAverageCompileTime() + "ns; maxCompileTime=" + getMaxCompileTime() + "ns]";
+  }
+}
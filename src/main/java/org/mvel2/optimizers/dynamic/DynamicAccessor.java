@@ -22,4 +22,14 @@ import org.mvel2.compiler.Accessor;
 
 public interface DynamicAccessor extends Accessor {
   public void deoptimize();
+
+  /**
+   * @return the number of times the accessor ran since it was created, deoptimized, or found too cold to JIT.
+   */
+  public int getRuncount();
+
+  /**
+   * @return the time the accessor was last used, sampled every few runs once it is optimized.
+   */
+  public long getStamp();
 }
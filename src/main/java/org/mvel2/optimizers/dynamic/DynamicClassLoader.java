@@ -20,52 +20,166 @@ package org.mvel2.optimizers.dynamic;
 
 import org.mvel2.util.MVELClassLoader;
 
-import java.util.LinkedList;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
+/**
+ * The class loader of the JIT accessors of the {@link DynamicOptimizer}, which also keeps track of the accessors
+ * so they can be deoptimized when too many have been registered.
+ * <p>
+ * The accessors are kept in a table of weak references, as large as the tenure limit.  Once it is full,
+ * registering an accessor overwrites, and deoptimizes, the one chosen by the {@link EvictionPolicy}: with
+ * {@link EvictionPolicy#FIFO} the table is a ring buffer, otherwise a few slots are sampled and the lowest scoring
+ * accessor is evicted.  Registration is lock-free, and accessors which are no longer in use are not retained.
+ */
 public class DynamicClassLoader extends ClassLoader implements MVELClassLoader {
-  private int totalClasses;
-  private int tenureLimit;
-  private final LinkedList<DynamicAccessor> allAccessors = new LinkedList<DynamicAccessor>();
+  private final AtomicInteger totalClasses = new AtomicInteger();
+  private final int tenureLimit;
+  private final AtomicReferenceArray<WeakReference<DynamicAccessor>> allAccessors;
+  private final AtomicLong cursor = new AtomicLong();
+  private final EvictionPolicy policy;
+  private volatile boolean retired;
+
+  private static final int SAMPLE_SIZE = 8;
 
   public DynamicClassLoader(ClassLoader classLoader, int tenureLimit) {
+    this(classLoader, tenureLimit, EvictionPolicy.FIFO);
+  }
+
+  public DynamicClassLoader(ClassLoader classLoader, int tenureLimit, EvictionPolicy policy) {
     super(classLoader);
     this.tenureLimit = tenureLimit;
+    this.policy = policy;
+    this.allAccessors = new AtomicReferenceArray<WeakReference<DynamicAccessor>>(Math.max(1, tenureLimit));
   }
 
   public Class defineClassX(String className, byte[] b, int start, int end) {
-    totalClasses++;
+    totalClasses.incrementAndGet();
     return super.defineClass(className, b, start, end);
   }
 
   public int getTotalClasses() {
-    return totalClasses;
+    return totalClasses.get();
   }
 
+  public EvictionPolicy getEvictionPolicy() {
+    return policy;
+  }
+
+  /**
+   * Registers the accessor, evicting another one if the table is full.  An accessor already registered keeps its
+   * slot, and evicts nothing.
+   *
+   * @return the accessor, or <tt>null</tt> if the eviction policy did not admit it.
+   */
   public DynamicAccessor registerDynamicAccessor(DynamicAccessor accessor) {
-    synchronized (allAccessors) {
-      allAccessors.add(accessor);
-      while (allAccessors.size() > tenureLimit) {
-        DynamicAccessor da = allAccessors.removeFirst();
-        if (da != null) {
-          da.deoptimize();
-        }
-      }
-      assert accessor != null;
+    assert accessor != null;
+    policy.recordAccess(accessor, accessor.getRuncount());
+    if (indexOf(accessor) != -1) {
+      return accessor;
+    }
+
+    WeakReference<DynamicAccessor> ref = new WeakReference<DynamicAccessor>(accessor);
+    int length = allAccessors.length();
+    long n = cursor.getAndIncrement();
+    if (!policy.isSampled() || n < length) {
+      deoptimize(allAccessors.getAndSet((int) (n % length), ref));
       return accessor;
     }
+
+    for (;;) {
+      int slot = sampleVictim();
+      WeakReference<DynamicAccessor> evicted = allAccessors.get(slot);
+      DynamicAccessor victim = evicted == null ? null : evicted.get();
+      if (victim != null && !policy.admit(accessor, victim)) {
+        return null;
+      }
+      if (allAccessors.compareAndSet(slot, evicted, ref)) {
+        deoptimize(evicted);
+        return accessor;
+      }
+    }
   }
 
-  public void deoptimizeAll() {
-    synchronized (allAccessors) {
-      for (DynamicAccessor a : allAccessors) {
-        if (a != null) a.deoptimize();
+  /**
+   * Removes the accessor, without deoptimizing it, when it is not going to be JIT compiled after all.
+   */
+  public void deregisterDynamicAccessor(DynamicAccessor accessor) {
+    int slot = indexOf(accessor);
+    if (slot != -1) {
+      WeakReference<DynamicAccessor> ref = allAccessors.get(slot);
+      if (ref != null && ref.get() == accessor) {
+        allAccessors.compareAndSet(slot, ref, null);
+      }
+    }
+  }
+
+  /**
+   * Finds the slot of an accessor.  This scans the table, which costs little next to generating the accessor's
+   * bytecode, and only happens when an accessor is about to be compiled.
+   */
+  private int indexOf(DynamicAccessor accessor) {
+    int filled = (int) Math.min(cursor.get(), allAccessors.length());
+    for (int i = 0; i < filled; i++) {
+      WeakReference<DynamicAccessor> ref = allAccessors.get(i);
+      if (ref != null && ref.get() == accessor) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int sampleVictim() {
+    int length = allAccessors.length();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    boolean scan = length <= SAMPLE_SIZE;
+
+    int victim = 0;
+    long lowest = Long.MAX_VALUE;
+    for (int i = 0; i < (scan ? length : SAMPLE_SIZE); i++) {
+      int slot = scan ? i : random.nextInt(length);
+      WeakReference<DynamicAccessor> ref = allAccessors.get(slot);
+      DynamicAccessor a = ref == null ? null : ref.get();
+      if (a == null) {
+        return slot;
+      }
+
+      long score = policy.score(a);
+      if (score < lowest) {
+        lowest = score;
+        victim = slot;
       }
-      allAccessors.clear();
     }
+    return victim;
+  }
+
+  private static void deoptimize(WeakReference<DynamicAccessor> ref) {
+    DynamicAccessor a = ref == null ? null : ref.get();
+    if (a != null) {
+      a.deoptimize();
+    }
+  }
+
+  public void deoptimizeAll() {
+    retired = true;
+    for (int i = 0; i < allAccessors.length(); i++) {
+      deoptimize(allAccessors.getAndSet(i, null));
+    }
+  }
+
+  /**
+   * @return true once {@link #deoptimizeAll()} has been called; accessors registered from then on may have been
+   * missed and must be registered with the loader replacing this one.
+   */
+  public boolean isRetired() {
+    return retired;
   }
 
   public boolean isOverloaded() {
-    return tenureLimit < totalClasses;
+    return tenureLimit < totalClasses.get();
   }
 }
@@ -62,16 +62,21 @@ public class DynamicCollectionAccessor implements DynamicAccessor {
     if (!opt) {
       if (++runcount > DynamicOptimizer.tenuringThreshold) {
         if ((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
-          opt = true;
-
-          return optimize(pCtx, ctx, elCtx, variableFactory);
+          if (DynamicOptimizer.admit(this)) {
+            opt = true;
+            return optimize(pCtx, ctx, elCtx, variableFactory);
+          }
         }
         else {
-          runcount = 0;
-          stamp = currentTimeMillis();
+          DynamicOptimizer.recordUse(this, runcount);
         }
+        runcount = 0;
+        stamp = currentTimeMillis();
       }
     }
+    else if ((++runcount & 63) == 0) {
+      touch();
+    }
 
     return _accessor.getValue(ctx, elCtx, variableFactory);
   }
@@ -93,6 +98,12 @@ public class DynamicCollectionAccessor implements DynamicAccessor {
   }
 
 
+  private void touch() {
+    if (runcount < 0) runcount = Integer.MAX_VALUE >> 1;
+    stamp = currentTimeMillis();
+    DynamicOptimizer.recordUse(this, 64);
+  }
+
   public void deoptimize() {
     this._accessor = this._safeAccessor;
     opt = false;
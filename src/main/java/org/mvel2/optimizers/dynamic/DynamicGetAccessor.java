@@ -24,6 +24,8 @@ import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.optimizers.AccessorOptimizer;
 import org.mvel2.optimizers.OptimizationNotSupported;
 import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+import org.mvel2.optimizers.impl.asm.BytecodeCache;
 
 import static java.lang.System.currentTimeMillis;
 
@@ -42,7 +44,8 @@ public class DynamicGetAccessor implements DynamicAccessor {
   private ParserContext pCtx;
 
   private Accessor _safeAccessor;
-  private Accessor _accessor;
+  private volatile Accessor _accessor;
+  private int generation;
 
   public DynamicGetAccessor(ParserContext pCtx, char[] expr, int start, int offset, int type, Accessor _accessor) {
     this._safeAccessor = this._accessor = _accessor;
@@ -61,23 +64,80 @@ public class DynamicGetAccessor implements DynamicAccessor {
       if (++runcount > DynamicOptimizer.tenuringThreshold) {
         if ((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
           opt = true;
-          try{
-            return optimize(ctx, elCtx, variableFactory);
+          BackgroundCompiler compiler = DynamicOptimizer.getBackgroundCompiler();
+          if (!DynamicOptimizer.admit(this)) {
+            // hotter accessors hold the JIT; try again next time the threshold is reached.
+            retry();
           }
-          catch(OptimizationNotSupported ex){
-        	  // If optimization fails then, rather than fail evaluation, fallback to use safe reflective accessor
+          else if (compiler != null && type == DynamicOptimizer.REGULAR_ACCESSOR) {
+            try {
+              ASMAccessorOptimizer ao = generate(ctx, elCtx, variableFactory);
+              if (!compiler.submit(this, generation, ao)) {
+                // the queue is full; try again next time the threshold is reached.
+                DynamicOptimizer.withdraw(this);
+                retry();
+              }
+              return ao.getResultOptPass();
+            }
+            catch (OptimizationNotSupported ex) {
+              // fallback to the safe reflective accessor.
+            }
+          }
+          else {
+            try{
+              return optimize(ctx, elCtx, variableFactory);
+            }
+            catch(OptimizationNotSupported ex){
+          	  // If optimization fails then, rather than fail evaluation, fallback to use safe reflective accessor
+            }
           }
         }
         else {
+          DynamicOptimizer.recordUse(this, runcount);
           runcount = 0;
           stamp = currentTimeMillis();
         }
       }
+      else if (runcount == 1 && type == DynamicOptimizer.REGULAR_ACCESSOR && isPersisted(ctx, elCtx, variableFactory)
+          && DynamicOptimizer.admit(this)) {
+        // generated by an earlier run: loading it is cheap enough not to wait for the accessor to tenure.
+        opt = true;
+        try {
+          return optimize(ctx, elCtx, variableFactory);
+        }
+        catch (OptimizationNotSupported ex) {
+          // fallback to the safe reflective accessor.
+        }
+      }
+    }
+    else if ((++runcount & 63) == 0) {
+      touch();
     }
 
     return _accessor.getValue(ctx, elCtx, variableFactory);
   }
 
+  private boolean isPersisted(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+    BytecodeCache cache = ASMAccessorOptimizer.getBytecodeCache();
+    return cache != null
+        && cache.contains(BytecodeCache.key("get", expr, start, offset, ctx, elCtx, variableFactory, pCtx));
+  }
+
+  private void retry() {
+    opt = false;
+    runcount = 0;
+    stamp = currentTimeMillis();
+  }
+
+  /**
+   * Keeps the usage seen by the eviction policy current, without reading the clock on every run.
+   */
+  private void touch() {
+    if (runcount < 0) runcount = Integer.MAX_VALUE >> 1;
+    stamp = currentTimeMillis();
+    DynamicOptimizer.recordUse(this, 64);
+  }
+
   public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
     runcount++;
     return _accessor.setValue(ctx, elCtx, variableFactory, value);
@@ -104,7 +164,31 @@ public class DynamicGetAccessor implements DynamicAccessor {
     return null;
   }
 
-  public void deoptimize() {
+  /**
+   * Generates the accessor for the {@link BackgroundCompiler} on the calling thread, which also evaluates it; only
+   * loading the generated class is left to the background.
+   */
+  private ASMAccessorOptimizer generate(Object ctx, Object elCtx, VariableResolverFactory variableResolverFactory) {
+    if (DynamicOptimizer.isOverloaded()) {
+      DynamicOptimizer.enforceTenureLimit();
+    }
+
+    ASMAccessorOptimizer ao = (ASMAccessorOptimizer) OptimizerFactory.getAccessorCompiler("ASM");
+    ao.generateAccessor(pCtx, expr, start, offset, ctx, elCtx, variableResolverFactory);
+    return ao;
+  }
+
+  /**
+   * Swaps in the accessor compiled in the background, unless the accessor has been deoptimized in the meantime.
+   */
+  synchronized void install(Accessor accessor, int generation) {
+    if (accessor != null && generation == this.generation) {
+      this._accessor = accessor;
+    }
+  }
+
+  public synchronized void deoptimize() {
+    generation++;
     this._accessor = this._safeAccessor;
     opt = false;
     runcount = 0;
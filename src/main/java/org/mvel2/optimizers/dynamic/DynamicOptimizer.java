@@ -25,9 +25,8 @@ import org.mvel2.integration.VariableResolverFactory;
 import org.mvel2.optimizers.AbstractOptimizer;
 import org.mvel2.optimizers.AccessorOptimizer;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Thread.currentThread;
 import static org.mvel2.optimizers.OptimizerFactory.SAFE_REFLECTIVE;
@@ -38,98 +37,170 @@ public class DynamicOptimizer extends AbstractOptimizer implements AccessorOptim
   private AccessorOptimizer firstStage = getAccessorCompiler(SAFE_REFLECTIVE);
 
   private static final Object oLock = new Object();
-  private volatile static DynamicClassLoader classLoader;
+  private static final AtomicReference<DynamicClassLoader> classLoader = new AtomicReference<DynamicClassLoader>();
   public static int tenuringThreshold = 50;
   public static long timeSpan = 100;
   public static int maximumTenure = 1500;
+  /**
+   * @deprecated not safely published across threads, and wraps past <tt>Integer.MAX_VALUE</tt>; use
+   *             {@link #getTotalRecycled()}.
+   */
+  @Deprecated
   public static int totalRecycled = 0;
+  private static final AtomicLong recycled = new AtomicLong();
   private static volatile boolean useSafeClassloading = false;
-  private static ReadWriteLock lock = new ReentrantReadWriteLock();
-  private static Lock readLock = lock.readLock();
-  private static Lock writeLock = lock.writeLock();
+  private static volatile BackgroundCompiler backgroundCompiler;
+  private static volatile EvictionPolicy evictionPolicy = EvictionPolicy.FIFO;
+
+  static {
+    String policy = System.getProperty("mvel2.dynamic.eviction");
+    if (policy != null) {
+      evictionPolicy = EvictionPolicy.forName(policy);
+    }
+    if (Boolean.getBoolean("mvel2.dynamic.background_jit")) {
+      backgroundCompiler = BackgroundCompiler.newSingleThreadCompiler(
+          Integer.getInteger("mvel2.dynamic.background_jit.max_pending", 1000));
+    }
+  }
 
   public void init() {
     _init();
   }
 
+  /**
+   * Sets the compiler used to JIT accessors off the request thread, or <tt>null</tt> to compile them inline.
+   */
+  public static void setBackgroundCompiler(BackgroundCompiler compiler) {
+    backgroundCompiler = compiler;
+  }
+
+  public static BackgroundCompiler getBackgroundCompiler() {
+    return backgroundCompiler;
+  }
+
+  /**
+   * Sets the policy choosing which JIT compiled accessors drop back to reflection once <tt>maximumTenure</tt>
+   * accessors have been compiled.  The accessors compiled so far are deoptimized.
+   */
+  public static void setEvictionPolicy(EvictionPolicy policy) {
+    if (policy == null) throw new IllegalArgumentException("policy");
+    evictionPolicy = policy;
+    DynamicClassLoader current = classLoader.get();
+    if (current != null) {
+      recycle(current);
+    }
+  }
+
+  public static EvictionPolicy getEvictionPolicy() {
+    return evictionPolicy;
+  }
+
+  /**
+   * @return the number of classes dropped by recycling the class loader so far.
+   */
+  public static long getTotalRecycled() {
+    return recycled.get();
+  }
+
+  private static DynamicClassLoader newClassLoader() {
+    return new DynamicClassLoader(currentThread().getContextClassLoader(), maximumTenure, evictionPolicy);
+  }
+
   private static void _init() {
-    setMVELClassLoader(classLoader = new DynamicClassLoader(currentThread().getContextClassLoader(), maximumTenure));
+    DynamicClassLoader cl = newClassLoader();
+    classLoader.set(cl);
+    setMVELClassLoader(cl);
   }
 
+  /**
+   * Replaces the class loader once it holds too many classes, deoptimizing the accessors it JIT compiled.  Only
+   * the thread winning the swap recycles the old loader; the others carry on with the new one.
+   */
   public static void enforceTenureLimit() {
-    writeLock.lock();
-    try{
-  	  if (classLoader.isOverloaded()) {
-        classLoader.deoptimizeAll();
-        totalRecycled = +classLoader.getTotalClasses();
-        _init();
+    DynamicClassLoader current = classLoader.get();
+    if (current.isOverloaded()) {
+      recycle(current);
+    }
+  }
+
+  private static void recycle(DynamicClassLoader current) {
+    DynamicClassLoader next = newClassLoader();
+    if (classLoader.compareAndSet(current, next)) {
+      setMVELClassLoader(next);
+      current.deoptimizeAll();
+      totalRecycled = (int) recycled.addAndGet(current.getTotalClasses());
+    }
+  }
+
+  /**
+   * Registers an accessor about to be JIT compiled with the current class loader, registering it again if that
+   * loader got retired in the meantime, so no accessor escapes the next recycling.
+   *
+   * @return false if the eviction policy did not admit the accessor, which must then stay reflective.
+   */
+  static boolean admit(DynamicAccessor accessor) {
+    DynamicClassLoader cl = classLoader.get();
+    if (cl.registerDynamicAccessor(accessor) == null) {
+      return false;
+    }
+    while (cl.isRetired() && cl != classLoader.get()) {
+      if ((cl = classLoader.get()).registerDynamicAccessor(accessor) == null) {
+        return false;
       }
     }
-	  finally{
-	    writeLock.unlock();
-	  }
+    return true;
+  }
+
+  /**
+   * Withdraws an admitted accessor which is not going to be JIT compiled after all, so that it does not hold a slot
+   * of the current class loader.
+   */
+  static void withdraw(DynamicAccessor accessor) {
+    classLoader.get().deregisterDynamicAccessor(accessor);
+  }
+
+  /**
+   * Reports the uses of an accessor to the eviction policy.
+   */
+  static void recordUse(DynamicAccessor accessor, int uses) {
+    evictionPolicy.recordAccess(accessor, uses);
   }
 
   public static final int REGULAR_ACCESSOR = 0;
 
   public Accessor optimizeAccessor(ParserContext pCtx, char[] property, int start, int offset, Object ctx, Object thisRef,
                                    VariableResolverFactory factory, boolean rootThisRef, Class ingressType) {
-    readLock.lock();
-    try{
-      pCtx.optimizationNotify();
-      return classLoader.registerDynamicAccessor(new DynamicGetAccessor(pCtx, property, start, offset, 0,
-          firstStage.optimizeAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, ingressType)));
-    }
-    finally{
-      readLock.unlock();
-    }
+    pCtx.optimizationNotify();
+    return new DynamicGetAccessor(pCtx, property, start, offset, 0,
+        firstStage.optimizeAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, ingressType));
   }
 
   public static final int SET_ACCESSOR = 1;
 
   public Accessor optimizeSetAccessor(ParserContext pCtx, char[] property, int start, int offset, Object ctx, Object thisRef,
                                       VariableResolverFactory factory, boolean rootThisRef, Object value, Class valueType) {
-
-    readLock.lock();
-    try{
-      return classLoader.registerDynamicAccessor(new DynamicSetAccessor(pCtx, property, start, offset,
-          firstStage.optimizeSetAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, value, valueType)));
-    }
-    finally{
-      readLock.unlock();
-    }
+    return new DynamicSetAccessor(pCtx, property, start, offset,
+        firstStage.optimizeSetAccessor(pCtx, property, start, offset, ctx, thisRef, factory, rootThisRef, value, valueType));
   }
 
   public static final int COLLECTION = 2;
 
   public Accessor optimizeCollection(ParserContext pCtx, Object rootObject, Class type, char[] property, int start,
                                      int offset, Object ctx, Object thisRef, VariableResolverFactory factory) {
-    readLock.lock();
-    try{
-      return classLoader.registerDynamicAccessor(new DynamicCollectionAccessor(pCtx, rootObject, type, property, start, offset, 2,
-          firstStage.optimizeCollection(pCtx, rootObject, type, property, start, offset, ctx, thisRef, factory)));
-    }
-    finally{
-      readLock.unlock();
-    }
+    return new DynamicCollectionAccessor(pCtx, rootObject, type, property, start, offset, 2,
+        firstStage.optimizeCollection(pCtx, rootObject, type, property, start, offset, ctx, thisRef, factory));
   }
 
   public static final int OBJ_CREATION = 3;
 
   public Accessor optimizeObjectCreation(ParserContext pCtx, char[] property, int start, int offset,
                                          Object ctx, Object thisRef, VariableResolverFactory factory) {
-    readLock.lock();
-    try{
-      return classLoader.registerDynamicAccessor(new DynamicGetAccessor(pCtx, property, start, offset, 3,
-          firstStage.optimizeObjectCreation(pCtx, property, start, offset, ctx, thisRef, factory)));
-    }
-    finally{
-      readLock.unlock();
-    }
+    return new DynamicGetAccessor(pCtx, property, start, offset, 3,
+        firstStage.optimizeObjectCreation(pCtx, property, start, offset, ctx, thisRef, factory));
   }
 
   public static boolean isOverloaded() {
-    return classLoader.isOverloaded();
+    return classLoader.get().isOverloaded();
   }
 
   public Object getResultOptPass() {
@@ -56,15 +56,21 @@ public class DynamicSetAccessor implements DynamicAccessor {
     if (!opt) {
       if (++runcount > DynamicOptimizer.tenuringThreshold) {
         if ((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
-          opt = true;
-          return optimize(ctx, elCtx, variableFactory, value);
+          if (DynamicOptimizer.admit(this)) {
+            opt = true;
+            return optimize(ctx, elCtx, variableFactory, value);
+          }
         }
         else {
-          runcount = 0;
-          stamp = currentTimeMillis();
+          DynamicOptimizer.recordUse(this, runcount);
         }
+        runcount = 0;
+        stamp = currentTimeMillis();
       }
     }
+    else if ((++runcount & 63) == 0) {
+      touch();
+    }
 
     _accessor.setValue(ctx, elCtx, variableFactory, value);
     return value;
@@ -87,6 +93,12 @@ public class DynamicSetAccessor implements DynamicAccessor {
     return value;
   }
 
+  private void touch() {
+    if (runcount < 0) runcount = Integer.MAX_VALUE >> 1;
+    stamp = currentTimeMillis();
+    DynamicOptimizer.recordUse(this, 64);
+  }
+
   public void deoptimize() {
     this._accessor = this._safeAccessor;
     opt = false;
@@ -94,6 +106,14 @@ public class DynamicSetAccessor implements DynamicAccessor {
     stamp = currentTimeMillis();
   }
 
+  public long getStamp() {
+    return stamp;
+  }
+
+  public int getRuncount() {
+    return runcount;
+  }
+
   public String getDescription() {
     return description;
   }
@@ -0,0 +1,184 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.dynamic;
+
+/**
+ * Decides which JIT compiled accessor of the {@link DynamicOptimizer} drops back to its reflective accessor when
+ * the tenure limit is reached.
+ * <p>
+ * Except for {@link #FIFO}, the {@link DynamicClassLoader} samples a few of the registered accessors and evicts the
+ * one with the lowest {@link #score(DynamicAccessor) score}; the policy may also refuse to admit a new accessor
+ * which is not worth the one it would evict, in which case the new accessor stays reflective for now.
+ */
+public abstract class EvictionPolicy {
+
+  /**
+   * Evicts the accessor compiled first, regardless of its use.
+   */
+  public static final EvictionPolicy FIFO = new EvictionPolicy() {
+    protected boolean isSampled() {
+      return false;
+    }
+
+    protected long score(DynamicAccessor accessor) {
+      return 0;
+    }
+
+    public String toString() {
+      return "fifo";
+    }
+  };
+
+  /**
+   * Evicts the accessor used least recently.
+   */
+  public static final EvictionPolicy LRU = new EvictionPolicy() {
+    protected long score(DynamicAccessor accessor) {
+      return accessor.getStamp();
+    }
+
+    public String toString() {
+      return "lru";
+    }
+  };
+
+  /**
+   * Evicts the accessor used least often.
+   */
+  public static final EvictionPolicy LFU = new EvictionPolicy() {
+    protected long score(DynamicAccessor accessor) {
+      return accessor.getRuncount();
+    }
+
+    public String toString() {
+      return "lfu";
+    }
+  };
+
+  /**
+   * Evicts the accessor used least recently, but only to make room for an accessor used more often, as estimated
+   * by a TinyLFU frequency sketch, so a burst of accessors used only once does not flush the hot ones.
+   *
+   * @param capacity the number of accessors whose frequency is tracked; usually the tenure limit.
+   */
+  public static EvictionPolicy tinyLfu(int capacity) {
+    return new TinyLfu(capacity);
+  }
+
+  /**
+   * @param name one of <tt>fifo</tt>, <tt>lru</tt>, <tt>lfu</tt> or <tt>tinylfu</tt>.
+   */
+  public static EvictionPolicy forName(String name) {
+    if ("fifo".equalsIgnoreCase(name)) return FIFO;
+    if ("lru".equalsIgnoreCase(name)) return LRU;
+    if ("lfu".equalsIgnoreCase(name)) return LFU;
+    if ("tinylfu".equalsIgnoreCase(name)) return tinyLfu(DynamicOptimizer.maximumTenure);
+    throw new IllegalArgumentException("unknown eviction policy: " + name);
+  }
+
+  /**
+   * @return false if the accessors are evicted in registration order rather than by score.
+   */
+  protected boolean isSampled() {
+    return true;
+  }
+
+  /**
+   * @return the score of the accessor; the lowest scoring of the sampled accessors is evicted.
+   */
+  protected abstract long score(DynamicAccessor accessor);
+
+  /**
+   * @return true if the candidate may take the place of the victim.
+   */
+  protected boolean admit(DynamicAccessor candidate, DynamicAccessor victim) {
+    return true;
+  }
+
+  /**
+   * Reports the uses of an accessor since its previous report: when it asks to be compiled or fails to tenure,
+   * and every 64 runs while it runs compiled, so that every use is counted once whatever the state of the accessor.
+   */
+  protected void recordAccess(DynamicAccessor accessor, int uses) {
+  }
+
+  /**
+   * A count-min sketch of the uses of the accessors, halved periodically so past popularity fades.  The counters
+   * are updated without synchronization: a lost update merely makes an estimate slightly lower.
+   */
+  private static final class TinyLfu extends EvictionPolicy {
+    private static final int MAX_COUNT = 0xFFFF;
+    private static final int[] SEEDS = {0x97cb3127, 0xb7abbd07, 0x5d1f0f6b, 0x2f8d6b8b};
+
+    private final int[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    TinyLfu(int capacity) {
+      int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+      this.table = new int[width * SEEDS.length];
+      this.mask = width - 1;
+      this.sampleSize = width * 10 * 64;
+    }
+
+    protected long score(DynamicAccessor accessor) {
+      return accessor.getStamp();
+    }
+
+    protected boolean admit(DynamicAccessor candidate, DynamicAccessor victim) {
+      return frequency(candidate) > frequency(victim);
+    }
+
+    protected void recordAccess(DynamicAccessor accessor, int uses) {
+      if (uses <= 0) return;
+      uses = Math.min(uses, MAX_COUNT);
+      int hash = System.identityHashCode(accessor);
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = index(hash, i);
+        table[index] = Math.min(MAX_COUNT, table[index] + uses);
+      }
+
+      if ((additions += uses) >= sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] >>>= 1;
+        }
+        additions = 0;
+      }
+    }
+
+    int frequency(DynamicAccessor accessor) {
+      int hash = System.identityHashCode(accessor);
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < SEEDS.length; i++) {
+        frequency = Math.min(frequency, table[index(hash, i)]);
+      }
+      return frequency;
+    }
+
+    private int index(int hash, int i) {
+      int h = hash * SEEDS[i];
+      h ^= h >>> 17;
+      return i * (mask + 1) + (h & mask);
+    }
+
+    public String toString() {
+      return "tinylfu";
+    }
+  }
+}
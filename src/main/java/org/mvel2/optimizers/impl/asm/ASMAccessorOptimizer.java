@@ -17,6 +17,7 @@
  */
 package org.mvel2.optimizers.impl.asm;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Array;
@@ -58,6 +59,7 @@ import org.mvel2.optimizers.AccessorOptimizer;
 import org.mvel2.optimizers.OptimizationNotSupported;
 import org.mvel2.optimizers.impl.refl.nodes.Union;
 import org.mvel2.util.JITClassLoader;
+import org.mvel2.util.HiddenClassDefiner;
 import org.mvel2.util.MVELClassLoader;
 import org.mvel2.util.MethodStub;
 import org.mvel2.util.NullType;
@@ -200,8 +202,13 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
     String jitListImpl = getProperty("mvel2.jit.list_impl");
     if (jitListImpl == null) LIST_IMPL = NAMESPACE + "util/FastList";
     else LIST_IMPL = jitListImpl;
+
+    String bytecodeCacheDir = getProperty("mvel2.jit.bytecode_cache");
+    if (bytecodeCacheDir != null) bytecodeCache = new BytecodeCache(new File(bytecodeCacheDir));
   }
 
+  private static volatile BytecodeCache bytecodeCache;
+
   private Object ctx;
   private Object thisRef;
 
@@ -213,6 +220,7 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
   private boolean first = true;
   private boolean noinit = false;
   private boolean deferFinish = false;
+  private boolean deferLoad = false;
   private boolean literal = false;
 
   private boolean propNull = false;
@@ -229,6 +237,11 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
   private ArrayList<ExecutableStatement> compiledInputs;
 
+  private String cacheKey;
+  private String deferredCacheKey;
+  private ClassLoader cacheClassLoader;
+  private Accessor generated;
+
   private Class ingressType;
   private Class returnType;
 
@@ -341,8 +354,107 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
     this.variableFactory = factory;
     this.ingressType = ingressType;
 
-    if (!noinit) _initJIT();
-    return compileAccessor();
+    if (!noinit) {
+      BytecodeCache cache = bytecodeCache;
+      if (cache != null && (cacheKey = BytecodeCache.key("get", property, start, offset, staticContext, thisRef,
+          factory, pCtx)) != null) {
+        Accessor cached = loadCachedAccessor(cache);
+        if (cached != null) return cached;
+      }
+      _initJIT();
+    }
+
+    try {
+      return compileAccessor();
+    }
+    finally {
+      cacheKey = null;
+    }
+  }
+
+  /**
+   * Generates the accessor as {@link #optimizeAccessor} does, running it on the calling thread for the result of the
+   * optimizing pass, but leaves defining and instantiating its class to {@link #loadAccessor()}.  Since that runs
+   * nothing of the expression, it may be called on another thread.
+   */
+  public void generateAccessor(ParserContext pCtx, char[] property, int start, int offset, Object staticContext,
+                               Object thisRef, VariableResolverFactory factory) {
+    deferLoad = true;
+    try {
+      generated = optimizeAccessor(pCtx, property, start, offset, staticContext, thisRef, factory, false, null);
+    }
+    finally {
+      deferLoad = false;
+    }
+  }
+
+  /**
+   * Loads the accessor generated by {@link #generateAccessor}.
+   */
+  public Accessor loadAccessor() {
+    if (generated != null) {
+      return generated;
+    }
+
+    try {
+      cacheKey = deferredCacheKey;
+      return generated = _initializeAccessor();
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new RuntimeException("unable to load accessor: " + new String(expr, start, length), e);
+    }
+    finally {
+      cacheKey = null;
+    }
+  }
+
+  /**
+   * Loads the accessor stored in the bytecode cache, and runs it for the result of the optimizing pass.
+   *
+   * @return the accessor, or <tt>null</tt> if it is not cached or was generated for other types.
+   */
+  private Accessor loadCachedAccessor(BytecodeCache cache) {
+    String name = "ASMAccessorImpl_" + valueOf(System.identityHashCode(this)) + (System.currentTimeMillis() / 10) +
+        ((int) (Math.random() * 100));
+
+    byte[] b = cache.load(cacheKey, name, getCacheClassLoader());
+    if (b == null) {
+      return null;
+    }
+
+    Accessor accessor;
+    try {
+      accessor = (Accessor) loadClass(name, b).newInstance();
+    }
+    catch (Exception e) {
+      return null;
+    }
+
+    try {
+      val = accessor.getValue(ctx, thisRef, variableFactory);
+    }
+    catch (ClassCastException e) {
+      return null;
+    }
+
+    assert debug("[MVEL JIT Loaded Cached Accessor <<" + new String(expr, start, length) + ">>]");
+    return accessor;
+  }
+
+  private ClassLoader getCacheClassLoader() {
+    if (cacheClassLoader != null) return cacheClassLoader;
+    return pCtx != null ? pCtx.getClassLoader() : currentThread().getContextClassLoader();
+  }
+
+  public static void setBytecodeCache(BytecodeCache cache) {
+    bytecodeCache = cache;
+  }
+
+  public static BytecodeCache getBytecodeCache() {
+    return bytecodeCache;
   }
 
   public Accessor optimizeSetAccessor(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
@@ -808,10 +920,18 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
     if (deferFinish) {
       return null;
     }
+    else if (deferLoad) {
+      // keep what the load needs past optimizeAccessor(), which resets the key.
+      deferLoad = false;
+      deferredCacheKey = cacheKey;
+      cacheClassLoader = getCacheClassLoader();
+      return null;
+    }
     /**
      * Hot load the class we just generated.
      */
-    Class cls = loadClass(className, cw.toByteArray());
+    byte[] b = cw.toByteArray();
+    Class cls = loadClass(className, b);
 
     assert debug("[MVEL JIT Completed Optimization <<" + (expr != null ? new String(expr) : "") + ">>]::" + cls
         + " (time: " + (System.currentTimeMillis() - time) + "ms)");
@@ -833,6 +953,11 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
       if (propNull) cls.getField("nullPropertyHandler").set(o, getNullPropertyHandler());
       if (methNull) cls.getField("nullMethodHandler").set(o, getNullMethodHandler());
 
+      BytecodeCache cache = bytecodeCache;
+      if (cache != null && cacheKey != null && compiledInputs.size() == 0 && !propNull && !methNull) {
+        cache.store(cacheKey, b, getCacheClassLoader());
+      }
+
     }
     catch (VerifyError e) {
       System.out.println("**** COMPILER BUG! REPORT THIS IMMEDIATELY AT http://jira.codehaus.org/browse/MVEL");
@@ -1133,7 +1258,7 @@ public class ASMAccessorOptimizer extends AbstractOptimizer implements AccessorO
         if (variableFactory.isIndexedFactory() && variableFactory.isTarget(property)) {
           int idx;
           try {
-            loadVariableByIndex(idx = variableFactory.variableIndexOf(property));
+            loadVariableByIndex(idx = variableFactory.variableIndexOf(property), property);
           }
           catch (Exception e) {
             throw new OptimizationFailure(property);
@@ -1899,7 +2024,7 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
         }
 
         if (variableFactory.isIndexedFactory() && variableFactory.isTarget(name)) {
-          loadVariableByIndex(variableFactory.variableIndexOf(name));
+          loadVariableByIndex(variableFactory.variableIndexOf(name), name);
         }
         else {
           loadVariableByName(name);
@@ -2012,7 +2137,7 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
 
     if (es != null) {
       for (ExecutableStatement e : es) {
-        if (e instanceof ExecutableLiteral) {
+        if (isBytecodeLiteral(e)) {
           continue;
         }
 
@@ -2106,7 +2231,7 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
 
 
         for (int i = 0; es != null && i < es.length; i++) {
-          if (es[i] instanceof ExecutableLiteral) {
+          if (isBytecodeLiteral(es[i])) {
             ExecutableLiteral literal = (ExecutableLiteral) es[i];
 
             if (literal.getLiteral() == null) {
@@ -2290,6 +2415,7 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
   }
 
   private static MVELClassLoader classLoader;
+  private static HiddenClassDefiner hiddenClassDefiner;
 
   public static void setMVELClassLoader(MVELClassLoader cl) {
     classLoader = cl;
@@ -2322,10 +2448,27 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
     }
   }
 
+  private static synchronized HiddenClassDefiner getHiddenClassDefiner() {
+    if (hiddenClassDefiner == null || hiddenClassDefiner.getClassLoader() != classLoader) {
+      hiddenClassDefiner = new HiddenClassDefiner(classLoader);
+    }
+    return hiddenClassDefiner;
+  }
+
   private java.lang.Class loadClass(String className, byte[] b) throws Exception {
     /**
      * This must be synchronized.  Two classes cannot be simultaneously deployed in the JVM.
      */
+    if (MVEL.RUNTIME_OPT_HIDDEN_CLASSES && HiddenClassDefiner.isSupported()) {
+      /**
+       * A hidden class is not retained by its class loader, so it can be unloaded along with its accessor,
+       * and the loader can be shared instead of creating one per class.
+       */
+      return pCtx == null ?
+          getHiddenClassDefiner().defineClass(b) :
+          pCtx.getParserConfiguration().getHiddenClassDefiner().defineClass(b);
+    }
+
     ContextClassLoader contextClassLoader = getContextClassLoader();
     return contextClassLoader == null ?
             classLoader.defineClassX(className, b, 0, b.length) :
@@ -2789,20 +2932,19 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
     returnType = Object.class;
   }
 
-  private void loadVariableByIndex(int pos) {
+  private void loadVariableByIndex(int pos, String name) {
     assert debug("ALOAD 3");
     mv.visitVarInsn(ALOAD, 3);
 
     assert debug("PUSH IDX VAL =" + pos);
     intPush(pos);
 
-    assert debug("INVOKEINTERFACE " + NAMESPACE + "integration/VariableResolverFactory.getIndexedVariableResolver");
-    mv.visitMethodInsn(INVOKEINTERFACE, "" + NAMESPACE + "integration/VariableResolverFactory",
-        "getIndexedVariableResolver", "(I)L" + NAMESPACE + "integration/VariableResolver;");
+    assert debug("LDC \"" + name + "\"");
+    mv.visitLdcInsn(name);
 
-    assert debug("INVOKEINTERFACE " + NAMESPACE + "integration/VariableResolver.getValue");
-    mv.visitMethodInsn(INVOKEINTERFACE, "" + NAMESPACE + "integration/VariableResolver",
-        "getValue", "()Ljava/lang/Object;");
+    assert debug("INVOKESTATIC " + NAMESPACE + "optimizers/impl/refl/nodes/IndexedVariableAccessor.getValue");
+    mv.visitMethodInsn(INVOKESTATIC, "" + NAMESPACE + "optimizers/impl/refl/nodes/IndexedVariableAccessor",
+        "getValue", "(L" + NAMESPACE + "integration/VariableResolverFactory;ILjava/lang/String;)Ljava/lang/Object;");
 
     returnType = Object.class;
   }
@@ -3029,8 +3171,20 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
     return writeLiteralOrSubexpression(stmt, desiredTarget, null);
   }
 
+  /**
+   * Tells whether the statement is a literal which can be written out as a bytecode constant.  Other literals, such
+   * as inlined enum constants, are read from the statement like any other subexpression.
+   */
+  private static boolean isBytecodeLiteral(Object stmt) {
+    if (!(stmt instanceof ExecutableLiteral)) {
+      return false;
+    }
+    Object lit = ((ExecutableLiteral) stmt).getLiteral();
+    return lit == null || lit instanceof String || lit instanceof Class || isPrimitiveWrapper(lit.getClass());
+  }
+
   private Class writeLiteralOrSubexpression(Object stmt, Class desiredTarget, Class knownIngressType) {
-    if (stmt instanceof ExecutableLiteral) {
+    if (isBytecodeLiteral(stmt)) {
         Object literalValue = ((ExecutableLiteral) stmt).getLiteral();
 
       // Handle the case when the literal is null MVEL-312 
@@ -3175,7 +3329,7 @@ private Object optimizeFieldMethodProperty(Object ctx, String property, Class<?>
       assert debug("BIPUSH " + index);
       mv.visitIntInsn(BIPUSH, index);
     }
-    else if (index > Short.MAX_VALUE) {
+    else if (index > Short.MAX_VALUE || index < Short.MIN_VALUE) {
       assert debug("LDC " + index);
       mv.visitLdcInsn(index);
     }
@@ -0,0 +1,161 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.asm;
+
+import java.io.ObjectStreamException;
+
+import org.mvel2.CompileException;
+import org.mvel2.Operator;
+import org.mvel2.ScriptRuntimeException;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+
+import static org.mvel2.math.MathProcessor.doOperations;
+import static org.mvel2.util.PropertyTools.isEmpty;
+
+/**
+ * Base class of the statements generated by the {@link ASMStatementCompiler}.  The generated subclass implements
+ * {@link #run(Object, Object, VariableResolverFactory)} and this class takes care of the bootstrapping otherwise
+ * done by the statement it replaces, so the two are interchangeable.
+ * <p>
+ * The generated class is not serializable on its own, so the original statement is written in its place.
+ */
+public abstract class ASMCompiledStatement implements ExecutableStatement {
+  protected final ExecutableStatement source;
+  protected final Object[] k;
+
+  private final boolean sequence;
+
+  protected ASMCompiledStatement(ExecutableStatement source, Object[] k) {
+    this.source = source;
+    this.k = k;
+    this.sequence = source instanceof CompiledExpression;
+  }
+
+  protected abstract Object run(Object ctx, Object elCtx, VariableResolverFactory factory);
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+    if (sequence) {
+      return getValue(ctx, variableFactory);
+    }
+    return run(ctx, elCtx, variableFactory);
+  }
+
+  public Object getValue(Object staticContext, VariableResolverFactory factory) {
+    if (sequence) {
+      try {
+        return run(staticContext, staticContext,
+            ((CompiledExpression) source).getParserConfiguration().getVariableFactory(factory));
+      }
+      finally {
+        OptimizerFactory.clearThreadAccessorOptimizer();
+      }
+    }
+    return run(staticContext, staticContext, factory);
+  }
+
+  public ExecutableStatement getSource() {
+    return source;
+  }
+
+  public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+    return source.setValue(ctx, elCtx, variableFactory, value);
+  }
+
+  public void setKnownIngressType(Class type) {
+    source.setKnownIngressType(type);
+  }
+
+  public void setKnownEgressType(Class type) {
+    source.setKnownEgressType(type);
+  }
+
+  public Class getKnownIngressType() {
+    return source.getKnownIngressType();
+  }
+
+  public Class getKnownEgressType() {
+    return source.getKnownEgressType();
+  }
+
+  public boolean isExplicitCast() {
+    return source.isExplicitCast();
+  }
+
+  public boolean isConvertableIngressEgress() {
+    return source.isConvertableIngressEgress();
+  }
+
+  public void computeTypeConversionRule() {
+    source.computeTypeConversionRule();
+  }
+
+  public boolean intOptimized() {
+    return source.intOptimized();
+  }
+
+  public boolean isLiteralOnly() {
+    return source.isLiteralOnly();
+  }
+
+  public boolean isEmptyStatement() {
+    return source.isEmptyStatement();
+  }
+
+  protected Object writeReplace() throws ObjectStreamException {
+    return source;
+  }
+
+  public String toString() {
+    return source.toString();
+  }
+
+  /**
+   * Equivalent of a stack reduction in {@link org.mvel2.MVELRuntime#execute}.
+   */
+  public static Object reduce(Object left, int operator, Object right) {
+    try {
+      if (operator == Operator.CHOR) {
+        if (!isEmpty(left) || !isEmpty(right)) {
+          return !isEmpty(left) ? left : right;
+        }
+        return null;
+      }
+      return doOperations(left, operator, right);
+    }
+    catch (ClassCastException e) {
+      throw new CompileException("syntax error or incompatible types", new char[0], 0, e);
+    }
+    catch (CompileException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new CompileException("failed to evaluate sub expression", new char[0], 0, e);
+    }
+  }
+
+  /**
+   * Equivalent of the ternary condition check in {@link org.mvel2.MVELRuntime#execute}.
+   */
+  public static boolean condition(Object value) {
+    if (value instanceof Boolean) return (Boolean) value;
+    throw new ScriptRuntimeException("expected Boolean; but found: " + (value == null ? "null" : value.getClass().getName()));
+  }
+}
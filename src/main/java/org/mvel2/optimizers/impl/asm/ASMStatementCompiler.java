@@ -0,0 +1,808 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.asm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mvel2.DataTypes;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.And;
+import org.mvel2.ast.BinaryOperation;
+import org.mvel2.ast.BooleanNode;
+import org.mvel2.ast.DoubleOperation;
+import org.mvel2.ast.IfNode;
+import org.mvel2.ast.IntAdd;
+import org.mvel2.ast.IntDiv;
+import org.mvel2.ast.IntMult;
+import org.mvel2.ast.IntSub;
+import org.mvel2.ast.LiteralNode;
+import org.mvel2.ast.LongOperation;
+import org.mvel2.ast.Negation;
+import org.mvel2.ast.NumericComparison;
+import org.mvel2.ast.Or;
+import org.mvel2.ast.Substatement;
+import org.mvel2.ast.WhileNode;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.compiler.ExecutableAccessorSafe;
+import org.mvel2.compiler.ExecutableLiteral;
+import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.math.MathProcessor;
+import org.mvel2.math.NumericMode;
+import org.mvel2.optimizers.OptimizationNotSupported;
+import org.mvel2.util.HiddenClassDefiner;
+import org.mvel2.util.JITClassLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.mvel2.Operator.ADD;
+import static org.mvel2.Operator.DIV;
+import static org.mvel2.Operator.END_OF_STMT;
+import static org.mvel2.Operator.EQUAL;
+import static org.mvel2.Operator.GETHAN;
+import static org.mvel2.Operator.GTHAN;
+import static org.mvel2.Operator.LETHAN;
+import static org.mvel2.Operator.LTHAN;
+import static org.mvel2.Operator.MOD;
+import static org.mvel2.Operator.MULT;
+import static org.mvel2.Operator.NEQUAL;
+import static org.mvel2.Operator.NOOP;
+import static org.mvel2.Operator.RETURN;
+import static org.mvel2.Operator.SUB;
+import static org.mvel2.Operator.TERNARY;
+import static org.mvel2.Operator.TERNARY_ELSE;
+import static org.objectweb.asm.Opcodes.*;
+import static org.objectweb.asm.Type.getInternalName;
+
+/**
+ * Compiles a whole statement -- operators, ternaries, <tt>if</tt> and <tt>while</tt> blocks and nested
+ * sub-statements -- into a single generated {@link ASMCompiledStatement}, taking it out of the
+ * {@link org.mvel2.MVELRuntime} interpreter loop altogether.
+ * <p>
+ * Nodes which have no bytecode translation (property access, assignments, <tt>foreach</tt>, etc.) are still
+ * embedded in the generated code as direct calls to the node itself, so they keep their own accessor
+ * optimization.  Expressions carrying debugging symbols are never compiled, since the debugger needs the
+ * interpreter.
+ */
+public class ASMStatementCompiler {
+  private static final Logger LOG = Logger.getLogger(ASMStatementCompiler.class.getName());
+
+  private static final String STATEMENT = getInternalName(ASMCompiledStatement.class);
+  private static final String EXEC_STMT = getInternalName(ExecutableStatement.class);
+  private static final String AST_NODE = getInternalName(ASTNode.class);
+  private static final String FACTORY = getInternalName(VariableResolverFactory.class);
+  private static final String MAP_FACTORY = getInternalName(MapVariableResolverFactory.class);
+  private static final String COMPILED_EXPR = getInternalName(CompiledExpression.class);
+  private static final String PARSER_CONF = getInternalName(ParserConfiguration.class);
+
+  private static final String FACTORY_DESC = "L" + FACTORY + ";";
+  private static final String GET_VALUE_DESC = "(Ljava/lang/Object;Ljava/lang/Object;" + FACTORY_DESC + ")Ljava/lang/Object;";
+
+  private static final AtomicInteger sequence = new AtomicInteger();
+  private static JITClassLoader classLoader;
+  private static HiddenClassDefiner hiddenClassDefiner;
+
+  private final List<Object> constants = new ArrayList<Object>();
+  private final Map<Object, Integer> constantIndex = new IdentityHashMap<Object, Integer>();
+
+  private MethodVisitor mv;
+  private int locals = 4;
+  private int delegates;
+  private int inlined;
+
+  private ASMStatementCompiler() {
+  }
+
+  /**
+   * Compile the specified statement.
+   *
+   * @param stmt a {@link CompiledExpression} or a single-node {@link ExecutableAccessor}
+   * @return the compiled statement, or <tt>null</tt> if the statement cannot be, or is not worth being compiled.
+   */
+  public static ExecutableStatement compile(ExecutableStatement stmt) {
+    try {
+      return new ASMStatementCompiler()._compile(stmt);
+    }
+    catch (OptimizationNotSupported e) {
+      return null;
+    }
+  }
+
+  private ExecutableStatement _compile(ExecutableStatement stmt) {
+    if (!(stmt instanceof CompiledExpression || stmt instanceof ExecutableAccessor)) {
+      return null;
+    }
+    if (stmt instanceof CompiledExpression
+        && !NumericMode.DEFAULT.equals(((CompiledExpression) stmt).getParserConfiguration().getNumericMode())) {
+      // the generated reductions only know the default numeric mode.
+      return null;
+    }
+
+    String className = "ASMStatementImpl_" + sequence.incrementAndGet();
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS + ClassWriter.COMPUTE_FRAMES);
+    cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, className, null, STATEMENT, null);
+
+    MethodVisitor ctor = cw.visitMethod(ACC_PUBLIC, "<init>", "(L" + EXEC_STMT + ";[Ljava/lang/Object;)V", null, null);
+    ctor.visitCode();
+    ctor.visitVarInsn(ALOAD, 0);
+    ctor.visitVarInsn(ALOAD, 1);
+    ctor.visitVarInsn(ALOAD, 2);
+    ctor.visitMethodInsn(INVOKESPECIAL, STATEMENT, "<init>", "(L" + EXEC_STMT + ";[Ljava/lang/Object;)V", false);
+    ctor.visitInsn(Opcodes.RETURN);
+    ctor.visitMaxs(0, 0);
+    ctor.visitEnd();
+
+    mv = cw.visitMethod(ACC_PROTECTED, "run", GET_VALUE_DESC, null, null);
+    mv.visitCode();
+
+    Scope root = new Scope(1, 2, 3);
+    if (stmt instanceof CompiledExpression) {
+      CompiledExpression compiled = (CompiledExpression) stmt;
+      if (compiled.isEmptyStatement()) return null;
+      emitSequence(compiled.getFirstNode(), new Scope(1, 1, 3));
+    }
+    else {
+      emitNode(((ExecutableAccessor) stmt).getNode(), root);
+      if (inlined == 0) return null;
+    }
+
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+
+    try {
+      byte[] b = cw.toByteArray();
+      Class<?> cls = MVEL.RUNTIME_OPT_HIDDEN_CLASSES && HiddenClassDefiner.isSupported() ?
+          getHiddenClassDefiner().defineClass(b) : getClassLoader().defineClassX(className, b, 0, b.length);
+      return (ExecutableStatement) cls.getConstructor(ExecutableStatement.class, Object[].class)
+          .newInstance(stmt, constants.toArray());
+    }
+    catch (LinkageError e) {
+      LOG.log(Level.WARNING, "failed to compile statement: " + stmt, e);
+      return null;
+    }
+    catch (Exception e) {
+      LOG.log(Level.WARNING, "failed to compile statement: " + stmt, e);
+      return null;
+    }
+  }
+
+  private static synchronized HiddenClassDefiner getHiddenClassDefiner() {
+    if (hiddenClassDefiner == null) {
+      hiddenClassDefiner = new HiddenClassDefiner(getClassLoader());
+    }
+    return hiddenClassDefiner;
+  }
+
+  private static synchronized JITClassLoader getClassLoader() {
+    if (classLoader == null) {
+      classLoader = new JITClassLoader(ASMCompiledStatement.class.getClassLoader());
+    }
+    return classLoader;
+  }
+
+  /**
+   * The local variable slots holding the context, the <tt>this</tt> reference and the variable factory in
+   * effect for the code being emitted.
+   */
+  private static class Scope {
+    private final int ctx;
+    private final int thisRef;
+    private final int factory;
+
+    private Scope(int ctx, int thisRef, int factory) {
+      this.ctx = ctx;
+      this.thisRef = thisRef;
+      this.factory = factory;
+    }
+  }
+
+  /**
+   * Emits the linked list of nodes starting with <tt>first</tt>, following the exact semantics of
+   * {@link org.mvel2.MVELRuntime#execute}: the value register below stands in for the execution stack.
+   * Leaves the value of the sequence on the operand stack.
+   */
+  private void emitSequence(ASTNode first, Scope scope) {
+    int acc = newLocal();
+    Label end = new Label();
+    Map<ASTNode, Label> ternaryElse = new IdentityHashMap<ASTNode, Label>();
+    boolean empty = true;
+
+    mv.visitInsn(ACONST_NULL);
+    mv.visitVarInsn(ASTORE, acc);
+
+    ASTNode tk = first;
+    while (tk != null) {
+      if (tk.fields == -1) {
+        throw new OptimizationNotSupported("debugging symbols");
+      }
+
+      if (empty) {
+        emitChecked(tk, scope, acc, end);
+        empty = false;
+      }
+
+      int operator = tk.getOperator();
+      switch (operator) {
+        case RETURN:
+          // counts as a delegate, since enclosing sequences must check the tilt flag from here on.
+          delegates++;
+          mv.visitVarInsn(ALOAD, scope.factory);
+          mv.visitInsn(ICONST_1);
+          mv.visitMethodInsn(INVOKEINTERFACE, FACTORY, "setTiltFlag", "(Z)V", true);
+          mv.visitJumpInsn(GOTO, end);
+          tk = null;
+          continue;
+
+        case NOOP:
+          break;
+
+        case TERNARY:
+          mv.visitVarInsn(ALOAD, acc);
+          mv.visitMethodInsn(INVOKESTATIC, STATEMENT, "condition", "(Ljava/lang/Object;)Z", false);
+          mv.visitJumpInsn(IFEQ, findTernaryElse(tk, ternaryElse));
+          clear(acc);
+          empty = true;
+          break;
+
+        case TERNARY_ELSE:
+          mv.visitJumpInsn(GOTO, end);
+          Label label = ternaryElse.remove(tk);
+          if (label != null) {
+            mv.visitLabel(label);
+          }
+          clear(acc);
+          empty = true;
+          break;
+
+        case END_OF_STMT:
+          if (tk.nextASTNode != null) {
+            clear(acc);
+            empty = true;
+          }
+          break;
+
+        default:
+          ASTNode operand = tk.nextASTNode;
+          if (operand == null) {
+            throw new OptimizationNotSupported("incomplete statement");
+          }
+
+          int before = delegates;
+          emitNode(operand, scope);
+          int right = newLocal();
+          mv.visitVarInsn(ASTORE, right);
+          mv.visitVarInsn(ALOAD, acc);
+          intPush(operator);
+          mv.visitVarInsn(ALOAD, right);
+          mv.visitMethodInsn(INVOKESTATIC, STATEMENT, "reduce", "(Ljava/lang/Object;ILjava/lang/Object;)Ljava/lang/Object;", false);
+          mv.visitVarInsn(ASTORE, acc);
+          if (delegates != before) {
+            emitTiltCheck(scope, end);
+          }
+
+          // the operand has been consumed; process its operator (if any) with a non-empty stack.
+          tk = operand;
+          continue;
+      }
+
+      tk = tk.nextASTNode;
+    }
+
+    if (!ternaryElse.isEmpty()) {
+      throw new OptimizationNotSupported("unbalanced ternary");
+    }
+
+    mv.visitLabel(end);
+    mv.visitVarInsn(ALOAD, acc);
+  }
+
+  private void emitChecked(ASTNode node, Scope scope, int acc, Label end) {
+    int before = delegates;
+    emitNode(node, scope);
+    mv.visitVarInsn(ASTORE, acc);
+    if (delegates != before) {
+      emitTiltCheck(scope, end);
+    }
+  }
+
+  private Label findTernaryElse(ASTNode tk, Map<ASTNode, Label> ternaryElse) {
+    for (int embeddedLevel = 1; embeddedLevel > 0; ) {
+      tk = tk.nextASTNode;
+      if (tk == null) throw new OptimizationNotSupported("unbalanced ternary");
+      if (tk.isOperator(TERNARY_ELSE)) --embeddedLevel;
+      else if (tk.isOperator(TERNARY)) ++embeddedLevel;
+    }
+    Label label = new Label();
+    ternaryElse.put(tk, label);
+    return label;
+  }
+
+  private void emitTiltCheck(Scope scope, Label end) {
+    mv.visitVarInsn(ALOAD, scope.factory);
+    mv.visitMethodInsn(INVOKEINTERFACE, FACTORY, "tiltFlag", "()Z", true);
+    mv.visitJumpInsn(IFNE, end);
+  }
+
+  private void clear(int acc) {
+    mv.visitInsn(ACONST_NULL);
+    mv.visitVarInsn(ASTORE, acc);
+  }
+
+  /**
+   * Emits the value of a nested statement, as if <tt>stmt.getValue(ctx, thisRef, factory)</tt> was called.
+   */
+  private void emitStatement(ExecutableStatement stmt, Scope scope) {
+    if (stmt instanceof CompiledExpression) {
+      CompiledExpression compiled = (CompiledExpression) stmt;
+      if (compiled.isEmptyStatement()) {
+        mv.visitInsn(ACONST_NULL);
+        return;
+      }
+
+      constant(compiled.getParserConfiguration());
+      mv.visitTypeInsn(CHECKCAST, PARSER_CONF);
+      mv.visitVarInsn(ALOAD, scope.factory);
+      mv.visitMethodInsn(INVOKEVIRTUAL, PARSER_CONF, "getVariableFactory", "(" + FACTORY_DESC + ")" + FACTORY_DESC, false);
+      int factory = newLocal();
+      mv.visitVarInsn(ASTORE, factory);
+
+      inlined++;
+      emitSequence(compiled.getFirstNode(), new Scope(scope.ctx, scope.ctx, factory));
+    }
+    else if (stmt instanceof ExecutableAccessor) {
+      emitNode(((ExecutableAccessor) stmt).getNode(), scope);
+    }
+    else if (stmt instanceof ExecutableAccessorSafe) {
+      emitNode(((ExecutableAccessorSafe) stmt).getNode(), scope);
+    }
+    else if (stmt instanceof ExecutableLiteral) {
+      constant(((ExecutableLiteral) stmt).getLiteral());
+    }
+    else {
+      delegates++;
+      constant(stmt);
+      mv.visitTypeInsn(CHECKCAST, EXEC_STMT);
+      loadScope(scope);
+      mv.visitMethodInsn(INVOKEINTERFACE, EXEC_STMT, "getValue", GET_VALUE_DESC, true);
+    }
+  }
+
+  /**
+   * Emits the value of <tt>node.getReducedValueAccelerated(ctx, thisRef, factory)</tt>.
+   */
+  private void emitNode(ASTNode node, Scope scope) {
+    Class<?> type = node.getClass();
+
+    if (type == LiteralNode.class) {
+      constant(node.getLiteralValue());
+      return;
+    }
+    else if (type == BinaryOperation.class || type == LongOperation.class || type == DoubleOperation.class
+        || type == NumericComparison.class) {
+      inlined++;
+      emitBinaryOperation((BinaryOperation) node, scope);
+      return;
+    }
+    else if (type == IntAdd.class || type == IntSub.class || type == IntMult.class || type == IntDiv.class) {
+      inlined++;
+      emitIntOperation((BinaryOperation) node, scope);
+      return;
+    }
+    else if (type == And.class || type == Or.class) {
+      inlined++;
+      emitBoolean(type == And.class, (BooleanNode) node, scope);
+      return;
+    }
+    else if (type == Negation.class && ((Negation) node).getStatement() != null) {
+      inlined++;
+      emitStatement(((Negation) node).getStatement(), scope);
+      unboxBoolean();
+      Label isTrue = new Label();
+      Label done = new Label();
+      mv.visitJumpInsn(IFNE, isTrue);
+      pushBoolean(true);
+      mv.visitJumpInsn(GOTO, done);
+      mv.visitLabel(isTrue);
+      pushBoolean(false);
+      mv.visitLabel(done);
+      return;
+    }
+    else if (type == Substatement.class && ((Substatement) node).getStatement() != null) {
+      inlined++;
+      emitStatement(((Substatement) node).getStatement(), scope);
+      return;
+    }
+    else if (type == IfNode.class && ((IfNode) node).getCondition() != null) {
+      inlined++;
+      emitIf((IfNode) node, scope);
+      return;
+    }
+    else if (type == WhileNode.class) {
+      inlined++;
+      emitWhile((WhileNode) node, scope);
+      return;
+    }
+
+    delegates++;
+    constant(node);
+    mv.visitTypeInsn(CHECKCAST, AST_NODE);
+    loadScope(scope);
+    mv.visitMethodInsn(INVOKEVIRTUAL, AST_NODE, "getReducedValueAccelerated", GET_VALUE_DESC, false);
+  }
+
+  private void emitBoolean(boolean and, BooleanNode node, Scope scope) {
+    ASTNode left = node.getLeft();
+    ASTNode right = node.getRight();
+
+    Label shortCircuit = new Label();
+    Label done = new Label();
+
+    emitNode(left, scope);
+    unboxBoolean();
+    mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+    emitNode(right, scope);
+    unboxBoolean();
+    mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+    pushBoolean(and);
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(shortCircuit);
+    pushBoolean(!and);
+    mv.visitLabel(done);
+  }
+
+  private void emitIntOperation(BinaryOperation node, Scope scope) {
+    int left = newLocal();
+    int right = newLocal();
+
+    emitNode(node.getLeft(), scope);
+    unbox(Integer.class, "intValue", "I");
+    mv.visitVarInsn(ISTORE, left);
+    emitNode(node.getRight(), scope);
+    unbox(Integer.class, "intValue", "I");
+    mv.visitVarInsn(ISTORE, right);
+
+    mv.visitVarInsn(ILOAD, left);
+    mv.visitVarInsn(ILOAD, right);
+    if (node instanceof IntAdd) mv.visitInsn(IADD);
+    else if (node instanceof IntSub) mv.visitInsn(ISUB);
+    else if (node instanceof IntMult) mv.visitInsn(IMUL);
+    else mv.visitInsn(IDIV);
+    box(Integer.class, "I");
+  }
+
+  private void emitBinaryOperation(BinaryOperation node, Scope scope) {
+    if (!NumericMode.DEFAULT.equals(node.getNumericMode())) {
+      throw new OptimizationNotSupported("numeric mode");
+    }
+    int operation = node.getOperation();
+
+    emitNode(node.getLeft(), scope);
+    int left = newLocal();
+    mv.visitVarInsn(ASTORE, left);
+    emitNode(node.getRight(), scope);
+    int right = newLocal();
+    mv.visitVarInsn(ASTORE, right);
+
+    Label generic = new Label();
+    Label done = new Label();
+
+    Class<?> fastType = getFastPathType(node.getLeftType(), operation, node.getRightType());
+    if (fastType != null) {
+      mv.visitVarInsn(ALOAD, left);
+      mv.visitTypeInsn(INSTANCEOF, getInternalName(fastType));
+      mv.visitJumpInsn(IFEQ, generic);
+      mv.visitVarInsn(ALOAD, right);
+      mv.visitTypeInsn(INSTANCEOF, getInternalName(fastType));
+      mv.visitJumpInsn(IFEQ, generic);
+
+      if (fastType == Integer.class) {
+        emitPrimitiveOperation(operation, left, right, fastType, "intValue", "I");
+      }
+      else if (fastType == Long.class) {
+        emitPrimitiveOperation(operation, left, right, fastType, "longValue", "J");
+      }
+      else {
+        emitPrimitiveOperation(operation, left, right, fastType, "doubleValue", "D");
+      }
+      mv.visitJumpInsn(GOTO, done);
+    }
+
+    mv.visitLabel(generic);
+    intPush(node.getLeftType());
+    mv.visitVarInsn(ALOAD, left);
+    intPush(operation);
+    intPush(node.getRightType());
+    mv.visitVarInsn(ALOAD, right);
+    mv.visitMethodInsn(INVOKESTATIC, getInternalName(MathProcessor.class), "doOperations",
+        "(ILjava/lang/Object;IILjava/lang/Object;)Ljava/lang/Object;", false);
+    mv.visitLabel(done);
+  }
+
+  /**
+   * Determines whether <tt>MathProcessor</tt> would handle the operation as a same-type operation on the
+   * specified wrapper type, in which case it can be replaced by the equivalent primitive instructions after
+   * checking the actual type of both operands.
+   */
+  private static Class<?> getFastPathType(int leftType, int operation, int rightType) {
+    switch (operation) {
+      case ADD:
+      case SUB:
+      case MULT:
+      case DIV:
+      case MOD:
+      case GTHAN:
+      case GETHAN:
+      case LTHAN:
+      case LETHAN:
+      case EQUAL:
+      case NEQUAL:
+        break;
+      default:
+        return null;
+    }
+
+    if (isOfType(leftType, rightType, DataTypes.INTEGER, DataTypes.W_INTEGER)) return Integer.class;
+    if (isOfType(leftType, rightType, DataTypes.LONG, DataTypes.W_LONG)) return Long.class;
+    if (isOfType(leftType, rightType, DataTypes.DOUBLE, DataTypes.W_DOUBLE)) return Double.class;
+    return null;
+  }
+
+  private static boolean isOfType(int leftType, int rightType, int primitive, int wrapper) {
+    // an unknown type is resolved from the value at runtime, ie. the wrapper type.
+    if (leftType < 1) leftType = wrapper;
+    if (rightType < 1) rightType = wrapper;
+    return leftType == rightType && (leftType == primitive || leftType == wrapper);
+  }
+
+  private void emitPrimitiveOperation(int operation, int left, int right, Class<?> wrapper, String unboxMethod,
+                                      String desc) {
+    boolean isInt = "I".equals(desc);
+    boolean isLong = "J".equals(desc);
+
+    // division of fixed-point numbers yields a double.
+    mv.visitVarInsn(ALOAD, left);
+    unbox(wrapper, unboxMethod, desc);
+    if (operation == DIV) toDouble(isInt, isLong);
+    mv.visitVarInsn(ALOAD, right);
+    unbox(wrapper, unboxMethod, desc);
+    if (operation == DIV) toDouble(isInt, isLong);
+
+    switch (operation) {
+      case ADD:
+        mv.visitInsn(isInt ? IADD : isLong ? LADD : DADD);
+        box(wrapper, desc);
+        return;
+      case SUB:
+        mv.visitInsn(isInt ? ISUB : isLong ? LSUB : DSUB);
+        box(wrapper, desc);
+        return;
+      case MULT:
+        mv.visitInsn(isInt ? IMUL : isLong ? LMUL : DMUL);
+        box(wrapper, desc);
+        return;
+      case MOD:
+        mv.visitInsn(isInt ? IREM : isLong ? LREM : DREM);
+        box(wrapper, desc);
+        return;
+      case DIV:
+        mv.visitInsn(DDIV);
+        box(Double.class, "D");
+        return;
+    }
+
+    int jump;
+    if (isInt) {
+      switch (operation) {
+        case GTHAN: jump = IF_ICMPGT; break;
+        case GETHAN: jump = IF_ICMPGE; break;
+        case LTHAN: jump = IF_ICMPLT; break;
+        case LETHAN: jump = IF_ICMPLE; break;
+        case EQUAL: jump = IF_ICMPEQ; break;
+        default: jump = IF_ICMPNE; break;
+      }
+    }
+    else {
+      switch (operation) {
+        case GTHAN:
+          mv.visitInsn(isLong ? LCMP : DCMPL);
+          jump = IFGT;
+          break;
+        case GETHAN:
+          mv.visitInsn(isLong ? LCMP : DCMPL);
+          jump = IFGE;
+          break;
+        case LTHAN:
+          mv.visitInsn(isLong ? LCMP : DCMPG);
+          jump = IFLT;
+          break;
+        case LETHAN:
+          mv.visitInsn(isLong ? LCMP : DCMPG);
+          jump = IFLE;
+          break;
+        case EQUAL:
+          mv.visitInsn(isLong ? LCMP : DCMPL);
+          jump = IFEQ;
+          break;
+        default:
+          mv.visitInsn(isLong ? LCMP : DCMPL);
+          jump = IFNE;
+          break;
+      }
+    }
+
+    Label isTrue = new Label();
+    Label done = new Label();
+    mv.visitJumpInsn(jump, isTrue);
+    pushBoolean(false);
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(isTrue);
+    pushBoolean(true);
+    mv.visitLabel(done);
+  }
+
+  private void toDouble(boolean isInt, boolean isLong) {
+    if (isInt) mv.visitInsn(I2D);
+    else if (isLong) mv.visitInsn(L2D);
+  }
+
+  private void emitIf(IfNode node, Scope scope) {
+    Label orElse = new Label();
+    Label done = new Label();
+
+    emitStatement(node.getCondition(), scope);
+    unboxBoolean();
+    mv.visitJumpInsn(IFEQ, orElse);
+    emitStatement(node.getNestedStatement(), blockScope(node.isIndexAllocation(), scope, true));
+    mv.visitJumpInsn(GOTO, done);
+
+    mv.visitLabel(orElse);
+    if (node.getElseIf() != null) {
+      Scope elseScope = blockScope(node.isIndexAllocation(), scope, true);
+      if (node.getElseIf().getClass() == IfNode.class && node.getElseIf().getCondition() != null) {
+        emitIf(node.getElseIf(), elseScope);
+      }
+      else {
+        emitNode(node.getElseIf(), elseScope);
+      }
+    }
+    else if (node.getElseBlock() != null) {
+      emitStatement(node.getElseBlock(), blockScope(node.isIndexAllocation(), scope, true));
+    }
+    else {
+      mv.visitInsn(ACONST_NULL);
+    }
+    mv.visitLabel(done);
+  }
+
+  private void emitWhile(WhileNode node, Scope scope) {
+    Scope block = blockScope(false, scope, false);
+    Label loop = new Label();
+    Label exit = new Label();
+
+    mv.visitLabel(loop);
+    emitStatement(node.getCondition(), scope);
+    unboxBoolean();
+    mv.visitJumpInsn(IFEQ, exit);
+    emitStatement(node.getCompiledBlock(), block);
+    mv.visitInsn(POP);
+    mv.visitJumpInsn(GOTO, loop);
+    mv.visitLabel(exit);
+    mv.visitInsn(ACONST_NULL);
+  }
+
+  /**
+   * Creates the scope of a nested block, which gets a fresh map-based variable factory chained to the
+   * enclosing one, unless variables are index allocated.
+   */
+  private Scope blockScope(boolean indexAllocation, Scope scope, boolean sized) {
+    if (indexAllocation) return scope;
+
+    String mapImpl = getInternalName(HashMap.class);
+    mv.visitTypeInsn(NEW, MAP_FACTORY);
+    mv.visitInsn(DUP);
+    mv.visitTypeInsn(NEW, mapImpl);
+    mv.visitInsn(DUP);
+    if (sized) {
+      mv.visitInsn(ICONST_0);
+      mv.visitMethodInsn(INVOKESPECIAL, mapImpl, "<init>", "(I)V", false);
+    }
+    else {
+      mv.visitMethodInsn(INVOKESPECIAL, mapImpl, "<init>", "()V", false);
+    }
+    mv.visitVarInsn(ALOAD, scope.factory);
+    mv.visitMethodInsn(INVOKESPECIAL, MAP_FACTORY, "<init>", "(Ljava/util/Map;" + FACTORY_DESC + ")V", false);
+    int factory = newLocal();
+    mv.visitVarInsn(ASTORE, factory);
+    return new Scope(scope.ctx, scope.thisRef, factory);
+  }
+
+  private void loadScope(Scope scope) {
+    mv.visitVarInsn(ALOAD, scope.ctx);
+    mv.visitVarInsn(ALOAD, scope.thisRef);
+    mv.visitVarInsn(ALOAD, scope.factory);
+  }
+
+  private void constant(Object value) {
+    if (value == null) {
+      mv.visitInsn(ACONST_NULL);
+      return;
+    }
+
+    Integer idx = constantIndex.get(value);
+    if (idx == null) {
+      constantIndex.put(value, idx = constants.size());
+      constants.add(value);
+    }
+
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETFIELD, STATEMENT, "k", "[Ljava/lang/Object;");
+    intPush(idx);
+    mv.visitInsn(AALOAD);
+  }
+
+  private void unboxBoolean() {
+    unbox(Boolean.class, "booleanValue", "Z");
+  }
+
+  private void unbox(Class<?> wrapper, String method, String desc) {
+    mv.visitTypeInsn(CHECKCAST, getInternalName(wrapper));
+    mv.visitMethodInsn(INVOKEVIRTUAL, getInternalName(wrapper), method, "()" + desc, false);
+  }
+
+  private void box(Class<?> wrapper, String desc) {
+    mv.visitMethodInsn(INVOKESTATIC, getInternalName(wrapper), "valueOf", "(" + desc + ")L" + getInternalName(wrapper) + ";", false);
+  }
+
+  private void pushBoolean(boolean value) {
+    mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", value ? "TRUE" : "FALSE", "Ljava/lang/Boolean;");
+  }
+
+  private void intPush(int value) {
+    if (value >= -1 && value <= 5) {
+      mv.visitInsn(ICONST_0 + value);
+    }
+    else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, value);
+    }
+    else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, value);
+    }
+    else {
+      mv.visitLdcInsn(value);
+    }
+  }
+
+  private int newLocal() {
+    return locals++;
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.asm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.util.MethodStub;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * An on-disk cache of the accessor classes generated by the {@link ASMAccessorOptimizer}, so that a restarted JVM
+ * can load the classes it generated before rather than generating them again.
+ * <p>
+ * An entry is keyed by the accessor source, the kind of accessor, the imports of the parser configuration it was
+ * compiled with, and the classes of the objects it was generated against.  It records the shape (the public members) of every class the generated bytecode refers to, and is
+ * discarded as soon as one of them has changed.  Only self-contained accessors are cached: those which hold no
+ * compiled sub-statements nor property handlers.
+ * <p>
+ * The cache is enabled with the <tt>mvel2.jit.bytecode_cache</tt> system property, naming the cache directory, or
+ * with {@link ASMAccessorOptimizer#setBytecodeCache(BytecodeCache)}.
+ */
+public class BytecodeCache {
+  private static final int MAGIC = 0x4d564243;
+  private static final int VERSION = 1;
+  private static final int MAX_KEY_LENGTH = 8192;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final File directory;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong stores = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public BytecodeCache(File directory) {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create bytecode cache directory: " + directory);
+    }
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Builds the key of a get accessor.
+   *
+   * @return the key, or <tt>null</tt> if the accessor cannot be cached.
+   */
+  public static String key(String kind, char[] expr, int start, int offset, Object ctx, Object thisRef,
+                           VariableResolverFactory factory, ParserContext pCtx) {
+    if (offset > MAX_KEY_LENGTH) {
+      return null;
+    }
+
+    int end = start;
+    while (end < start + offset && Character.isJavaIdentifierPart(expr[end])) end++;
+
+    Object root = null;
+    if (factory != null && end != start) {
+      String name = new String(expr, start, end - start);
+      if (factory.isResolveable(name)) {
+        VariableResolver resolver = factory.getVariableResolver(name);
+        root = resolver == null ? null : resolver.getValue();
+      }
+    }
+
+    return kind + '|' + new String(expr, start, offset) + '|' + typeName(ctx) + '|' + typeName(thisRef)
+        + '|' + typeName(root) + '|' + configuration(pCtx);
+  }
+
+  /**
+   * Describes what of the parser configuration decides which classes and methods an accessor refers to: its imports,
+   * package imports, and whether naked method calls are allowed.  Unlike the class loader, it is the same from one
+   * JVM to the next.
+   */
+  private static String configuration(ParserContext pCtx) {
+    if (pCtx == null) {
+      return "";
+    }
+    ParserConfiguration conf = pCtx.getParserConfiguration();
+    StringBuilder sb = new StringBuilder(conf.isAllowNakedMethCall() ? "naked" : "");
+    for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(conf.getImports()).entrySet()) {
+      sb.append(';').append(entry.getKey()).append('=').append(importName(entry.getValue()));
+    }
+    if (conf.getPackageImports() != null) {
+      for (String packageName : new TreeSet<String>(conf.getPackageImports())) {
+        sb.append(';').append(packageName).append(".*");
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String importName(Object imported) {
+    if (imported instanceof Class) {
+      return ((Class) imported).getName();
+    }
+    else if (imported instanceof MethodStub) {
+      return ((MethodStub) imported).getMethod().toString();
+    }
+    return imported == null ? "null" : imported.getClass().getName() + ':' + imported;
+  }
+
+  private static String typeName(Object o) {
+    return o == null ? "null" : o.getClass().getName();
+  }
+
+  /**
+   * @return <tt>true</tt> if an entry is stored for the key; it is only validated when loaded.
+   */
+  public boolean contains(String key) {
+    return key != null && file(key).isFile();
+  }
+
+  /**
+   * Loads the bytecode stored for the key, renaming its class to <tt>className</tt>.
+   *
+   * @return the bytecode, or <tt>null</tt> if there is no valid entry for the key.
+   */
+  public byte[] load(String key, String className, ClassLoader classLoader) {
+    File file;
+    if (key == null || !(file = file(key)).isFile()) {
+      return null;
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(new FileInputStream(file));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+          return null;
+        }
+
+        for (int i = in.readShort(); i > 0; i--) {
+          String type = in.readUTF();
+          long shape = in.readLong();
+          if (shape != shape(Class.forName(type, false, classLoader))) {
+            return invalidate(file);
+          }
+        }
+
+        byte[] bytecode = new byte[in.readInt()];
+        in.readFully(bytecode);
+        hits.incrementAndGet();
+        return rename(bytecode, className);
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (ClassNotFoundException e) {
+      return invalidate(file);
+    }
+    catch (LinkageError e) {
+      return invalidate(file);
+    }
+    catch (IOException e) {
+      return invalidate(file);
+    }
+  }
+
+  private byte[] invalidate(File file) {
+    invalidations.incrementAndGet();
+    file.delete();
+    return null;
+  }
+
+  /**
+   * Stores the bytecode of an accessor class.  Failures are ignored: the cache only ever saves work.
+   */
+  public void store(String key, byte[] bytecode, ClassLoader classLoader) {
+    if (key == null) {
+      return;
+    }
+
+    try {
+      ByteArrayOutputStream buf = new ByteArrayOutputStream(bytecode.length + 256);
+      DataOutputStream out = new DataOutputStream(buf);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(key);
+
+      Map<String, Long> shapes = new TreeMap<String, Long>();
+      for (String type : referencedTypes(bytecode)) {
+        shapes.put(type, shape(Class.forName(type, false, classLoader)));
+      }
+      out.writeShort(shapes.size());
+      for (Map.Entry<String, Long> entry : shapes.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+
+      out.writeInt(bytecode.length);
+      out.write(bytecode);
+      out.flush();
+
+      File file = file(key);
+      File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+      try {
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+          buf.writeTo(fos);
+        }
+        finally {
+          fos.close();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stores.incrementAndGet();
+      }
+      finally {
+        tmp.delete();
+      }
+    }
+    catch (Exception e) {
+      // not cacheable.
+    }
+    catch (LinkageError e) {
+      // not cacheable.
+    }
+  }
+
+  /**
+   * Removes every entry of the cache.
+   */
+  public void clear() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().endsWith(".mvelc")) file.delete();
+      }
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getStores() {
+    return stores.get();
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  private File file(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(UTF8));
+      StringBuilder name = new StringBuilder(digest.length * 2 + 6);
+      for (byte b : digest) {
+        name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return new File(directory, name.append(".mvelc").toString());
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Fingerprints the public members of a class, which are all the generated accessors can use.
+   */
+  static long shape(Class<?> cls) {
+    List<String> members = new ArrayList<String>();
+    for (Method m : cls.getMethods()) members.add(m.toString());
+    for (Field f : cls.getFields()) members.add(f.toString());
+    for (Constructor c : cls.getConstructors()) members.add(c.toString());
+    Collections.sort(members);
+
+    CRC32 crc = new CRC32();
+    crc.update(cls.getName().getBytes(UTF8));
+    if (cls.getSuperclass() != null) crc.update(cls.getSuperclass().getName().getBytes(UTF8));
+    for (String member : members) {
+      crc.update(member.getBytes(UTF8));
+    }
+    return crc.getValue();
+  }
+
+  private static List<String> referencedTypes(byte[] bytecode) {
+    final ClassReader reader = new ClassReader(bytecode);
+    final List<String> types = new ArrayList<String>();
+
+    reader.accept(new ClassVisitor(Opcodes.ASM9) {
+      private void add(String internalName) {
+        Type type = internalName.startsWith("[") ? Type.getType(internalName).getElementType()
+            : Type.getObjectType(internalName);
+        if (type.getSort() == Type.OBJECT && !type.getInternalName().equals(reader.getClassName())
+            && !types.contains(type.getClassName())) {
+          types.add(type.getClassName());
+        }
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        return new MethodVisitor(Opcodes.ASM9) {
+          @Override
+          public void visitTypeInsn(int opcode, String type) {
+            add(type);
+          }
+
+          @Override
+          public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            add(owner);
+          }
+
+          @Override
+          public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            add(owner);
+          }
+
+          @Override
+          public void visitLdcInsn(Object value) {
+            if (value instanceof Type && ((Type) value).getSort() != Type.METHOD) {
+              add(((Type) value).getInternalName());
+            }
+          }
+        };
+      }
+    }, ClassReader.SKIP_DEBUG);
+
+    return types;
+  }
+
+  /**
+   * Renames the class, since a class loaded once per accessor cannot keep the name it was generated with.
+   */
+  private static byte[] rename(byte[] bytecode, final String className) {
+    ClassReader reader = new ClassReader(bytecode);
+    final String oldName = reader.getClassName();
+    ClassWriter cw = new ClassWriter(0);
+
+    reader.accept(new ClassVisitor(Opcodes.ASM9, cw) {
+      @Override
+      public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        super.visit(version, access, className, signature, superName, interfaces);
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+          @Override
+          public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            super.visitFieldInsn(opcode, oldName.equals(owner) ? className : owner, name, descriptor);
+          }
+
+          @Override
+          public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            super.visitMethodInsn(opcode, oldName.equals(owner) ? className : owner, name, descriptor, isInterface);
+          }
+
+          @Override
+          public void visitTypeInsn(int opcode, String type) {
+            super.visitTypeInsn(opcode, oldName.equals(type) ? className : type);
+          }
+        };
+      }
+    }, 0);
+
+    return cw.toByteArray();
+  }
+}
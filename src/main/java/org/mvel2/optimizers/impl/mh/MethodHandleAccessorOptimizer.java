@@ -0,0 +1,94 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.mh;
+
+import org.mvel2.compiler.AccessorNode;
+import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleFieldAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleGetterAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleMethodAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleStaticVarAccessor;
+import org.mvel2.optimizers.impl.refl.ReflectiveAccessorOptimizer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * An accessor optimizer which builds the same accessor chains as the {@link ReflectiveAccessorOptimizer}, but
+ * binds getters, fields and method calls to {@link java.lang.invoke.MethodHandle}s rather than going through
+ * <tt>Method.invoke</tt>.  The handles can be inlined by the JVM like generated bytecode, without defining a
+ * single class, so this is a good fit where the ASM optimizer can't or shouldn't be used.
+ * <p>
+ * Members which can't be bound to a handle (eg. inaccessible ones) keep their reflective accessor.
+ */
+public class MethodHandleAccessorOptimizer extends ReflectiveAccessorOptimizer {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+  public MethodHandleAccessorOptimizer() {
+  }
+
+  @Override
+  protected AccessorNode getterAccessor(Method method) {
+    try {
+      return new MethodHandleGetterAccessor(method, LOOKUP.unreflect(method));
+    }
+    catch (IllegalAccessException e) {
+      return super.getterAccessor(method);
+    }
+  }
+
+  @Override
+  protected AccessorNode fieldAccessor(Field field) {
+    if (Modifier.isStatic(field.getModifiers())) {
+      return super.fieldAccessor(field);
+    }
+
+    try {
+      return new MethodHandleFieldAccessor(field, LOOKUP.unreflectGetter(field));
+    }
+    catch (IllegalAccessException e) {
+      return super.fieldAccessor(field);
+    }
+  }
+
+  @Override
+  protected AccessorNode staticVarAccessor(Field field) {
+    try {
+      return new MethodHandleStaticVarAccessor(field, LOOKUP.unreflectGetter(field));
+    }
+    catch (IllegalAccessException e) {
+      return super.staticVarAccessor(field);
+    }
+  }
+
+  @Override
+  protected AccessorNode methodAccessor(Method method, ExecutableStatement[] parms) {
+    if (method.isVarArgs() || parms == null || parms.length != method.getParameterTypes().length) {
+      return super.methodAccessor(method, parms);
+    }
+
+    try {
+      return new MethodHandleMethodAccessor(method, parms, LOOKUP.unreflect(method));
+    }
+    catch (IllegalAccessException e) {
+      return super.methodAccessor(method, parms);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.mh.nodes;
+
+import org.mvel2.compiler.AccessorNode;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.impl.refl.nodes.FieldAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Field node reading the field through a {@link MethodHandle}.  Writes are left to the reflective implementation.
+ */
+public class MethodHandleFieldAccessor extends FieldAccessor {
+  private final MethodHandle getter;
+  private final Class<?> declaringClass;
+
+  public MethodHandleFieldAccessor(Field field, MethodHandle getter) {
+    super(field);
+    this.declaringClass = field.getDeclaringClass();
+    this.getter = getter.asType(methodType(Object.class, Object.class));
+  }
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
+    if (!declaringClass.isInstance(ctx)) {
+      return super.getValue(ctx, elCtx, vars);
+    }
+
+    Object value;
+    try {
+      value = (Object) getter.invokeExact(ctx);
+    }
+    catch (Throwable e) {
+      throw new RuntimeException("unable to access field: " + getField().getName(), e);
+    }
+
+    AccessorNode nextNode = getNextNode();
+    return nextNode != null ? nextNode.getValue(value, elCtx, vars) : value;
+  }
+}
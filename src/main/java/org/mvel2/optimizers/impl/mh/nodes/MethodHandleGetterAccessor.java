@@ -0,0 +1,68 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.mh.nodes;
+
+import org.mvel2.compiler.AccessorNode;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.impl.refl.nodes.GetterAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Getter node invoking the getter through a {@link MethodHandle}.  Targets which aren't an instance of the
+ * declaring class (including <tt>null</tt>) are left to the reflective implementation, which knows how to deal
+ * with them.
+ */
+public class MethodHandleGetterAccessor extends GetterAccessor {
+  private final MethodHandle handle;
+  private final Class<?> declaringClass;
+  private final boolean isStatic;
+
+  public MethodHandleGetterAccessor(Method method, MethodHandle handle) {
+    super(method);
+    this.declaringClass = method.getDeclaringClass();
+    this.isStatic = Modifier.isStatic(method.getModifiers());
+    if (isStatic) handle = dropArguments(handle, 0, Object.class);
+    this.handle = handle.asType(methodType(Object.class, Object.class));
+  }
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
+    if (!isStatic && !declaringClass.isInstance(ctx)) {
+      return super.getValue(ctx, elCtx, vars);
+    }
+
+    Object value;
+    try {
+      value = (Object) handle.invokeExact(ctx);
+    }
+    catch (Throwable e) {
+      throw new RuntimeException("cannot invoke getter: " + getMethod().getName()
+          + " [declr.class: " + declaringClass.getName() + "; act.class: "
+          + (ctx != null ? ctx.getClass().getName() : "null") + "] (see trace)", new InvocationTargetException(e));
+    }
+
+    AccessorNode nextNode = getNextNode();
+    return nextNode != null ? nextNode.getValue(value, elCtx, vars) : value;
+  }
+}
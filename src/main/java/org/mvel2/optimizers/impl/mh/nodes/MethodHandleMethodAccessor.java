@@ -0,0 +1,138 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.mh.nodes;
+
+import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.impl.refl.nodes.MethodAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static org.mvel2.DataConversion.convert;
+
+/**
+ * Method node invoking the method through a spreading {@link MethodHandle}.  The handle is only used while the
+ * evaluated arguments can be passed as they are; varargs methods, coercion and overridden targets are all left to
+ * the reflective implementation.
+ */
+public class MethodHandleMethodAccessor extends MethodAccessor {
+  private final MethodHandle handle;
+  private final Class<?> declaringClass;
+  private final boolean isStatic;
+
+  public MethodHandleMethodAccessor(Method method, ExecutableStatement[] parms, MethodHandle handle) {
+    super(method, parms);
+    this.declaringClass = method.getDeclaringClass();
+    this.isStatic = Modifier.isStatic(method.getModifiers());
+    if (isStatic) handle = dropArguments(handle, 0, Object.class);
+    this.handle = handle.asType(MethodType.genericMethodType(length + 1)).asSpreader(Object[].class, length);
+  }
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
+    if (coercionNeeded || (!isStatic && !declaringClass.isInstance(ctx))) {
+      return super.getValue(ctx, elCtx, vars);
+    }
+
+    Object[] args = new Object[length];
+    for (int i = 0; i < length; i++) {
+      if (!isInvocable(parameterTypes[i], args[i] = parms[i].getValue(elCtx, vars))) {
+        return invokeCoerced(ctx, elCtx, vars, args, i);
+      }
+    }
+
+    Object value;
+    try {
+      value = (Object) handle.invokeExact(ctx, args);
+    }
+    catch (Throwable e) {
+      throw new RuntimeException("cannot invoke method: " + getMethod().getName(), new InvocationTargetException(e));
+    }
+
+    return nextNode != null ? nextNode.getValue(value, elCtx, vars) : value;
+  }
+
+  /**
+   * Completes the evaluation of the arguments from the first one which cannot be passed as it is, and invokes the
+   * method reflectively with all of them coerced, so that no argument is evaluated twice.
+   */
+  private Object invokeCoerced(Object ctx, Object elCtx, VariableResolverFactory vars, Object[] args, int from) {
+    coercionNeeded = true;
+    for (int i = from + 1; i < length; i++) {
+      args[i] = parms[i].getValue(elCtx, vars);
+    }
+    for (int i = 0; i < length; i++) {
+      args[i] = convert(args[i], parameterTypes[i]);
+    }
+
+    Object value;
+    try {
+      value = getMethod().invoke(ctx, args);
+    }
+    catch (Exception e) {
+      throw new RuntimeException("cannot invoke method: " + getMethod().getName(), e);
+    }
+
+    return nextNode != null ? nextNode.getValue(value, elCtx, vars) : value;
+  }
+
+  /**
+   * Determines whether the value can be passed for the specified parameter type as <tt>Method.invoke</tt> would,
+   * ie. with no conversion other than unboxing and primitive widening.
+   */
+  private static boolean isInvocable(Class<?> type, Object value) {
+    if (!type.isPrimitive()) {
+      return value == null || type.isInstance(value);
+    }
+    else if (value == null) {
+      return false;
+    }
+
+    Class<?> cls = value.getClass();
+    if (type == int.class) {
+      return cls == Integer.class || cls == Short.class || cls == Byte.class || cls == Character.class;
+    }
+    else if (type == long.class) {
+      return cls == Long.class || cls == Integer.class || cls == Short.class || cls == Byte.class || cls == Character.class;
+    }
+    else if (type == double.class) {
+      return cls == Double.class || cls == Float.class || cls == Long.class || cls == Integer.class
+          || cls == Short.class || cls == Byte.class || cls == Character.class;
+    }
+    else if (type == boolean.class) {
+      return cls == Boolean.class;
+    }
+    else if (type == float.class) {
+      return cls == Float.class || cls == Long.class || cls == Integer.class || cls == Short.class
+          || cls == Byte.class || cls == Character.class;
+    }
+    else if (type == short.class) {
+      return cls == Short.class || cls == Byte.class;
+    }
+    else if (type == char.class) {
+      return cls == Character.class;
+    }
+    else {
+      return cls == Byte.class;
+    }
+  }
+}
@@ -306,11 +306,11 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
         }
         else if (value == null && fld.getType().isPrimitive()) {
           fld.set(ctx, PropertyTools.getPrimitiveInitialValue(fld.getType()));
-          addAccessorNode(new FieldAccessor(fld));
+          addAccessorNode(fieldAccessor(fld));
         }
         else {
           fld.set(ctx, value);
-          addAccessorNode(new FieldAccessor(fld));
+          addAccessorNode(fieldAccessor(fld));
         }
       }
       else if (member != null) {
@@ -473,6 +473,26 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
     }
   }
 
+  /**
+   * Creates the node accessing a bean property through its getter.  Subclasses may override the factory methods
+   * below to provide their own implementation of the most frequently used nodes.
+   */
+  protected AccessorNode getterAccessor(Method method) {
+    return new GetterAccessor(method);
+  }
+
+  protected AccessorNode fieldAccessor(Field field) {
+    return new FieldAccessor(field);
+  }
+
+  protected AccessorNode staticVarAccessor(Field field) {
+    return new StaticVarAccessor(field);
+  }
+
+  protected AccessorNode methodAccessor(Method method, ExecutableStatement[] parms) {
+    return new MethodAccessor(method, parms);
+  }
+
   private Object getWithProperty(Object ctx) {
     currType = null;
     String root = start == cursor ? null : new String(expr, start, cursor - 1).trim();
@@ -514,7 +534,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
 
         if (variableFactory.isIndexedFactory() && variableFactory.isTarget(property)) {
           int idx;
-          addAccessorNode(new IndexedVariableAccessor(idx = variableFactory.variableIndexOf(property)));
+          addAccessorNode(new IndexedVariableAccessor(idx = variableFactory.variableIndexOf(property), property));
 
           VariableResolver vr = variableFactory.getIndexedVariableResolver(idx);
           if (vr == null) {
@@ -574,7 +594,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
           if (o == null) o = getNullPropertyHandler().getProperty(member.getName(), ctx, variableFactory);
         }
         else {
-          addAccessorNode(new GetterAccessor((Method) member));
+          addAccessorNode(getterAccessor((Method) member));
         }
       }
       catch (IllegalAccessException e) {
@@ -591,7 +611,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
           if (o == null) o = getNullMethodHandler().getProperty(member.getName(), ctx, variableFactory);
         }
         else {
-          addAccessorNode(new GetterAccessor(iFaceMeth));
+          addAccessorNode(getterAccessor(iFaceMeth));
         }
       }
       catch (IllegalArgumentException e) {
@@ -622,7 +642,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
           if (o == null) o = getNullMethodHandler().getProperty(member.getName(), ctx, variableFactory);
         }
         else {
-          addAccessorNode(new StaticVarAccessor((Field) member));
+          addAccessorNode(staticVarAccessor((Field) member));
         }
       }
       else {
@@ -632,7 +652,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
           if (o == null) o = getNullMethodHandler().getProperty(member.getName(), ctx, variableFactory);
         }
         else {
-          addAccessorNode(new FieldAccessor((Field) member));
+          addAccessorNode(fieldAccessor((Field) member));
         }
       }
       currType = toNonPrimitiveType(f.getType());
@@ -659,7 +679,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
           return tryStaticMethodRef;
         }
         else if (tryStaticMethodRef instanceof Field) {
-          addAccessorNode(new StaticVarAccessor((Field) tryStaticMethodRef));
+          addAccessorNode(staticVarAccessor((Field) tryStaticMethodRef));
           return ((Field) tryStaticMethodRef).get(null);
         }
         else {
@@ -679,7 +699,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
                   o = getNullMethodHandler().getProperty(m.getName(), ctx, variableFactory);
               }
               else {
-                addAccessorNode(new MethodAccessor(m, new ExecutableStatement[0]));
+                addAccessorNode(methodAccessor(m, new ExecutableStatement[0]));
               }
               return o;
             }
@@ -1121,7 +1141,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
       if (o == null) o = getNullMethodHandler().getProperty(m.getName(), ctx, variableFactory);
     }
     else {
-      addAccessorNode(new MethodAccessor(method, (ExecutableStatement[]) es));
+      addAccessorNode(methodAccessor(method, (ExecutableStatement[]) es));
     }
 
     /**
@@ -0,0 +1,85 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.optimizers.impl.refl.collection;
+
+import org.mvel2.compiler.Accessor;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.util.CopyOnWriteList;
+import org.mvel2.util.CopyOnWriteMap;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out an inline collection made of literals only, built once: lists and maps as copy-on-write views over the
+ * shared elements, which are read without being copied and copied on their first modification, and arrays as
+ * copies.
+ */
+public class ConstantCollectionCreator implements Accessor {
+  private final Object[] elements;
+  private final Map map;
+  private final Object array;
+
+  public ConstantCollectionCreator(Object value) {
+    if (value instanceof List) {
+      this.elements = ((List) value).toArray();
+      this.map = null;
+      this.array = null;
+    }
+    else if (value instanceof Map) {
+      this.elements = null;
+      this.map = (Map) value;
+      this.array = null;
+    }
+    else if (value != null && value.getClass().isArray()) {
+      this.elements = null;
+      this.map = null;
+      this.array = value;
+    }
+    else {
+      throw new IllegalArgumentException("not a collection: " + value);
+    }
+  }
+
+  public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+    if (elements != null) {
+      return new CopyOnWriteList(elements);
+    }
+    else if (map != null) {
+      return new CopyOnWriteMap(map);
+    }
+    else if (array instanceof Object[]) {
+      return ((Object[]) array).clone();
+    }
+    else {
+      int length = Array.getLength(array);
+      Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+      System.arraycopy(array, 0, copy, 0, length);
+      return copy;
+    }
+  }
+
+  public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+    return null;
+  }
+
+  public Class getKnownEgressType() {
+    return elements != null ? List.class : map != null ? Map.class : array.getClass();
+  }
+}
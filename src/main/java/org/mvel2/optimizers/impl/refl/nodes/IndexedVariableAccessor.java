@@ -20,32 +20,79 @@ package org.mvel2.optimizers.impl.refl.nodes;
 
 import org.mvel2.compiler.AccessorNode;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.Frame;
 
 public class IndexedVariableAccessor implements AccessorNode {
   private AccessorNode nextNode;
   private int register;
+  private String name;
 
   public IndexedVariableAccessor(int register) {
     this.register = register;
   }
 
+  /**
+   * Creates an accessor which resolves the variable by name whenever the factory it runs against does not allocate
+   * the register to it.
+   */
+  public IndexedVariableAccessor(int register, String name) {
+    this.register = register;
+    this.name = name;
+  }
+
   public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vrf) {
+    Object value = name == null ? vrf.getIndexedVariableResolver(register).getValue() : getValue(vrf, register, name);
     if (nextNode != null) {
-      return nextNode.getValue(vrf.getIndexedVariableResolver(register).getValue(), elCtx, vrf);
+      return nextNode.getValue(value, elCtx, vrf);
     }
     else {
-      return vrf.getIndexedVariableResolver(register).getValue();
+      return value;
     }
   }
 
   public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
     if (nextNode != null) {
-      return nextNode.setValue(variableFactory.getIndexedVariableResolver(register).getValue(), elCtx, variableFactory, value);
+      return nextNode.setValue(name == null ? variableFactory.getIndexedVariableResolver(register).getValue()
+          : getValue(variableFactory, register, name), elCtx, variableFactory, value);
     }
-    else {
+    else if (name == null) {
       variableFactory.getIndexedVariableResolver(register).setValue(value);
       return value;
     }
+    else {
+      setValue(variableFactory, register, name, value);
+      return value;
+    }
+  }
+
+  /**
+   * Resolves a variable from the register of an indexed factory, or by name if the factory is not indexed or is a
+   * {@link Frame} laid out for another expression.
+   */
+  public static Object getValue(VariableResolverFactory factory, int register, String name) {
+    Frame frame = Frame.of(factory);
+    if (frame != null) {
+      if (frame.holds(register, name)) return frame.getSlot(register);
+    }
+    else if (factory.isIndexedFactory()) {
+      return factory.getIndexedVariableResolver(register).getValue();
+    }
+    return factory.getVariableResolver(name).getValue();
+  }
+
+  public static void setValue(VariableResolverFactory factory, int register, String name, Object value) {
+    Frame frame = Frame.of(factory);
+    if (frame != null) {
+      if (frame.holds(register, name)) {
+        frame.setSlot(register, value);
+        return;
+      }
+    }
+    else if (factory.isIndexedFactory()) {
+      factory.getIndexedVariableResolver(register).setValue(value);
+      return;
+    }
+    factory.getVariableResolver(name).setValue(value);
   }
 
   public AccessorNode getNextNode() {
@@ -90,7 +90,7 @@ public class CompiledForEachNode extends Node {
       else if (o instanceof Integer) {
         iters[i] = new CountIterator((Integer) o);
       }
-      else {
+      else if ((iters[i] = ParseTools.asIterator(o)) == null) {
         throw new TemplateRuntimeError("cannot iterate object type: " + o.getClass().getName());
       }
     }
@@ -75,7 +75,7 @@ public class ForEachNode extends Node {
       else if (o instanceof Object[]) {
         iters[i] = new ArrayIterator((Object[]) o);
       }
-      else {
+      else if ((iters[i] = ParseTools.asIterator(o)) == null) {
         throw new TemplateRuntimeError("cannot iterate object type: " + o.getClass().getName());
       }
     }
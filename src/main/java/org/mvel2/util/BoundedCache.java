@@ -0,0 +1,192 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bookkeeping shared by the bounded caches of the runtime: a concurrent map of entries, bounded by their number
+ * and their total weight, from which those used least recently are evicted.
+ * <p>
+ * Recency is approximate, so that hits do not contend: the clock only advances when an entry is added, and a hit
+ * stamps its entry with the current time, which it only writes if it has changed.  Entries used between the same
+ * two additions are of equal recency.  The statistics are kept in striped counters for the same reason.
+ */
+public class BoundedCache<K, E extends BoundedCache.Entry> {
+  private final int maxSize;
+  private final long maxWeight;
+
+  private final ConcurrentHashMap<K, E> entries = new ConcurrentHashMap<K, E>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong weight = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maxSize   the maximum number of entries.
+   * @param maxWeight the maximum total weight of the entries.
+   */
+  protected BoundedCache(int maxSize, long maxWeight) {
+    if (maxSize <= 0 || maxWeight <= 0) {
+      throw new IllegalArgumentException("the cache bounds must be positive");
+    }
+    this.maxSize = maxSize;
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * @return the entry for the key, or <tt>null</tt> if there is none.
+   */
+  protected E lookup(K key) {
+    E entry = entries.get(key);
+    if (entry != null) {
+      hits.increment();
+      touch(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Adds the entry for the key, unless another thread added one first.  The cache is not trimmed to its bounds until
+   * {@link #trim()} is called, so that the entry may be completed first.
+   *
+   * @return the entry added by another thread, or <tt>null</tt> if this one was added.
+   */
+  protected E insert(K key, E entry) {
+    entry.stamp = clock.incrementAndGet();
+    E existing = entries.putIfAbsent(key, entry);
+    if (existing != null) {
+      hits.increment();
+      touch(existing);
+      return existing;
+    }
+    misses.increment();
+    weight.addAndGet(entry.weight);
+    return null;
+  }
+
+  protected void remove(K key, E entry) {
+    if (entries.remove(key, entry)) {
+      weight.addAndGet(-entry.weight);
+    }
+  }
+
+  /**
+   * Evicts the entries used least recently if the cache is over its bounds, down to 90% of them so that eviction
+   * does not run on every miss.  If another thread is already evicting, it is left to do so.
+   */
+  protected void trim() {
+    if (entries.size() <= maxSize && weight.get() <= maxWeight) return;
+    if (!evictionLock.tryLock()) return;
+    try {
+      // the stamps are read once, as they may change while the candidates are sorted.
+      List<Candidate<K, E>> candidates = new ArrayList<Candidate<K, E>>(entries.size());
+      for (Map.Entry<K, E> e : entries.entrySet()) {
+        candidates.add(new Candidate<K, E>(e.getKey(), e.getValue()));
+      }
+      Collections.sort(candidates, new Comparator<Candidate<K, E>>() {
+        public int compare(Candidate<K, E> a, Candidate<K, E> b) {
+          return Long.compare(a.stamp, b.stamp);
+        }
+      });
+
+      long sizeTarget = maxSize - maxSize / 10;
+      long weightTarget = maxWeight - maxWeight / 10;
+      for (Candidate<K, E> candidate : candidates) {
+        if (entries.size() <= sizeTarget && weight.get() <= weightTarget) break;
+        if (entries.remove(candidate.key, candidate.entry)) {
+          weight.addAndGet(-candidate.entry.weight);
+          evictions.increment();
+        }
+      }
+    }
+    finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void touch(E entry) {
+    long now = clock.get();
+    if (entry.stamp != now) {
+      entry.stamp = now;
+    }
+  }
+
+  public void clear() {
+    entries.clear();
+    weight.set(0);
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public long getWeight() {
+    return weight.get();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * An entry of the cache, which subclasses extend with what they cache.
+   */
+  public static class Entry {
+    final int weight;
+    volatile long stamp;
+
+    /**
+     * @param weight what the entry counts towards the maximum weight of the cache.
+     */
+    protected Entry(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  private static final class Candidate<K, E extends Entry> {
+    private final K key;
+    private final E entry;
+    private final long stamp;
+
+    private Candidate(K key, E entry) {
+      this.key = key;
+      this.entry = entry;
+      this.stamp = entry.stamp;
+    }
+  }
+}
@@ -18,10 +18,13 @@
 
 package org.mvel2.util;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.mvel2.CompileException;
+import org.mvel2.MVEL;
 import org.mvel2.Operator;
 import org.mvel2.ParserContext;
 import org.mvel2.ast.ASTNode;
@@ -31,7 +34,9 @@ import org.mvel2.ast.BooleanNode;
 import org.mvel2.ast.Contains;
 import org.mvel2.ast.Convertable;
 import org.mvel2.ast.DeclTypedVarNode;
+import org.mvel2.ast.DoubleOperation;
 import org.mvel2.ast.Function;
+import org.mvel2.ast.IfNode;
 import org.mvel2.ast.Instance;
 import org.mvel2.ast.IntAdd;
 import org.mvel2.ast.IntDiv;
@@ -39,6 +44,8 @@ import org.mvel2.ast.IntMult;
 import org.mvel2.ast.IntOptimized;
 import org.mvel2.ast.IntSub;
 import org.mvel2.ast.LiteralNode;
+import org.mvel2.ast.LongOperation;
+import org.mvel2.ast.NumericComparison;
 import org.mvel2.ast.Or;
 import org.mvel2.ast.RegExMatchNode;
 import org.mvel2.ast.Soundslike;
@@ -56,6 +63,8 @@ import static org.mvel2.Operator.TERNARY;
 import static org.mvel2.util.ASTBinaryTree.buildTree;
 import static org.mvel2.util.ParseTools.__resolveType;
 import static org.mvel2.util.ParseTools.boxPrimitive;
+import static org.mvel2.util.ParseTools.forNameWithInner;
+import static org.mvel2.util.ParseTools.unboxPrimitive;
 
 public class CompilerTools {
   /**
@@ -70,6 +79,19 @@ public class CompilerTools {
     ASTLinkedList optimizedAst = new ASTLinkedList();
     ASTNode tk, tkOp, tkOp2;
 
+    boolean folding = MVEL.COMPILER_OPT_FOLD_CONSTANTS && pCtx != null;
+
+    if (folding) {
+      /**
+       * Replace the references to constants by literals, so they can take part in the reductions below.
+       */
+      while (astLinkedList.hasMoreNodes()) {
+        optimizedAst.addTokenNode(inlineStaticConstant(astLinkedList.nextNode(), pCtx));
+      }
+      (astLinkedList = optimizedAst).reset();
+      optimizedAst = new ASTLinkedList();
+    }
+
     /**
      * Re-process the AST and optimize it.
      */
@@ -192,11 +214,13 @@ public class CompilerTools {
           }
 
 
+          ASTNode typed = specialize(bo, pCtx);
+
           if (tkOp2 != null && tkOp2 != tkOp) {
-            optimizeOperator(tkOp2.getOperator(), bo, tkOp2, astLinkedList, optimizedAst, pCtx);
+            optimizeOperator(tkOp2.getOperator(), typed, tkOp2, astLinkedList, optimizedAst, pCtx);
           }
           else {
-            optimizedAst.addTokenNode(bo);
+            optimizedAst.addTokenNode(typed);
           }
         }
         else if (tkOp.isOperator()) {
@@ -280,9 +304,129 @@ public class CompilerTools {
       }
     }
 
+    if (folding) {
+      /**
+       * Fold what the passes above have left constant.
+       */
+      (astLinkedList = optimizedAst).reset();
+      optimizedAst = new ASTLinkedList();
+
+      while (astLinkedList.hasMoreNodes()) {
+        ASTNode folded = foldConstants(astLinkedList.nextNode(), pCtx);
+        folded.nextASTNode = null;
+        optimizedAst.addTokenNode(folded);
+      }
+    }
+
     return optimizedAst;
   }
 
+  /**
+   * Returns a literal for the <tt>static final</tt> field or the enum constant the node refers to, or the node itself.
+   * Only fields holding immutable values are inlined: a final field such as <tt>System.out</tt> can still be
+   * reassigned by the JDK.
+   */
+  private static ASTNode inlineStaticConstant(ASTNode node, ParserContext pCtx) {
+    if (node.getClass() != ASTNode.class || !node.isIdentifier() || node.isLiteral()) {
+      return node;
+    }
+
+    String name = node.getName();
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != '.' && !Character.isJavaIdentifierPart(name.charAt(i))) return node;
+    }
+
+    int dot = name.lastIndexOf('.');
+    if (dot <= 0) {
+      return node;
+    }
+
+    String[] owner = name.substring(0, dot).split("\\.");
+    if (pCtx.hasVarOrInput(owner[0]) || "this".equals(owner[0])) {
+      return node;
+    }
+
+    try {
+      Class cls;
+      if (pCtx.hasImport(owner[0]) && (cls = pCtx.getImport(owner[0])) != null) {
+        for (int i = 1; i < owner.length; i++) {
+          cls = Class.forName(cls.getName() + "$" + owner[i], true, pCtx.getClassLoader());
+        }
+      }
+      else if (node.isFQCN()) {
+        cls = forNameWithInner(name.substring(0, dot), pCtx.getClassLoader());
+      }
+      else {
+        return node;
+      }
+
+      Field field = cls.getField(name.substring(dot + 1));
+      if (!Modifier.isStatic(field.getModifiers()) || !Modifier.isFinal(field.getModifiers())
+          || !(field.isEnumConstant() || field.getType() == String.class || unboxPrimitive(field.getType()).isPrimitive())) {
+        return node;
+      }
+
+      return new LiteralNode(field.get(null), pCtx);
+    }
+    catch (Exception e) {
+      // not a constant: leave it to the accessor optimizer.
+      return node;
+    }
+  }
+
+  /**
+   * Folds, bottom-up, the operations whose operands are all literals, the boolean operators whose outcome is decided
+   * by a literal, and the branches of the <tt>if</tt> statements whose condition is a constant.
+   */
+  private static ASTNode foldConstants(ASTNode node, ParserContext pCtx) {
+    if (node instanceof BooleanNode) {
+      BooleanNode bn = (BooleanNode) node;
+      bn.setLeft(foldConstants(bn.getLeft(), pCtx));
+      bn.setRight(foldConstants(bn.getRight(), pCtx));
+
+      if (node instanceof And || node instanceof Or) {
+        return foldBoolean(bn, node instanceof And);
+      }
+      else if (bn.getLeft() instanceof LiteralNode && bn.getRight() instanceof LiteralNode) {
+        try {
+          return new LiteralNode(bn.getReducedValueAccelerated(null, null, null), pCtx);
+        }
+        catch (RuntimeException e) {
+          // let the error be reported at runtime.
+        }
+      }
+    }
+    else if (node instanceof IfNode && !pCtx.isDebugSymbols()) {
+      ASTNode reduced = ((IfNode) node).eliminateDeadBranches();
+      return reduced != null ? reduced : new LiteralNode(null, pCtx);
+    }
+    return node;
+  }
+
+  private static ASTNode foldBoolean(BooleanNode bn, boolean and) {
+    Object left = bn.getLeft() instanceof LiteralNode ? bn.getLeft().getLiteralValue() : null;
+    Object right = bn.getRight() instanceof LiteralNode ? bn.getRight().getLiteralValue() : null;
+
+    if (left instanceof Boolean) {
+      if ((Boolean) left != and) {
+        // false && x, true || x
+        return bn.getLeft();
+      }
+      else if (right instanceof Boolean || isBoolean(bn.getRight())) {
+        return bn.getRight();
+      }
+    }
+    else if (right instanceof Boolean && (Boolean) right == and && isBoolean(bn.getLeft())) {
+      // x && true, x || false
+      return bn.getLeft();
+    }
+    return bn;
+  }
+
+  private static boolean isBoolean(ASTNode node) {
+    return !(node instanceof LiteralNode) && (node.getEgressType() == Boolean.class || node.getEgressType() == boolean.class);
+  }
+
   private static BinaryOperation boOptimize(int op, ASTNode tk, ASTNode tk2, ParserContext pCtx) {
     if (tk.getEgressType() == Integer.class && tk2.getEgressType() == Integer.class) {
       switch (op) {
@@ -307,6 +451,76 @@ public class CompilerTools {
     }
   }
 
+  /**
+   * Replaces, bottom-up, the binary operations whose operands are known to be primitive numbers by nodes which
+   * evaluate them without boxing.  Only the nodes whose egress type is reliable are trusted: property and literal
+   * nodes, and the typed nodes themselves.  Int and long division are left alone, since they produce a double.
+   */
+  private static ASTNode specialize(ASTNode node, ParserContext pCtx) {
+    if (node.getClass() != BinaryOperation.class) {
+      return node;
+    }
+
+    BinaryOperation bo = (BinaryOperation) node;
+    bo.setLeft(specialize(bo.getLeft(), pCtx));
+    bo.setRight(specialize(bo.getRight(), pCtx));
+
+    Class l = primitiveEgress(bo.getLeft());
+    Class r = primitiveEgress(bo.getRight());
+    if (l == null || r == null) {
+      return bo;
+    }
+
+    int op = bo.getOperation();
+    switch (op) {
+      case Operator.LTHAN:
+      case Operator.LETHAN:
+      case Operator.GTHAN:
+      case Operator.GETHAN:
+      case Operator.EQUAL:
+      case Operator.NEQUAL:
+        return new NumericComparison(op, bo.getLeft(), bo.getRight(), l == r && l != double.class, pCtx);
+
+      case Operator.ADD:
+      case Operator.SUB:
+      case Operator.MULT:
+      case Operator.DIV:
+      case Operator.MOD:
+        if (l == double.class || r == double.class) {
+          return new DoubleOperation(op, bo.getLeft(), bo.getRight(), pCtx);
+        }
+        else if (l == long.class && r == long.class && op != Operator.DIV) {
+          return new LongOperation(op, bo.getLeft(), bo.getRight(), pCtx);
+        }
+        else if (l == int.class && r == int.class) {
+          switch (op) {
+            case Operator.ADD:
+              return new IntAdd(bo.getLeft(), bo.getRight(), pCtx);
+            case Operator.SUB:
+              return new IntSub(bo.getLeft(), bo.getRight(), pCtx);
+            case Operator.MULT:
+              return new IntMult(bo.getLeft(), bo.getRight(), pCtx);
+          }
+        }
+    }
+    return bo;
+  }
+
+  private static Class primitiveEgress(ASTNode node) {
+    Class type;
+    if (node instanceof IntOptimized && !(node instanceof IntDiv)) {
+      type = int.class;
+    }
+    else if (node.getClass() == ASTNode.class || node instanceof LiteralNode || node instanceof LongOperation
+        || node instanceof DoubleOperation) {
+      type = node.getEgressType();
+    }
+    else {
+      return null;
+    }
+    return type == int.class || type == long.class || type == double.class ? type : null;
+  }
+
   private static boolean isReductionOpportunity(ASTNode oper, ASTNode node) {
     ASTNode n = node;
     return (n != null && n.isLiteral()
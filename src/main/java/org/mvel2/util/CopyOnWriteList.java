@@ -0,0 +1,90 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list over elements shared with other instances, which copies them on its first modification.  It lets an inline
+ * list of literals be built once, and handed out to every evaluation which reads it without being copied.
+ */
+public final class CopyOnWriteList extends AbstractList implements RandomAccess, Serializable {
+  private Object[] shared;
+  private ArrayList own;
+
+  /**
+   * @param shared the elements, which must not be changed afterwards.
+   */
+  public CopyOnWriteList(Object[] shared) {
+    this.shared = shared;
+  }
+
+  private ArrayList own() {
+    if (own == null) {
+      own = new ArrayList(Arrays.asList(shared));
+      shared = null;
+    }
+    return own;
+  }
+
+  public Object get(int index) {
+    if (own != null) return own.get(index);
+    if (index < 0 || index >= shared.length) throw new IndexOutOfBoundsException("Index: " + index);
+    return shared[index];
+  }
+
+  public int size() {
+    return own != null ? own.size() : shared.length;
+  }
+
+  public Object set(int index, Object element) {
+    return own().set(index, element);
+  }
+
+  public void add(int index, Object element) {
+    own().add(index, element);
+    modCount++;
+  }
+
+  public Object remove(int index) {
+    Object o = own().remove(index);
+    modCount++;
+    return o;
+  }
+
+  public void clear() {
+    own().clear();
+    modCount++;
+  }
+
+  public Object[] toArray() {
+    return own != null ? own.toArray() : shared.clone();
+  }
+
+  /**
+   * Serializes as a plain list.
+   */
+  private Object writeReplace() {
+    return new ArrayList(this);
+  }
+}
@@ -0,0 +1,240 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.util;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map over entries shared with other instances, which copies them on its first modification.  It lets an inline
+ * map of literals be built once, and handed out to every evaluation which reads it without being copied.  Its views
+ * read the shared entries as well, and only copy them when they are used to modify the map.
+ */
+public final class CopyOnWriteMap extends AbstractMap implements Serializable {
+  private static final int KEYS = 0;
+  private static final int VALUES = 1;
+  private static final int ENTRIES = 2;
+
+  private Map shared;
+  private HashMap own;
+
+  /**
+   * @param shared the entries, which must not be changed afterwards.
+   */
+  public CopyOnWriteMap(Map shared) {
+    this.shared = shared;
+  }
+
+  private HashMap own() {
+    if (own == null) {
+      own = new HashMap(shared);
+      shared = null;
+    }
+    return own;
+  }
+
+  private Map map() {
+    return own != null ? own : shared;
+  }
+
+  public int size() {
+    return map().size();
+  }
+
+  public boolean isEmpty() {
+    return map().isEmpty();
+  }
+
+  public boolean containsKey(Object key) {
+    return map().containsKey(key);
+  }
+
+  public boolean containsValue(Object value) {
+    return map().containsValue(value);
+  }
+
+  public Object get(Object key) {
+    return map().get(key);
+  }
+
+  public Object put(Object key, Object value) {
+    return own().put(key, value);
+  }
+
+  public Object remove(Object key) {
+    return own != null || shared.containsKey(key) ? own().remove(key) : null;
+  }
+
+  public void putAll(Map m) {
+    own().putAll(m);
+  }
+
+  public void clear() {
+    if (own != null || !shared.isEmpty()) own().clear();
+  }
+
+  public Set entrySet() {
+    return new AbstractSet() {
+      public Iterator iterator() {
+        return new ViewIterator(ENTRIES);
+      }
+
+      public int size() {
+        return CopyOnWriteMap.this.size();
+      }
+
+      public boolean contains(Object o) {
+        return map().entrySet().contains(o);
+      }
+
+      public void clear() {
+        CopyOnWriteMap.this.clear();
+      }
+    };
+  }
+
+  public Set keySet() {
+    return new AbstractSet() {
+      public Iterator iterator() {
+        return new ViewIterator(KEYS);
+      }
+
+      public int size() {
+        return CopyOnWriteMap.this.size();
+      }
+
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+
+      public boolean remove(Object o) {
+        if (!containsKey(o)) return false;
+        CopyOnWriteMap.this.remove(o);
+        return true;
+      }
+
+      public void clear() {
+        CopyOnWriteMap.this.clear();
+      }
+    };
+  }
+
+  public Collection values() {
+    return new AbstractCollection() {
+      public Iterator iterator() {
+        return new ViewIterator(VALUES);
+      }
+
+      public int size() {
+        return CopyOnWriteMap.this.size();
+      }
+
+      public boolean contains(Object o) {
+        return containsValue(o);
+      }
+
+      public void clear() {
+        CopyOnWriteMap.this.clear();
+      }
+    };
+  }
+
+  public boolean equals(Object o) {
+    return o == this || map().equals(o);
+  }
+
+  public int hashCode() {
+    return map().hashCode();
+  }
+
+  public String toString() {
+    return map().toString();
+  }
+
+  /**
+   * Serializes as a plain map.
+   */
+  private Object writeReplace() {
+    return new HashMap(map());
+  }
+
+  /**
+   * Iterates over the entries of the map as they are when it is created.  Removing an entry, or setting the value of
+   * one, copies the shared entries first if they have yet to be.
+   */
+  private final class ViewIterator implements Iterator {
+    private final int kind;
+    private final Iterator<Map.Entry> entries;
+    private final boolean sharedEntries;
+    private Map.Entry last;
+
+    private ViewIterator(int kind) {
+      this.kind = kind;
+      this.sharedEntries = own == null;
+      this.entries = map().entrySet().iterator();
+    }
+
+    public boolean hasNext() {
+      return entries.hasNext();
+    }
+
+    public Object next() {
+      last = entries.next();
+      switch (kind) {
+        case KEYS:
+          return last.getKey();
+        case VALUES:
+          return last.getValue();
+        default:
+          return sharedEntries ? new SharedEntry(last.getKey(), last.getValue()) : last;
+      }
+    }
+
+    public void remove() {
+      if (last == null) throw new IllegalStateException();
+      if (sharedEntries) {
+        own().remove(last.getKey());
+      }
+      else {
+        entries.remove();
+      }
+      last = null;
+    }
+  }
+
+  /**
+   * An entry of the shared entries, which writes its value to the map rather than to them.
+   */
+  private final class SharedEntry extends SimpleEntry {
+    private SharedEntry(Object key, Object value) {
+      super(key, value);
+    }
+
+    public Object setValue(Object value) {
+      put(getKey(), value);
+      return super.setValue(value);
+    }
+  }
+}
@@ -15,137 +15,186 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.mvel2.util;
 
 import org.mvel2.ScriptRuntimeException;
+import org.mvel2.math.NumericMode;
 
 import static java.lang.String.valueOf;
 import static org.mvel2.math.MathProcessor.doOperations;
 
+/**
+ * The operand stack of the interpreters, held in an array so that pushing a value does not allocate.  Stacks used
+ * for a single execution can be pooled per thread with {@link #acquire()} and {@link #release()}.
+ */
 public class ExecutionStack {
-  private StackElement element;
+  private static final ThreadLocal<ExecutionStack[]> POOL = new ThreadLocal<ExecutionStack[]>() {
+    protected ExecutionStack[] initialValue() {
+      return new ExecutionStack[1];
+    }
+  };
+
+  private Object[] elements;
   private int size = 0;
 
+  private NumericMode numericMode = NumericMode.DEFAULT;
+
+  /**
+   * The next free stack of the thread's pool, while this one is in the pool.
+   */
+  private ExecutionStack nextFree;
+
+  public ExecutionStack() {
+    this(8);
+  }
+
+  public ExecutionStack(int capacity) {
+    elements = new Object[Math.max(capacity, 2)];
+  }
+
+  /**
+   * Takes an empty stack from the pool of the current thread.  Executions nest, so the pool holds as many stacks as
+   * the deepest nesting the thread has run.
+   */
+  public static ExecutionStack acquire() {
+    ExecutionStack[] pool = POOL.get();
+    ExecutionStack stk = pool[0];
+    if (stk == null) {
+      return new ExecutionStack();
+    }
+    pool[0] = stk.nextFree;
+    stk.nextFree = null;
+    return stk;
+  }
+
+  /**
+   * Clears the stack and returns it to the pool of the current thread.  It must not be used afterwards.
+   */
+  public void release() {
+    clear();
+    numericMode = NumericMode.DEFAULT;
+    ExecutionStack[] pool = POOL.get();
+    nextFree = pool[0];
+    pool[0] = this;
+  }
+
+  /**
+   * Sets the numeric mode of the operations reduced on this stack.
+   */
+  public void setNumericMode(NumericMode numericMode) {
+    this.numericMode = numericMode;
+  }
+
+  private void grow(int needed) {
+    if (size + needed > elements.length) {
+      Object[] grown = new Object[Math.max(elements.length * 2, size + needed)];
+      System.arraycopy(elements, 0, grown, 0, size);
+      elements = grown;
+    }
+  }
+
   public boolean isEmpty() {
     return size == 0;
   }
 
+  /**
+   * Adds a value to the bottom of the stack.
+   */
   public void add(Object o) {
+    grow(1);
+    System.arraycopy(elements, 0, elements, 1, size);
+    elements[0] = o;
     size++;
-    StackElement el = element;
-    if (el != null) {
-      while (el.next != null) {
-        el = el.next;
-      }
-      el.next = new StackElement(null, o);
-    }
-    else {
-      element = new StackElement(null, o);
-    }
   }
 
   public void push(Object o) {
-    size++;
-    element = new StackElement(element, o);
-    assert size == deepCount();
-
+    grow(1);
+    elements[size++] = o;
   }
 
   public void push(Object obj1, Object obj2) {
-    size += 2;
-    element = new StackElement(new StackElement(element, obj1), obj2);
-    assert size == deepCount();
-
+    grow(2);
+    elements[size++] = obj1;
+    elements[size++] = obj2;
   }
 
   public void push(Object obj1, Object obj2, Object obj3) {
-    size += 3;
-    element = new StackElement(new StackElement(new StackElement(element, obj1), obj2), obj3);
-    assert size == deepCount();
-
+    grow(3);
+    elements[size++] = obj1;
+    elements[size++] = obj2;
+    elements[size++] = obj3;
   }
 
   public Object peek() {
     if (size == 0) return null;
-    else return element.value;
+    else return elements[size - 1];
   }
 
   public void dup() {
-    size++;
-    element = new StackElement(element, element.value);
-    assert size == deepCount();
-
+    push(elements[size - 1]);
   }
 
   public Boolean peekBoolean() {
     if (size == 0) return null;
-    if (element.value instanceof Boolean) return (Boolean) element.value;
-    throw new ScriptRuntimeException("expected Boolean; but found: " + (element.value == null ? "null" : element.value.getClass().getName()));
+    return asBoolean(elements[size - 1]);
   }
 
+  private static Boolean asBoolean(Object value) {
+    if (value instanceof Boolean) return (Boolean) value;
+    throw new ScriptRuntimeException("expected Boolean; but found: " + (value == null ? "null" : value.getClass().getName()));
+  }
+
+  /**
+   * Moves the two values on top of another stack onto this one, keeping their order reversed.
+   */
   public void copy2(ExecutionStack es) {
-    element = new StackElement(new StackElement(element, es.element.value), es.element.next.value);
-    es.element = es.element.next.next;
-    size += 2;
-    es.size -= 2;
+    push(es.elements[es.size - 1], es.elements[es.size - 2]);
+    es.discard(2);
   }
 
+  /**
+   * Moves the two values on top of another stack onto this one, keeping their order.
+   */
   public void copyx2(ExecutionStack es) {
-    element = new StackElement(new StackElement(element, es.element.next.value), es.element.value);
-    es.element = es.element.next.next;
-    size += 2;
-    es.size -= 2;
+    push(es.elements[es.size - 2], es.elements[es.size - 1]);
+    es.discard(2);
   }
 
   public Object peek2() {
-    return element.next.value;
+    return elements[size - 2];
   }
 
   public Object pop() {
     if (size == 0) {
       return null;
     }
-    try {
-      size--;
-      return element.value;
-    }
-    finally {
-      element = element.next;
-      assert size == deepCount();
-    }
+    Object value = elements[--size];
+    elements[size] = null;
+    return value;
   }
 
   public Boolean popBoolean() {
-    if (size-- == 0) {
+    if (size == 0) {
       return null;
     }
-    try {
-      if (element.value instanceof Boolean) return (Boolean) element.value;
-      throw new ScriptRuntimeException("expected Boolean; but found: " + (element.value == null ? "null" : element.value.getClass().getName()));
-    }
-    finally {
-      element = element.next;
-      assert size == deepCount();
-
-    }
+    return asBoolean(pop());
   }
 
   public Object pop2() {
-    try {
-      size -= 2;
-      return element.value;
-    }
-    finally {
-      element = element.next.next;
-      assert size == deepCount();
-    }
+    Object value = elements[size - 1];
+    discard(2);
+    return value;
   }
 
   public void discard() {
     if (size != 0) {
-      size--;
-      element = element.next;
+      elements[--size] = null;
+    }
+  }
+
+  private void discard(int count) {
+    while (count-- > 0) {
+      elements[--size] = null;
     }
   }
 
@@ -158,72 +207,65 @@ public class ExecutionStack {
   }
 
   public void clear() {
-    size = 0;
-    element = null;
+    while (size > 0) {
+      elements[--size] = null;
+    }
   }
 
+  /**
+   * Reduces <tt>[a, operator, b]</tt> on top of the stack to the result of the operation.
+   */
   public void xswap_op() {
-    element = new StackElement(element.next.next.next, doOperations(element.next.next.value, (Integer) element.next.value, element.value));
-    size -= 2;
-    assert size == deepCount();
+    Object result = doOperations(elements[size - 3], (Integer) elements[size - 2], elements[size - 1], numericMode);
+    discard(2);
+    elements[size - 1] = result;
   }
 
+  /**
+   * Reduces <tt>[a, b, operator]</tt> on top of the stack to the result of the operation.
+   */
   public void op() {
-    element = new StackElement(element.next.next.next, doOperations(element.next.next.value, (Integer) element.value, element.next.value));
-    size -= 2;
-    assert size == deepCount();
+    Object result = doOperations(elements[size - 3], (Integer) elements[size - 1], elements[size - 2], numericMode);
+    discard(2);
+    elements[size - 1] = result;
   }
 
+  /**
+   * Reduces <tt>[a, b]</tt> on top of the stack to the result of the operation.
+   */
   public void op(int operator) {
-    element = new StackElement(element.next.next, doOperations(element.next.value, operator, element.value));
-    size--;
-    assert size == deepCount();
+    Object result = doOperations(elements[size - 2], operator, elements[size - 1], numericMode);
+    discard(1);
+    elements[size - 1] = result;
   }
 
   public void xswap() {
-    StackElement e = element.next;
-    StackElement relink = e.next;
-    e.next = element;
-    (element = e).next.next = relink;
+    Object top = elements[size - 1];
+    elements[size - 1] = elements[size - 2];
+    elements[size - 2] = top;
   }
 
+  /**
+   * Reverses the three values on top of the stack.
+   */
   public void xswap2() {
-    StackElement node2 = element.next;
-    StackElement node3 = node2.next;
-
-    (node2.next = element).next = node3.next;
-    element = node3;
-    element.next = node2;
+    Object top = elements[size - 1];
+    elements[size - 1] = elements[size - 3];
+    elements[size - 3] = top;
   }
 
   public int deepCount() {
-    int count = 0;
-
-    if (element == null) {
-      return 0;
-    }
-    else {
-      count++;
-    }
-
-    StackElement element = this.element;
-    while ((element = element.next) != null) {
-      count++;
-    }
-    return count;
+    return size;
   }
 
   public String toString() {
-    StackElement el = element;
-
-    if (element == null) return "<EMPTY>";
+    if (size == 0) return "<EMPTY>";
 
     StringBuilder appender = new StringBuilder().append("[");
-    do {
-      appender.append(valueOf(el.value));
-      if (el.next != null) appender.append(", ");
+    for (int i = size - 1; i >= 0; i--) {
+      appender.append(valueOf(elements[i]));
+      if (i != 0) appender.append(", ");
     }
-    while ((el = el.next) != null);
 
     appender.append("]");
 
@@ -0,0 +1,119 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Defines JIT classes as hidden classes (<tt>Lookup.defineHiddenClass</tt>, JDK 15 and later) rather than regular
+ * classes of an {@link MVELClassLoader}.  A hidden class is not registered in its class loader, so it becomes
+ * unloadable as soon as it is no longer referenced, instead of living as long as the loader itself.
+ * <p>
+ * The hidden classes are nested in a small host class defined into the specified <tt>MVELClassLoader</tt>, so they
+ * see the same classes as if they had been defined by the loader.  The generated classes must be in the default
+ * package, like the host.
+ */
+public class HiddenClassDefiner {
+  private static final String HOST_CLASS = "MVELHiddenClassHost";
+
+  private static final Method defineHiddenClass;
+  private static final Object noOptions;
+
+  static {
+    Method m = null;
+    Object options = null;
+    try {
+      Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+      options = Array.newInstance(classOption, 0);
+      m = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+    }
+    catch (Exception e) {
+      // hidden classes are not supported by this JVM.
+    }
+    defineHiddenClass = m;
+    noOptions = options;
+  }
+
+  private final MVELClassLoader classLoader;
+  private final MethodHandles.Lookup lookup;
+
+  public HiddenClassDefiner(MVELClassLoader classLoader) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("hidden classes are not supported by this JVM");
+    }
+
+    this.classLoader = classLoader;
+    byte[] host = createHostClass();
+    try {
+      Class<?> hostClass = classLoader.defineClassX(HOST_CLASS, host, 0, host.length);
+      this.lookup = (MethodHandles.Lookup) hostClass.getMethod("lookup").invoke(null);
+    }
+    catch (Exception e) {
+      throw new RuntimeException("unable to define hidden class host", e);
+    }
+  }
+
+  public static boolean isSupported() {
+    return defineHiddenClass != null;
+  }
+
+  public MVELClassLoader getClassLoader() {
+    return classLoader;
+  }
+
+  public Class<?> defineClass(byte[] b) {
+    try {
+      return ((MethodHandles.Lookup) defineHiddenClass.invoke(lookup, b, true, noOptions)).lookupClass();
+    }
+    catch (InvocationTargetException e) {
+      if (e.getTargetException() instanceof RuntimeException) {
+        throw (RuntimeException) e.getTargetException();
+      }
+      else if (e.getTargetException() instanceof Error) {
+        throw (Error) e.getTargetException();
+      }
+      throw new RuntimeException("unable to define hidden class", e.getTargetException());
+    }
+    catch (IllegalAccessException e) {
+      throw new RuntimeException("unable to define hidden class", e);
+    }
+  }
+
+  private static byte[] createHostClass() {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, HOST_CLASS, null, "java/lang/Object", null);
+
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC + ACC_STATIC, "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;", null, null);
+    mv.visitCode();
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;", false);
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+}
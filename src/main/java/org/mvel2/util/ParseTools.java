@@ -36,13 +36,18 @@ import java.math.MathContext;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.WeakHashMap;
+import java.util.stream.BaseStream;
 
 import org.mvel2.CompileException;
 import org.mvel2.DataTypes;
@@ -534,8 +539,12 @@ public class ParseTools {
 
   private static final Map<ClassLoader, Map<String, WeakReference<Class>>> CLASS_RESOLVER_CACHE
       = Collections.synchronizedMap( new WeakHashMap<ClassLoader, Map<String, WeakReference<Class>>>(1, 1.0f) );
-  private static final Map<Class, WeakReference<Constructor[]>> CLASS_CONSTRUCTOR_CACHE
-      = Collections.synchronizedMap( new WeakHashMap<Class, WeakReference<Constructor[]>>(10) );
+  private static final ClassValue<Constructor[]> CLASS_CONSTRUCTOR_CACHE = new ClassValue<Constructor[]>() {
+    @Override
+    protected Constructor[] computeValue(Class<?> cls) {
+      return cls.getConstructors();
+    }
+  };
 
 
   public static Class createClass(String className, ParserContext pCtx) throws ClassNotFoundException {
@@ -576,16 +585,7 @@ public class ParseTools {
 
 
   public static Constructor[] getConstructors(Class cls) {
-    WeakReference<Constructor[]> ref = CLASS_CONSTRUCTOR_CACHE.get(cls);
-    Constructor[] cns;
-
-    if (ref != null && (cns = ref.get()) != null) {
-      return cns;
-    }
-    else {
-      CLASS_CONSTRUCTOR_CACHE.put(cls, new WeakReference<Constructor[]>(cns = cls.getConstructors()));
-      return cns;
-    }
+    return CLASS_CONSTRUCTOR_CACHE.get(cls);
   }
 
 
@@ -720,6 +720,22 @@ public class ParseTools {
     return cls;
   }
 
+  /**
+   * Adapts the sources which are walked rather than held -- iterators, streams and spliterators -- and the primitive
+   * arrays to an iterator, without copying them.
+   *
+   * @return the iterator, or <tt>null</tt> if the object is none of them.
+   */
+  public static Iterator asIterator(Object o) {
+    if (o instanceof Iterator) return (Iterator) o;
+    else if (o instanceof BaseStream) return ((BaseStream) o).iterator();
+    else if (o instanceof Spliterator) return Spliterators.iterator((Spliterator) o);
+    else if (o instanceof int[]) return Arrays.stream((int[]) o).iterator();
+    else if (o instanceof long[]) return Arrays.stream((long[]) o).iterator();
+    else if (o instanceof double[]) return Arrays.stream((double[]) o).iterator();
+    return null;
+  }
+
   public static boolean containsCheck(Object compareTo, Object compareTest) {
     if (compareTo == null)
       return false;
@@ -729,6 +745,12 @@ public class ParseTools {
       return ((Collection) compareTo).contains(compareTest);
     else if (compareTo instanceof Map)
       return ((Map) compareTo).containsKey(compareTest);
+    else if (compareTo instanceof Iterable) {
+      for (Object o : (Iterable) compareTo) {
+        if (compareTest == null ? o == null : compareTest.equals(o))
+          return true;
+      }
+    }
     else if (compareTo.getClass().isArray()) {
       if (compareTo.getClass().getComponentType().isPrimitive())
         return containsCheckOnPrimitveArray(compareTo, compareTest);
@@ -2159,8 +2181,14 @@ public class ParseTools {
       if (tk.isLiteral() && !tk.isThisVal()) {
         return new ExecutableLiteral(tk.getLiteralValue());
       }
-      return tk.canSerializeAccessor() ? new ExecutableAccessorSafe(tk, compiled.getKnownEgressType()) :
-          new ExecutableAccessor(tk, compiled.getKnownEgressType());
+      if (tk.canSerializeAccessor()) {
+        ExecutableAccessorSafe accessor = new ExecutableAccessorSafe(tk, compiled.getKnownEgressType());
+        accessor.setVariableSlots(compiled.getVariableSlots());
+        return accessor;
+      }
+      ExecutableAccessor accessor = new ExecutableAccessor(tk, compiled.getKnownEgressType());
+      accessor.setVariableSlots(compiled.getVariableSlots());
+      return accessor;
     }
 
     return compiled;
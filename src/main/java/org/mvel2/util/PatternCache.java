@@ -0,0 +1,139 @@
+/**
+ * MVEL 2.0
+ * Copyright (C) 2007 The Codehaus
+ * Mike Brock, Dhanji Prasanna, John Graham, Mark Proctor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvel2.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded cache of compiled regular expressions, for the <tt>~=</tt> matches whose pattern is only known at
+ * runtime.  When it holds more than its maximum number of patterns, those used least recently are evicted.
+ * <p>
+ * Matching also reuses, on each thread, the matchers of the patterns it matched last, resetting them rather than
+ * allocating new ones.  The size of the shared cache is set with the <tt>mvel2.regex.cache_size</tt> system property.
+ */
+public class PatternCache extends BoundedCache<PatternCache.Key, PatternCache.Entry> {
+  private static final int MATCHER_SLOTS = 8;
+
+  private static final PatternCache shared = new PatternCache(Integer.getInteger("mvel2.regex.cache_size", 256));
+
+  private static final ThreadLocal<Matcher[]> matchers = new ThreadLocal<Matcher[]>() {
+    protected Matcher[] initialValue() {
+      return new Matcher[MATCHER_SLOTS];
+    }
+  };
+
+  public PatternCache(int maxSize) {
+    super(maxSize, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return the cache shared by the runtime.
+   */
+  public static PatternCache getShared() {
+    return shared;
+  }
+
+  public Pattern getPattern(String regex) {
+    return getPattern(regex, 0);
+  }
+
+  /**
+   * Returns the compiled pattern, compiling it if it is not cached.
+   *
+   * @throws java.util.regex.PatternSyntaxException if the expression is not valid; it is not cached.
+   */
+  public Pattern getPattern(String regex, int flags) {
+    Key key = new Key(regex, flags);
+    Entry entry = lookup(key);
+    if (entry == null) {
+      Entry created = new Entry(Pattern.compile(regex, flags));
+      if ((entry = insert(key, created)) == null) {
+        entry = created;
+        trim();
+      }
+    }
+    return entry.pattern;
+  }
+
+  /**
+   * Matches the whole input against the expression, compiled through the shared cache.
+   */
+  public static boolean matches(String regex, CharSequence input) {
+    return matches(shared.getPattern(regex), input);
+  }
+
+  /**
+   * Matches the whole input against the pattern, with a matcher of the current thread.
+   */
+  public static boolean matches(Pattern pattern, CharSequence input) {
+    Matcher[] slots = matchers.get();
+    int slot = System.identityHashCode(pattern) & (MATCHER_SLOTS - 1);
+
+    Matcher m = slots[slot];
+    if (m == null || m.pattern() != pattern) {
+      slots[slot] = m = pattern.matcher(input);
+    }
+    else {
+      m.reset(input);
+    }
+
+    try {
+      return m.matches();
+    }
+    finally {
+      // do not hold on to the input.
+      m.reset("");
+    }
+  }
+
+  public String toString() {
+    return "PatternCache[size=" + getSize() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+        + getEvictions() + "]";
+  }
+
+  static final class Key {
+    private final String regex;
+    private final int flags;
+
+    private Key(String regex, int flags) {
+      this.regex = regex;
+      this.flags = flags;
+    }
+
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key k = (Key) o;
+      return flags == k.flags && regex.equals(k.regex);
+    }
+
+    public int hashCode() {
+      return 31 * regex.hashCode() + flags;
+    }
+  }
+
+  static final class Entry extends BoundedCache.Entry {
+    private final Pattern pattern;
+
+    private Entry(Pattern pattern) {
+      super(1);
+      this.pattern = pattern;
+    }
+  }
+}
@@ -1,8 +1,8 @@
 package org.mvel2.util;
 
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -270,8 +270,7 @@ public class ProtoParser {
    */
   public static void checkForPossibleUnresolvedViolations(char[] expr, int cursor, ParserContext pCtx) {
     if (isUnresolvedWaiting()) {
-      LinkedHashMap<String, Object> imports =
-          (LinkedHashMap<String, Object>) pCtx.getParserConfiguration().getImports();
+      Map<String, Object> imports = pCtx.getParserConfiguration().getImports();
 
       Object o = imports.values().toArray()[imports.size() - 1];
 
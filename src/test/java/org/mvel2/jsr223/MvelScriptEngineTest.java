@@ -1,15 +1,28 @@
 package org.mvel2.jsr223;
 
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 import org.junit.Test;
+import org.mvel2.integration.VariableResolver;
 import org.mvel2.tests.BaseMvelTest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MvelScriptEngineTest extends BaseMvelTest {
 
@@ -43,4 +56,171 @@ public class MvelScriptEngineTest extends BaseMvelTest {
         int c = (Integer) compiledScript.eval(simpleBindings);
         assertEquals(c, 3);
     }
-}
\ No newline at end of file
+
+    public interface Calculator {
+        Object square(Object x);
+
+        Object add(Object x, Object y);
+    }
+
+    @Test
+    public void testScriptsAreCompiledOnce() throws ScriptException {
+        MvelScriptEngine engine = new MvelScriptEngine(16);
+
+        SimpleBindings bindings = new SimpleBindings();
+        bindings.put("a", 1);
+        bindings.put("b", 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, engine.eval("a + b", bindings));
+        }
+        assertEquals(1, engine.getScriptCache().getMisses());
+        assertEquals(9, engine.getScriptCache().getHits());
+
+        Serializable compiled = engine.compiledScript("a + b");
+        assertSame(compiled, engine.compiledScript("a + b"));
+    }
+
+    @Test
+    public void testCompileErrors() {
+        MvelScriptEngine engine = new MvelScriptEngine();
+        try {
+            engine.eval("a + (b");
+            fail("should have failed to compile");
+        }
+        catch (ScriptException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvokeFunction() throws Exception {
+        MvelScriptEngine engine = new MvelScriptEngine();
+        engine.eval("factor = 3; def scale(x) { x * factor }; def add(x, y) { x + y }; def square(x) { x * x }");
+
+        assertEquals(12, engine.invokeFunction("scale", 4));
+        assertEquals(5, engine.invokeFunction("add", 2, 3));
+
+        try {
+            engine.invokeFunction("missing", 1);
+            fail("should not find the function");
+        }
+        catch (NoSuchMethodException e) {
+            // expected
+        }
+
+        Calculator calculator = ((Invocable) engine).getInterface(Calculator.class);
+        assertEquals(49, calculator.square(7));
+        assertEquals(9, calculator.add(4, 5));
+        Set<Object> set = new HashSet<Object>();
+        set.add(calculator);
+        set.add(calculator);
+        assertEquals(1, set.size());
+        assertTrue(calculator.equals(calculator));
+        assertFalse(calculator.equals(((Invocable) engine).getInterface(Calculator.class)));
+        assertTrue(calculator.toString().startsWith(Calculator.class.getName() + "@"));
+
+        assertNull(engine.getInterface(Runnable.class));
+    }
+
+    @Test
+    public void testInvokeMethod() throws Exception {
+        MvelScriptEngine engine = new MvelScriptEngine();
+        assertEquals("BAR", engine.invokeMethod("bar", "toUpperCase"));
+        assertEquals("ar", engine.invokeMethod("bar", "substring", 1));
+        assertEquals(true, engine.invokeMethod("foobar", "startsWith", "foo"));
+
+        CharSequence cs = engine.getInterface("hello", CharSequence.class);
+        assertEquals(5, cs.length());
+        assertEquals('e', cs.charAt(1));
+        assertEquals("hello", cs.toString());
+        assertEquals("hello".hashCode(), cs.hashCode());
+        assertFalse(cs.equals("hello"));
+
+        try {
+            engine.invokeMethod("bar", "length() + java.lang.System.getProperty('user.home').length");
+            fail("should not find the method");
+        }
+        catch (NoSuchMethodException e) {
+            // expected
+        }
+        assertEquals(0, engine.getScriptCache().getSize());
+    }
+
+    @Test
+    public void testIndexedBindings() throws Exception {
+        MvelScriptEngine engine = new MvelScriptEngine();
+        IndexedMvelBindings bindings = engine.createIndexedBindings();
+        bindings.put("a", 1);
+        bindings.put("b", 2);
+
+        for (int i = 0; i < 5; i++) {
+            bindings.put("a", i);
+            assertEquals(i + 2, engine.eval("a + b", bindings));
+        }
+
+        engine.eval("c = a * 10", bindings);
+        assertEquals(40, bindings.get("c"));
+        assertEquals(3, bindings.size());
+
+        bindings.remove("c");
+        assertFalse(bindings.containsKey("c"));
+        assertEquals(2, bindings.size());
+        assertEquals(7, engine.eval("c = 7", bindings));
+        assertEquals(7, bindings.get("c"));
+
+        engine.getContext().setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+        engine.eval("def twice(x) { x * 2 }");
+        assertEquals(14, engine.invokeFunction("twice", 7));
+        assertTrue(bindings.keySet().contains("twice"));
+    }
+
+    @Test
+    public void testIndexedBindingsAsMap() {
+        Bindings bindings = new IndexedMvelBindings(1);
+        for (int i = 0; i < 20; i++) {
+            bindings.put("v" + i, i);
+        }
+        assertEquals(20, bindings.size());
+        assertEquals(13, bindings.get("v13"));
+
+        bindings.values().remove(13);
+        assertFalse(bindings.containsKey("v13"));
+        assertEquals(19, bindings.size());
+
+        bindings.clear();
+        assertTrue(bindings.isEmpty());
+        assertNull(bindings.put("v1", "x"));
+        assertEquals("x", bindings.get("v1"));
+
+        try {
+            bindings.put("", 1);
+            fail("empty keys are not allowed");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIndexedBindingsReuseSlots() {
+        IndexedMvelBindings bindings = new IndexedMvelBindings(1);
+        bindings.put("a", 1);
+        VariableResolver a = bindings.getVariableResolverFactory().getVariableResolver("a");
+
+        for (int i = 0; i < 1000; i++) {
+            bindings.put("v" + i, i);
+            assertEquals(i, bindings.remove("v" + i));
+        }
+        assertEquals(1, bindings.size());
+
+        // the slot of a removed name goes to the next name bound; resolvers still held for it look it up again.
+        bindings.remove("a");
+        bindings.put("b", 2);
+        assertNull(a.getValue());
+        a.setValue(3);
+        assertEquals(3, bindings.get("a"));
+        assertEquals(2, bindings.get("b"));
+        assertEquals(2, bindings.size());
+    }
+}
@@ -20,6 +20,8 @@ import org.mvel2.util.StringAppender;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -280,7 +282,7 @@ public abstract class AbstractTest extends BaseMvelTestCase {
 
     CompiledExpression compiled = compiler.compile();
     Object first = null, second = null, third = null, fourth = null, fifth = null, sixth = null, seventh = null,
-        eighth = null;
+        eighth = null, ninth = null;
 
     System.out.println(DebugTools.decompile((Serializable) compiled));
 
@@ -458,6 +460,27 @@ public abstract class AbstractTest extends BaseMvelTestCase {
       }
     }
 
+    try {
+      Serializable xx = compactSerializationTest(compiledD);
+      ninth = executeExpression(xx, new Base(), new MapVariableResolverFactory(createTestMap()));
+    }
+    catch (Exception e) {
+      if (failErrors == null) failErrors = new StringAppender();
+      failErrors.append("\nNINTH TEST (Compact Serializability): { " + ex + " }: EXCEPTION REPORT: \n\n");
+
+      CharArrayWriter writer = new CharArrayWriter();
+      e.printStackTrace(new PrintWriter(writer));
+
+      failErrors.append(writer.toCharArray());
+    }
+
+    if (ninth != null && !ninth.getClass().isArray()) {
+      if (!ninth.equals(seventh)) {
+        throw new AssertionError("Different result from test 7 and 9 (Compiled Re-Run / Compact Serialized) [first: "
+            + valueOf(seventh) + "; second: " + valueOf(ninth) + "]");
+      }
+    }
+
 
     if (failErrors.length() > 0) {
       System.out.println(decompile(compiledD));
@@ -467,6 +490,12 @@ public abstract class AbstractTest extends BaseMvelTestCase {
     return fourth;
   }
 
+  protected static Serializable compactSerializationTest(Serializable s) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(s, out);
+    return MVEL.readCompiled(new ByteArrayInputStream(out.toByteArray()));
+  }
+
   protected static Serializable serializationTest(Serializable s) throws Exception {
     File file = new File("./mvel_ser_test" + currentTimeMillis() + Math.round(Math.random() * 1000) + ".tmp");
     InputStream inputStream = null;
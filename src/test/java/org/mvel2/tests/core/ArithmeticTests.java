@@ -1093,4 +1093,38 @@ public class ArithmeticTests extends AbstractTest {
       Assert.assertTrue((boolean) result);
   }
 
+  public void testMixedIntLongArithmeticIsExact() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("i", 3);
+    vars.put("l", 9007199254740993L);
+
+    Serializable s = MVEL.compileExpression("l + i");
+    for (int i = 0; i < 3; i++) {
+      assertEquals(9007199254740996L, MVEL.executeExpression(s, vars));
+    }
+    assertEquals(9007199254740990L, MVEL.eval("l - i", vars));
+    assertEquals(27021597764222979L, MVEL.eval("l * i", vars));
+    assertEquals(3002399751580331L, MVEL.eval("l / i", vars));
+    assertEquals(0L, MVEL.eval("l % i", vars));
+    assertEquals(true, MVEL.eval("l > 9007199254740992L + i - 3", vars));
+    assertEquals(false, MVEL.eval("l == 9007199254740992L", vars));
+
+    // an overflow carries on in double precision, as it did before.
+    vars.put("l", Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, MVEL.eval("l * i", vars));
+  }
+
+  public void testOperationCacheFollowsOperandTypes() {
+    Serializable s = MVEL.compileExpression("a + b");
+    Object[][] operands = {{1, 2, 3}, {1, 2L, 3L}, {1.5, 2, 3.5}, {2L, 1L, 3L}, {"a", 1, "a1"}, {1, 2, 3}};
+
+    for (int i = 0; i < 3; i++) {
+      for (Object[] operand : operands) {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("a", operand[0]);
+        vars.put("b", operand[1]);
+        assertEquals(operand[2], MVEL.executeExpression(s, vars));
+      }
+    }
+  }
 }
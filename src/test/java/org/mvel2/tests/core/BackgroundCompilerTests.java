@@ -0,0 +1,145 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.dynamic.BackgroundCompiler;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.tests.core.res.Base;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class BackgroundCompilerTests extends AbstractTest {
+
+  private final List<Runnable> queue = new ArrayList<Runnable>();
+
+  private final Executor executor = new Executor() {
+    public void execute(Runnable command) {
+      queue.add(command);
+    }
+  };
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+  }
+
+  protected void tearDown() throws Exception {
+    DynamicOptimizer.setBackgroundCompiler(null);
+    super.tearDown();
+  }
+
+  private void runQueue() {
+    for (Runnable r : queue) r.run();
+    queue.clear();
+  }
+
+  public void testCompilesInBackground() {
+    BackgroundCompiler compiler = new BackgroundCompiler(executor, 10);
+    DynamicOptimizer.setBackgroundCompiler(compiler);
+
+    Serializable s = compileExpression("foo.bar.name");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("dog", executeExpression(s, new Base(), createTestMap()));
+    }
+
+    assertEquals(1, compiler.getSubmittedCount());
+    assertEquals(1, compiler.getQueueDepth());
+    assertEquals(0, compiler.getCompiledCount());
+
+    runQueue();
+
+    assertEquals(0, compiler.getQueueDepth());
+    assertEquals(1, compiler.getCompiledCount());
+    assertTrue(compiler.getMaxCompileTime() > 0);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals("dog", executeExpression(s, new Base(), createTestMap()));
+    }
+    assertEquals(1, compiler.getSubmittedCount());
+  }
+
+  public void testBackPressure() {
+    BackgroundCompiler compiler = new BackgroundCompiler(executor, 1);
+    DynamicOptimizer.setBackgroundCompiler(compiler);
+
+    Serializable s1 = compileExpression("foo.bar.name");
+    Serializable s2 = compileExpression("foo.countTest");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("dog", executeExpression(s1, new Base(), createTestMap()));
+      assertEquals(0, executeExpression(s2, new Base(), createTestMap()));
+    }
+
+    assertEquals(1, compiler.getSubmittedCount());
+    assertTrue(compiler.getRejectedCount() > 0);
+
+    runQueue();
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, executeExpression(s2, new Base(), createTestMap()));
+    }
+    assertEquals(2, compiler.getSubmittedCount());
+  }
+
+  public static class Counter {
+    public int calls;
+
+    public String getName() {
+      calls++;
+      return "counter";
+    }
+
+    public String toUC(String s) {
+      calls++;
+      return s.toUpperCase();
+    }
+  }
+
+  public void testNothingIsEvaluatedInBackground() {
+    BackgroundCompiler compiler = new BackgroundCompiler(executor, 10);
+    DynamicOptimizer.setBackgroundCompiler(compiler);
+
+    Counter counter = new Counter();
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("c", counter);
+
+    Serializable s1 = compileExpression("c.name");
+    Serializable s2 = compileExpression("c.toUC('abc')");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("counter", executeExpression(s1, vars));
+      assertEquals("ABC", executeExpression(s2, vars));
+    }
+    assertEquals(2, compiler.getSubmittedCount());
+    assertEquals(10, counter.calls);
+
+    runQueue();
+    assertEquals(2, compiler.getCompiledCount());
+    assertEquals(10, counter.calls);
+
+    assertEquals("counter", executeExpression(s1, vars));
+    assertEquals("ABC", executeExpression(s2, vars));
+    assertEquals(12, counter.calls);
+  }
+
+  public void testSingleThreadCompiler() throws Exception {
+    BackgroundCompiler compiler = BackgroundCompiler.newSingleThreadCompiler(10);
+    DynamicOptimizer.setBackgroundCompiler(compiler);
+
+    Serializable s = compileExpression("foo.bar.name");
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("dog", executeExpression(s, new Base(), createTestMap()));
+    }
+
+    for (int i = 0; i < 100 && compiler.getQueueDepth() > 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, compiler.getCompiledCount());
+    assertEquals("dog", executeExpression(s, new Base(), createTestMap()));
+  }
+}
@@ -0,0 +1,146 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeBatch;
+
+public class BatchExecutionTests extends AbstractTest {
+
+  public static class Fact {
+    private final int amount;
+
+    public Fact(int amount) {
+      this.amount = amount;
+    }
+
+    public int getAmount() {
+      return amount;
+    }
+  }
+
+  private static Fact[] facts(int count) {
+    Fact[] facts = new Fact[count];
+    for (int i = 0; i < count; i++) {
+      facts[i] = new Fact(i);
+    }
+    return facts;
+  }
+
+  private static Map<String, Object> vars() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("limit", 10);
+    return vars;
+  }
+
+  public void testObjectResults() {
+    Serializable s = compileExpression("amount > limit ? 'high' : 'low'");
+    Object[] results = executeBatch(s, facts(20), vars(), new Object[20]);
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i > 10 ? "high" : "low", results[i]);
+      assertEquals(results[i], MVEL.executeExpression(s, new Fact(i), vars()));
+    }
+  }
+
+  public void testPrimitiveResults() {
+    boolean[] flags = executeBatch(compileExpression("amount % 2 == 0"), facts(5), null, new boolean[5]);
+    assertTrue(Arrays.equals(new boolean[]{true, false, true, false, true}, flags));
+
+    double[] values = executeBatch(compileExpression("amount * 1.5"), facts(4), null, new double[4]);
+    assertTrue(Arrays.equals(new double[]{0, 1.5, 3, 4.5}, values));
+  }
+
+  public void testAssignmentsAreWrittenBack() {
+    Map<String, Object> vars = vars();
+    vars.put("total", 0);
+    executeBatch(compileExpression("total = total + amount"), facts(5), vars, new Object[5]);
+    assertEquals(10, vars.get("total"));
+  }
+
+  public void testReturnDoesNotLeakIntoNextElement() {
+    Serializable s = compileExpression("if (amount > 1) { return 'big'; } 'small'");
+    Object[] results = executeBatch(s, facts(4), null, new Object[4]);
+    assertEquals(Arrays.asList("small", "small", "big", "big"), Arrays.asList(results));
+  }
+
+  public void testTypedLocalsAreScopedToEachElement() {
+    Map vars = vars();
+    Object[] results = executeBatch(compileExpression("int y = amount; y * 2"), facts(3), vars, new Object[3]);
+    assertEquals(Arrays.<Object>asList(0, 2, 4), Arrays.asList(results));
+    assertFalse(vars.containsKey("y"));
+
+    List<Object> list = executeBatch(compileExpression("int y = amount; y * 2"),
+        new ArrayList<Fact>(Arrays.asList(facts(3))), vars());
+    assertEquals(Arrays.<Object>asList(0, 2, 4), list);
+  }
+
+  public void testFunctionsAreScopedToEachElement() {
+    Object[] results = executeBatch(compileExpression("def f(x) { x * 2 }; f(amount)"), facts(3), vars(),
+        new Object[3]);
+    assertEquals(Arrays.<Object>asList(0, 2, 4), Arrays.asList(results));
+  }
+
+  public void testLocalsInParallel() {
+    Serializable s = compileExpression("int y = amount; def f(x) { x + limit }; f(y)");
+    Fact[] facts = facts(3000);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Object[] results = executeBatch(s, facts, vars(), new Object[facts.length], pool);
+      for (int i = 0; i < facts.length; i++) {
+        assertEquals(i + 10, results[i]);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testImports() {
+    ParserContext ctx = new ParserContext();
+    ctx.addImport("Math", Math.class);
+    Object[] results = executeBatch(compileExpression("Math.max(amount, 2)", ctx), facts(4), null, new Object[4]);
+    assertEquals(Arrays.<Object>asList(2, 2, 2, 3), Arrays.asList(results));
+  }
+
+  public void testIterable() {
+    List<Fact> facts = new ArrayList<Fact>(Arrays.asList(facts(3)));
+    assertEquals(Arrays.<Object>asList(10, 11, 12), executeBatch(compileExpression("amount + limit"), facts, vars()));
+  }
+
+  public void testParallel() {
+    Serializable s = compileExpression("amount * 2 + limit");
+    Fact[] facts = facts(20000);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      double[] values = executeBatch(s, facts, vars(), new double[facts.length], pool);
+      Object[] results = executeBatch(s, facts, vars(), new Object[facts.length], pool);
+      for (int i = 0; i < facts.length; i++) {
+        assertEquals(i * 2 + 10.0, values[i]);
+        assertEquals(i * 2 + 10, results[i]);
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testBufferTooSmall() {
+    try {
+      executeBatch(compileExpression("amount"), facts(3), null, new Object[2]);
+      fail("should have failed");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
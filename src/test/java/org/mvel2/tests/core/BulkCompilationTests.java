@@ -0,0 +1,127 @@
+package org.mvel2.tests.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.mvel2.CompileException;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.CompilationResult;
+import org.mvel2.tests.core.res.Foo;
+
+import static org.mvel2.MVEL.executeExpression;
+
+public class BulkCompilationTests extends AbstractTest {
+
+  private static Map<String, Object> vars(int i) {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("i", i);
+    vars.put("foo", new Foo());
+    return vars;
+  }
+
+  public void testResultsInOrder() {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.addImport("Math", Math.class);
+
+    List<String> expressions = new ArrayList<String>();
+    for (int i = 0; i < 500; i++) {
+      switch (i % 5) {
+        case 0:
+          expressions.add("i + " + i);
+          break;
+        case 1:
+          expressions.add("Math.max(i, " + i + ")");
+          break;
+        case 2:
+          expressions.add("foo.bar.name + '" + i + "'");
+          break;
+        case 3:
+          expressions.add("if (i > " + i + ") { 'gt' } else { 'le' }");
+          break;
+        default:
+          expressions.add("i + (" + i);
+      }
+    }
+
+    List<CompilationResult> results;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      results = MVEL.compileAll(expressions, conf, pool);
+    }
+    finally {
+      pool.shutdown();
+    }
+    assertEquals(expressions.size(), results.size());
+
+    for (int i = 0; i < results.size(); i++) {
+      CompilationResult result = results.get(i);
+      assertEquals(expressions.get(i), result.getExpression());
+
+      if (i % 5 == 4) {
+        assertFalse(result.isSuccess());
+        assertNull(result.getCompiled());
+        assertTrue(result.getError() instanceof CompileException);
+      }
+      else {
+        assertTrue(result.toString(), result.isSuccess());
+        Object expected = executeExpression(MVEL.compileExpression(expressions.get(i), new ParserContext(conf)), vars(250));
+        assertEquals(expressions.get(i), expected, executeExpression(result.getCompiled(), vars(250)));
+      }
+    }
+  }
+
+  public void testConfigurationIsNotChanged() {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.addImport("Foo", Foo.class);
+
+    List<String> expressions = new ArrayList<String>();
+    expressions.add("import java.util.HashMap; m = new HashMap(); m.put('a', 1); m.a");
+    expressions.add("new Foo().bar.name");
+
+    List<CompilationResult> results = MVEL.compileAll(expressions, conf);
+    assertEquals(1, executeExpression(results.get(0).getCompiled(), new HashMap()));
+    assertEquals("dog", executeExpression(results.get(1).getCompiled(), new HashMap()));
+
+    assertFalse(conf.isFrozen());
+    assertFalse(conf.hasImport("HashMap"));
+  }
+
+  public void testFrozenConfiguration() {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.addImport("Foo", Foo.class);
+
+    ParserConfiguration frozen = conf.freeze();
+    assertTrue(frozen.isFrozen());
+    assertSame(frozen, frozen.freeze());
+    assertEquals(Foo.class, frozen.getImport("Foo"));
+
+    try {
+      frozen.addImport("Bar", Foo.class);
+      fail("a frozen configuration must not change");
+    }
+    catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    try {
+      frozen.getImports().put("Bar", Foo.class);
+      fail("the imports of a frozen configuration must not change");
+    }
+    catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    conf.addImport("Bar", Foo.class);
+    assertFalse(frozen.hasImport("Bar"));
+
+    ParserContext ctx = new ParserContext(frozen);
+    ctx.addImport("Baz", Foo.class);
+    assertTrue(ctx.hasImport("Baz"));
+    assertFalse(frozen.hasImport("Baz"));
+  }
+}
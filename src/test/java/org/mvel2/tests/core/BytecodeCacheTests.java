@@ -0,0 +1,134 @@
+package org.mvel2.tests.core;
+
+import java.io.File;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.dynamic.DynamicGetAccessor;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+import org.mvel2.optimizers.impl.asm.BytecodeCache;
+import org.mvel2.tests.core.res.Base;
+import org.mvel2.tests.core.res.Foo;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class BytecodeCacheTests extends AbstractTest {
+  private File directory;
+  private BytecodeCache cache;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = new File(System.getProperty("java.io.tmpdir"), "mvel-bytecode-" + System.nanoTime());
+    ASMAccessorOptimizer.setBytecodeCache(cache = new BytecodeCache(directory));
+  }
+
+  protected void tearDown() throws Exception {
+    ASMAccessorOptimizer.setBytecodeCache(null);
+    cache.clear();
+    directory.delete();
+    super.tearDown();
+  }
+
+  private Object run(Serializable s) {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("foo", new Foo());
+    return executeExpression(s, new Base(), vars);
+  }
+
+  public void testStoreAndLoad() {
+    OptimizerFactory.setDefaultOptimizer("ASM");
+
+    assertEquals("dog", run(compileExpression("foo.bar.name")));
+    assertEquals(1, cache.getStores());
+    assertEquals(0, cache.getHits());
+
+    // as after a restart: a new expression, generated from the same source against the same types.
+    for (int i = 0; i < 3; i++) {
+      Serializable s = compileExpression("foo.bar.name");
+      assertEquals("dog", run(s));
+      assertEquals("dog", run(s));
+    }
+    assertEquals(3, cache.getHits());
+    assertEquals(1, cache.getStores());
+  }
+
+  public void testAccessorsWithInputsAreNotCached() {
+    OptimizerFactory.setDefaultOptimizer("ASM");
+
+    // only the argument, compiled as an accessor of its own, is stored.
+    assertEquals("DOG", run(compileExpression("foo.toUC(foo.bar.name)")));
+    assertEquals(1, cache.getStores());
+
+    assertEquals("DOG", run(compileExpression("foo.toUC(foo.bar.name)")));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getStores());
+  }
+
+  public void testInvalidation() throws Exception {
+    OptimizerFactory.setDefaultOptimizer("ASM");
+    assertEquals("dog", run(compileExpression("foo.bar.name")));
+    assertEquals(1, cache.getStores());
+
+    // a class loader which no longer sees the classes the accessor was generated against.
+    ClassLoader loader = new URLClassLoader(new URL[0], null);
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("foo", new Foo());
+    String key = BytecodeCache.key("get", "foo.bar.name".toCharArray(), 0, 12, new Base(), new Base(),
+        new MapVariableResolverFactory(vars), new ParserContext());
+    assertTrue(cache.contains(key));
+    assertNull(cache.load(key, "Renamed", loader));
+    assertEquals(1, cache.getInvalidations());
+    assertFalse(cache.contains(key));
+
+    ParserContext ctx = new ParserContext(new ParserConfiguration());
+    assertEquals("dog", run(compileExpression("foo.bar.name", ctx)));
+    assertEquals(2, cache.getStores());
+  }
+
+  public void testKeyCoversImports() {
+    ParserContext a = new ParserContext();
+    a.addImport("Thing", Foo.class);
+    ParserContext b = new ParserContext();
+    b.addImport("Thing", Base.class);
+    ParserContext c = new ParserContext();
+    c.addImport("Thing", Foo.class);
+
+    char[] expr = "Thing.class".toCharArray();
+    String key = BytecodeCache.key("get", expr, 0, expr.length, null, null, null, a);
+    assertFalse(key.equals(BytecodeCache.key("get", expr, 0, expr.length, null, null, null, b)));
+    assertEquals(key, BytecodeCache.key("get", expr, 0, expr.length, null, null, null, c));
+
+    c.addPackageImport("java.util");
+    assertFalse(key.equals(BytecodeCache.key("get", expr, 0, expr.length, null, null, null, c)));
+  }
+
+  public void testDynamicOptimizerSkipsTenuring() {
+    OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+
+    Serializable s = compileExpression("foo.bar.name");
+    for (int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+      assertEquals("dog", run(s));
+    }
+    assertEquals(1, cache.getStores());
+
+    // the first run creates the accessor, the second one loads the persisted class straight away.
+    s = compileExpression("foo.bar.name");
+    assertEquals("dog", run(s));
+    assertEquals("dog", run(s));
+
+    DynamicGetAccessor accessor = (DynamicGetAccessor) ((ExecutableAccessor) s).getNode().getAccessor();
+    assertNotSame(accessor.getSafeAccessor(), accessor.getAccessor());
+    assertEquals(1, cache.getHits());
+    assertEquals("dog", run(s));
+  }
+}
@@ -0,0 +1,141 @@
+package org.mvel2.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.tests.core.res.Base;
+import org.mvel2.tests.core.res.Foo;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class CompiledBundleTests extends AbstractTest {
+  private static final String[] RULES = {
+      "foo.bar.name == 'dog' && foo.countTest > 0",
+      "if (foo.bar.name == 'dog') { 'woof' } else { 'meow' }",
+      "list = [1, 2, 3]; total = 0; foreach (i : list) { total += i }; total",
+      "foo.toUC(foo.bar.name) + ':' + (foo.countTest * 2)",
+      "def square(x) { x * x }; square(foo.countTest)"
+  };
+
+  private static Map<String, Object> vars() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("foo", new Foo());
+    return vars;
+  }
+
+  private static Map<String, Serializable> compileRules() {
+    Map<String, Serializable> bundle = new LinkedHashMap<String, Serializable>();
+    for (int i = 0; i < RULES.length; i++) {
+      bundle.put("rule" + i, compileExpression(RULES[i], new ParserContext()));
+    }
+    return bundle;
+  }
+
+  public void testBundleRoundTrip() throws Exception {
+    Map<String, Serializable> bundle = compileRules();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(bundle, out);
+
+    Map<String, Serializable> loaded = MVEL.readCompiledBundle(new ByteArrayInputStream(out.toByteArray()),
+        getClass().getClassLoader());
+    assertEquals(bundle.keySet().toString(), loaded.keySet().toString());
+
+    for (String name : bundle.keySet()) {
+      Object expected = executeExpression(bundle.get(name), new Base(), vars());
+      for (int i = 0; i < 3; i++) {
+        assertEquals(name, expected, executeExpression(loaded.get(name), new Base(), vars()));
+      }
+    }
+  }
+
+  public void testOptimizedExpressionRoundTrip() throws Exception {
+    Serializable s = compileExpression("foo.bar.name");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("dog", executeExpression(s, new Base(), vars()));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(s, out);
+    Serializable loaded = MVEL.readCompiled(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("dog", executeExpression(loaded, new Base(), vars()));
+    assertEquals("dog", executeExpression(loaded, new Base(), vars()));
+  }
+
+  public void testRejectsForeignStreams() throws Exception {
+    ByteArrayOutputStream java = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(java);
+    oos.writeObject(compileExpression("1 + x"));
+    oos.flush();
+
+    try {
+      MVEL.readCompiled(new ByteArrayInputStream(java.toByteArray()));
+      fail("should have rejected a Java serialization stream");
+    }
+    catch (StreamCorruptedException e) {
+      // expected
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(compileExpression("1 + x"), out);
+    byte[] bytes = out.toByteArray();
+    bytes[5]++;
+    try {
+      MVEL.readCompiled(new ByteArrayInputStream(bytes));
+      fail("should have rejected another version");
+    }
+    catch (StreamCorruptedException e) {
+      assertTrue(e.getMessage().contains("version"));
+    }
+  }
+
+  public void testChecksSerialVersionUIDs() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(compileExpression("1 + x"), out);
+    byte[] bytes = out.toByteArray();
+
+    // the serialVersionUID follows the class name in the class descriptor.
+    byte[] name = ExecutableAccessor.class.getName().getBytes("UTF-8");
+    int at = indexOf(bytes, name);
+    assertTrue(at > 0);
+    bytes[at + name.length]++;
+    try {
+      MVEL.readCompiled(new ByteArrayInputStream(bytes));
+      fail("should have rejected an incompatible class");
+    }
+    catch (InvalidClassException e) {
+      // expected
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte[] sub) {
+    for (int i = 0; i <= bytes.length - sub.length; i++) {
+      int j = 0;
+      while (j < sub.length && bytes[i + j] == sub[j]) j++;
+      if (j == sub.length) return i;
+    }
+    return -1;
+  }
+
+  public void testSingleExpression() throws Exception {
+    Serializable s = compileExpression("x * 2 + 1");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MVEL.writeCompiled(s, out);
+    Serializable loaded = MVEL.readCompiled(new ByteArrayInputStream(out.toByteArray()));
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("x", 20);
+    assertEquals(41, executeExpression(loaded, vars));
+  }
+}
@@ -0,0 +1,126 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.And;
+import org.mvel2.ast.BinaryOperation;
+import org.mvel2.ast.IfNode;
+import org.mvel2.ast.LiteralNode;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.compiler.ExecutableLiteral;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class ConstantFoldingTests extends AbstractTest {
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = true;
+  }
+
+  protected void tearDown() throws Exception {
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = false;
+    super.tearDown();
+  }
+
+  private static ASTNode firstNode(Serializable s) {
+    return s instanceof CompiledExpression ? ((CompiledExpression) s).getFirstNode() : ((ExecutableAccessor) s).getNode();
+  }
+
+  private static Map<String, Object> vars(String name, Object value) {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put(name, value);
+    return vars;
+  }
+
+  public void testFoldLiteralGuard() {
+    Serializable s = compileExpression("x > 0 && 1 == 1");
+    assertEquals(BinaryOperation.class, firstNode(s).getClass());
+    assertEquals(true, executeExpression(s, vars("x", 1)));
+    assertEquals(false, executeExpression(s, vars("x", 0)));
+
+    s = compileExpression("1 == 2 && x.foo()");
+    assertTrue(s instanceof ExecutableLiteral);
+    assertEquals(false, executeExpression(s, vars("x", 1)));
+
+    s = compileExpression("x || 1 > 2");
+    assertEquals(Boolean.TRUE, executeExpression(s, vars("x", true)));
+  }
+
+  public void testInlineStaticFinalFields() {
+    Serializable s = compileExpression("Integer.MAX_VALUE - 1");
+    assertTrue(s instanceof ExecutableLiteral);
+    assertEquals(Integer.MAX_VALUE - 1, executeExpression(s));
+
+    s = compileExpression("java.lang.Long.MIN_VALUE");
+    assertTrue(s instanceof ExecutableLiteral);
+    assertEquals(Long.MIN_VALUE, executeExpression(s));
+
+    assertEquals(Integer.MIN_VALUE, test("list = [java.lang.Integer.MIN_VALUE]; list[0]"));
+  }
+
+  public void testInlineEnumConstants() {
+    ParserContext ctx = new ParserContext();
+    ctx.addImport("State", Thread.State.class);
+    Serializable s = compileExpression("State.NEW", ctx);
+    assertTrue(firstNode(s) instanceof LiteralNode);
+    assertSame(Thread.State.NEW, executeExpression(s));
+
+    assertEquals(true, executeExpression(compileExpression("s == Thread.State.RUNNABLE"), vars("s", Thread.State.RUNNABLE)));
+    assertEquals(new BigDecimal("1.3"), test("new java.math.BigDecimal('1.25').setScale(1, java.math.RoundingMode.HALF_UP)"));
+  }
+
+  public void testMutableFinalFieldsAreNotInlined() {
+    assertFalse(compileExpression("System.out") instanceof ExecutableLiteral);
+  }
+
+  public void testVariablesShadowClasses() {
+    ParserContext ctx = new ParserContext();
+    ctx.addInput("Integer", Map.class);
+    Serializable s = compileExpression("Integer.MAX_VALUE", ctx);
+    assertFalse(s instanceof ExecutableLiteral);
+
+    Map<String, Object> shadow = vars("MAX_VALUE", 42);
+    assertEquals(42, executeExpression(s, vars("Integer", shadow)));
+  }
+
+  public void testDeadBranchElimination() {
+    Serializable s = compileExpression("if (1 > 2) { 'a' } else if (x) { 'b' } else { 'c' }");
+    IfNode ifNode = (IfNode) firstNode(s);
+    assertFalse(ifNode.getCondition() instanceof ExecutableLiteral);
+    assertEquals("b", executeExpression(s, vars("x", true)));
+    assertEquals("c", executeExpression(s, vars("x", false)));
+
+    s = compileExpression("if (x) { 'a' } else if (Integer.MAX_VALUE > 0) { 'b' } else { y.foo() }");
+    ifNode = (IfNode) firstNode(s);
+    assertNull(ifNode.getElseIf().getElseIf());
+    assertNull(ifNode.getElseIf().getElseBlock());
+    assertEquals("b", executeExpression(s, vars("x", false)));
+
+    s = compileExpression("if (1 == 2) { 'a' } else { 'c' }");
+    assertEquals("c", executeExpression(s, vars("x", false)));
+
+    s = compileExpression("y = 1; if (false) { y = 2 }");
+    assertNull(executeExpression(s, new HashMap<String, Object>()));
+  }
+
+  public void testFoldingIsOptIn() {
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = false;
+    Serializable s = compileExpression("x > 0 && 1 == 1");
+    assertEquals(And.class, firstNode(s).getClass());
+    assertEquals(true, executeExpression(s, vars("x", 1)));
+
+    // without folding, a variable resolved at runtime shadows the constant.
+    s = compileExpression("Integer.MAX_VALUE");
+    assertFalse(s instanceof ExecutableLiteral);
+    assertEquals(42, executeExpression(s, vars("Integer", vars("MAX_VALUE", 42))));
+  }
+}
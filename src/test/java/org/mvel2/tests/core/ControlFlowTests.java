@@ -415,6 +415,65 @@ public class ControlFlowTests extends AbstractTest {
     assertEquals(true, MVEL.executeExpression(s, new HashMap()));
   }
 
+  public void testForEachOverIteratorsAndStreams() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("iter", Arrays.asList(1, 2, 3).iterator());
+    vars.put("stream", Arrays.asList(4, 5, 6).stream());
+    vars.put("ints", java.util.stream.IntStream.rangeClosed(1, 1000000));
+    vars.put("split", Arrays.asList("a", "b").spliterator());
+
+    assertEquals(6, executeExpression(compileExpression("s = 0; foreach (x : iter) { s += x }; s"), vars));
+    assertEquals(15, executeExpression(compileExpression("s = 0; foreach (x : stream) { s += x }; s"), vars));
+    assertEquals("ab", executeExpression(compileExpression("s = ''; foreach (x : split) { s += x }; s"), vars));
+
+    // a stream is only walked as far as the loop goes.
+    assertEquals(10, executeExpression(compileExpression("foreach (x : ints) { if (x == 10) { return x; } }"), vars));
+
+    vars.put("iter", Arrays.asList(1, 2, 3).iterator());
+    assertEquals(6, eval("s = 0; foreach (x : iter) { s += x }; s", vars));
+  }
+
+  public void testForEachClosesStreams() {
+    final int[] closed = new int[1];
+    Runnable onClose = new Runnable() {
+      public void run() {
+        closed[0]++;
+      }
+    };
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("stream", Arrays.asList(1, 2, 3).stream().onClose(onClose));
+    assertEquals(6, executeExpression(compileExpression("s = 0; foreach (x : stream) { s += x }; s"), vars));
+    assertEquals(1, closed[0]);
+
+    vars.put("stream", Arrays.asList(1, 2, 3).stream().onClose(onClose));
+    assertEquals(2, executeExpression(compileExpression("foreach (x : stream) { if (x == 2) { return x; } }"), vars));
+    assertEquals(2, closed[0]);
+
+    vars.put("stream", Arrays.asList(1, 2, 3).stream().onClose(onClose));
+    assertEquals(6, eval("s = 0; foreach (x : stream) { s += x }; s", vars));
+    assertEquals(3, closed[0]);
+  }
+
+  public void testForEachOverPrimitiveArrays() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("ints", new int[]{1, 2, 3});
+    vars.put("longs", new long[]{10000000000L, 1L});
+    vars.put("doubles", new double[]{0.5, 0.25});
+    vars.put("bytes", new byte[]{1, 2});
+
+    assertEquals(6, executeExpression(compileExpression("s = 0; foreach (x : ints) { s += x }; s"), vars));
+    assertEquals(10000000001L, executeExpression(compileExpression("s = 0L; foreach (x : longs) { s += x }; s"), vars));
+    assertEquals(0.75, executeExpression(compileExpression("s = 0.0; foreach (x : doubles) { s += x }; s"), vars));
+    assertEquals("12", executeExpression(compileExpression("s = ''; foreach (x : bytes) { s += x }; s"), vars));
+    assertEquals(6, eval("s = 0; foreach (x : ints) { s += x }; s", vars));
+
+    ParserContext ctx = new ParserContext();
+    ctx.setStrongTyping(true);
+    ctx.addInput("ints", int[].class);
+    assertEquals(6, executeExpression(compileExpression("int s = 0; foreach (int x : ints) { s += x }; s", ctx), vars));
+  }
+
   public final void testFunctionCall() {
 
     MVEL.eval(
@@ -0,0 +1,149 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mvel2.CompileException;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.compiler.CompileCache;
+import org.mvel2.tests.core.res.Base;
+
+public class EvalCacheTests extends AbstractTest {
+  private CompileCache cache;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    MVEL.setEvalCache(cache = new CompileCache(100));
+  }
+
+  protected void tearDown() throws Exception {
+    MVEL.setEvalCache(null);
+    super.tearDown();
+  }
+
+  public void testEvalUsesCache() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("x", 10);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(20, MVEL.eval("x * 2", vars));
+      assertEquals("20", MVEL.evalToString(" x * 2 ", vars));
+    }
+    assertEquals(1, cache.getSize());
+    assertEquals(1, cache.getMisses());
+    assertEquals(9, cache.getHits());
+
+    assertEquals("cat", MVEL.eval("data", new Base()));
+    assertEquals(Integer.valueOf(3), MVEL.eval("1 + 2", Integer.class));
+
+    MVEL.eval("y = x + 1", vars);
+    assertEquals(11, vars.get("y"));
+  }
+
+  public void testKeyIncludesConfiguration() {
+    ParserConfiguration a = new ParserConfiguration();
+    a.addImport("Num", Integer.class);
+    ParserConfiguration b = new ParserConfiguration();
+    b.addImport("Num", Long.class);
+
+    Serializable sa = cache.compile("Num.MAX_VALUE", a);
+    Serializable sb = cache.compile("Num.MAX_VALUE", b);
+    assertNotSame(sa, sb);
+    assertEquals(Integer.MAX_VALUE, MVEL.executeExpression(sa));
+    assertEquals(Long.MAX_VALUE, MVEL.executeExpression(sb));
+
+    ParserConfiguration a2 = new ParserConfiguration();
+    a2.addImport("Num", Integer.class);
+    assertSame(sa, cache.compile("Num.MAX_VALUE", a2));
+
+    boolean folding = MVEL.COMPILER_OPT_FOLD_CONSTANTS;
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = !folding;
+    try {
+      assertNotSame(sa, cache.compile("Num.MAX_VALUE", a));
+    }
+    finally {
+      MVEL.COMPILER_OPT_FOLD_CONSTANTS = folding;
+    }
+  }
+
+  public void testConfigurationChangesAreSeen() {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.addImport("Num", Integer.class);
+    assertEquals(Integer.MAX_VALUE, MVEL.executeExpression(cache.compile("Num.MAX_VALUE", conf)));
+
+    conf.addImport("Num", Long.class);
+    assertEquals(Long.MAX_VALUE, MVEL.executeExpression(cache.compile("Num.MAX_VALUE", conf)));
+
+    ParserConfiguration frozen = conf.freeze();
+    Serializable s = cache.compile("Num.MAX_VALUE", frozen);
+    assertSame(s, cache.compile("Num.MAX_VALUE", frozen));
+    assertSame(s, cache.compile("Num.MAX_VALUE", conf));
+  }
+
+  public void testEviction() {
+    CompileCache small = new CompileCache(10);
+    for (int i = 0; i < 20; i++) {
+      small.compile("x + " + i);
+      small.compile("x + 0");
+    }
+    assertTrue(small.getSize() <= 10);
+    assertTrue(small.getEvictions() > 0);
+    assertEquals(20, small.getMisses());
+
+    CompileCache light = new CompileCache(1000, 50, null);
+    for (int i = 0; i < 20; i++) {
+      light.compile("x + " + (100 + i));
+    }
+    assertTrue(light.getWeight() <= 50);
+  }
+
+  public void testFailuresAreNotCached() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        MVEL.eval("1 + (2");
+        fail("should have failed to compile");
+      }
+      catch (CompileException e) {
+        // expected
+      }
+    }
+    assertEquals(0, cache.getSize());
+    assertEquals(2, cache.getMisses());
+  }
+
+  public void testConcurrentMissesCompileOnce() throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Object>> results = new ArrayList<Future<Object>>();
+      for (int i = 0; i < 16; i++) {
+        results.add(executor.submit(new Callable<Object>() {
+          public Object call() throws Exception {
+            start.await();
+            return MVEL.eval("a = 0; foreach (i : [1, 2, 3, 4]) { a += i }; a", new HashMap<String, Object>());
+          }
+        }));
+      }
+      start.countDown();
+
+      for (Future<Object> result : results) {
+        assertEquals(10, result.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    assertEquals(1, cache.getMisses());
+    assertEquals(15, cache.getHits());
+  }
+}
@@ -0,0 +1,198 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.dynamic.DynamicAccessor;
+import org.mvel2.optimizers.dynamic.DynamicClassLoader;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.optimizers.dynamic.EvictionPolicy;
+import org.mvel2.tests.core.res.Base;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class EvictionPolicyTests extends AbstractTest {
+
+  private static class TestAccessor implements DynamicAccessor {
+    int runcount;
+    long stamp;
+    boolean deoptimized;
+
+    TestAccessor(int runcount, long stamp) {
+      this.runcount = runcount;
+      this.stamp = stamp;
+    }
+
+    public void deoptimize() {
+      deoptimized = true;
+    }
+
+    public int getRuncount() {
+      return runcount;
+    }
+
+    public long getStamp() {
+      return stamp;
+    }
+
+    public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+      return null;
+    }
+
+    public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+      return null;
+    }
+
+    public Class getKnownEgressType() {
+      return Object.class;
+    }
+  }
+
+  private DynamicClassLoader loader(EvictionPolicy policy) {
+    return new DynamicClassLoader(getClass().getClassLoader(), 3, policy);
+  }
+
+  public void testFifoEvictsOldest() {
+    DynamicClassLoader cl = loader(EvictionPolicy.FIFO);
+    TestAccessor oldest = new TestAccessor(1000, 3);
+    TestAccessor a = new TestAccessor(1, 1);
+    TestAccessor b = new TestAccessor(1, 2);
+    cl.registerDynamicAccessor(oldest);
+    cl.registerDynamicAccessor(a);
+    cl.registerDynamicAccessor(b);
+
+    assertNotNull(cl.registerDynamicAccessor(new TestAccessor(0, 4)));
+    assertTrue(oldest.deoptimized);
+    assertFalse(a.deoptimized || b.deoptimized);
+  }
+
+  public void testRegistrationIsIdempotent() {
+    DynamicClassLoader cl = loader(EvictionPolicy.FIFO);
+    TestAccessor hot = new TestAccessor(1000, 1);
+    TestAccessor retried = new TestAccessor(60, 2);
+    cl.registerDynamicAccessor(hot);
+    for (int i = 0; i < 3; i++) {
+      assertSame(retried, cl.registerDynamicAccessor(retried));
+    }
+    assertFalse(hot.deoptimized || retried.deoptimized);
+
+    cl.deregisterDynamicAccessor(retried);
+    cl.registerDynamicAccessor(new TestAccessor(0, 3));
+    cl.deoptimizeAll();
+    assertTrue(hot.deoptimized);
+    assertFalse(retried.deoptimized);
+  }
+
+  public void testLruEvictsLeastRecentlyUsed() {
+    DynamicClassLoader cl = loader(EvictionPolicy.LRU);
+    TestAccessor first = new TestAccessor(1, 30);
+    TestAccessor stale = new TestAccessor(1000, 10);
+    TestAccessor last = new TestAccessor(1, 20);
+    cl.registerDynamicAccessor(first);
+    cl.registerDynamicAccessor(stale);
+    cl.registerDynamicAccessor(last);
+
+    assertNotNull(cl.registerDynamicAccessor(new TestAccessor(0, 40)));
+    assertTrue(stale.deoptimized);
+    assertFalse(first.deoptimized || last.deoptimized);
+  }
+
+  public void testLfuEvictsLeastFrequentlyUsed() {
+    DynamicClassLoader cl = loader(EvictionPolicy.LFU);
+    TestAccessor hot = new TestAccessor(1000, 1);
+    TestAccessor cold = new TestAccessor(5, 30);
+    TestAccessor warm = new TestAccessor(100, 2);
+    cl.registerDynamicAccessor(hot);
+    cl.registerDynamicAccessor(cold);
+    cl.registerDynamicAccessor(warm);
+
+    assertNotNull(cl.registerDynamicAccessor(new TestAccessor(0, 40)));
+    assertTrue(cold.deoptimized);
+    assertFalse(hot.deoptimized || warm.deoptimized);
+  }
+
+  public void testTinyLfuAdmission() {
+    EvictionPolicy policy = EvictionPolicy.tinyLfu(16);
+    DynamicClassLoader cl = new DynamicClassLoader(getClass().getClassLoader(), 1, policy);
+
+    TestAccessor hot = new TestAccessor(60, 1);
+    cl.registerDynamicAccessor(hot);
+    for (int i = 0; i < 5; i++) {
+      new DynamicClassLoader(getClass().getClassLoader(), 1, policy).registerDynamicAccessor(hot);
+    }
+
+    // used once: not worth evicting the hot accessor.
+    assertNull(cl.registerDynamicAccessor(new TestAccessor(60, 2)));
+    assertFalse(hot.deoptimized);
+
+    // asking often enough eventually gets it in.
+    TestAccessor rising = new TestAccessor(60, 2);
+    DynamicAccessor admitted = null;
+    for (int i = 0; i < 10 && admitted == null; i++) {
+      admitted = cl.registerDynamicAccessor(rising);
+    }
+    assertSame(rising, admitted);
+    assertTrue(hot.deoptimized);
+  }
+
+  public void testTinyLfuCountsUses() {
+    EvictionPolicy policy = EvictionPolicy.tinyLfu(16);
+    DynamicClassLoader cl = new DynamicClassLoader(getClass().getClassLoader(), 1, policy);
+
+    TestAccessor victim = new TestAccessor(100, 1);
+    cl.registerDynamicAccessor(victim);
+
+    // a newcomer is weighed by its uses, the same way as the accessor it would evict.
+    assertNull(cl.registerDynamicAccessor(new TestAccessor(51, 2)));
+    assertFalse(victim.deoptimized);
+
+    TestAccessor busier = new TestAccessor(200, 2);
+    assertSame(busier, cl.registerDynamicAccessor(busier));
+    assertTrue(victim.deoptimized);
+  }
+
+  public void testPolicyNames() {
+    assertSame(EvictionPolicy.FIFO, EvictionPolicy.forName("fifo"));
+    assertSame(EvictionPolicy.LRU, EvictionPolicy.forName("LRU"));
+    assertSame(EvictionPolicy.LFU, EvictionPolicy.forName("lfu"));
+    assertEquals("tinylfu", EvictionPolicy.forName("tinylfu").toString());
+    try {
+      EvictionPolicy.forName("random");
+      fail("expected exception");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testDynamicOptimizerWithTightTenure() {
+    EvictionPolicy policy = DynamicOptimizer.getEvictionPolicy();
+    int maximumTenure = DynamicOptimizer.maximumTenure;
+    try {
+      OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+      DynamicOptimizer.maximumTenure = 2;
+      for (EvictionPolicy p : new EvictionPolicy[]{EvictionPolicy.LRU, EvictionPolicy.LFU, EvictionPolicy.tinyLfu(2)}) {
+        DynamicOptimizer.setEvictionPolicy(p);
+
+        Serializable hot = compileExpression("foo.bar.name");
+        Serializable[] cold = new Serializable[5];
+        for (int i = 0; i < cold.length; i++) {
+          cold[i] = compileExpression("foo.countTest + " + i);
+        }
+
+        for (int round = 0; round < 20; round++) {
+          assertEquals("dog", executeExpression(hot, new Base(), createTestMap()));
+          for (int i = 0; i < cold.length; i++) {
+            assertEquals(i, executeExpression(cold[i], new Base(), createTestMap()));
+          }
+        }
+      }
+    }
+    finally {
+      DynamicOptimizer.maximumTenure = maximumTenure;
+      DynamicOptimizer.setEvictionPolicy(policy);
+    }
+  }
+}
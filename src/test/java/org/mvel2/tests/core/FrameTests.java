@@ -0,0 +1,143 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.compiler.ExpressionCompiler;
+import org.mvel2.integration.impl.Frame;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.refl.nodes.IndexedVariableAccessor;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class FrameTests extends AbstractTest {
+
+  public static class Point {
+    public int getX() {
+      return 4;
+    }
+  }
+
+  private static Map<String, Object> vars(Object... pairs) {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      vars.put((String) pairs[i], pairs[i + 1]);
+    }
+    return vars;
+  }
+
+  public void testSlotsAreAllocated() {
+    CompiledExpression compiled = new ExpressionCompiler("y = a + b; int z = y * 2; z").compile();
+    assertEquals(new HashSet<String>(Arrays.asList("a", "b", "y", "z")),
+        new HashSet<String>(Arrays.asList(compiled.getVariableSlots())));
+
+    Serializable s = compileExpression("a.size()");
+    assertEquals(Arrays.asList("a"), Arrays.asList(((ExecutableAccessor) s).getVariableSlots()));
+
+    assertNull(new ExpressionCompiler("System.out.println('x'); 1 + 2").compile().getVariableSlots());
+  }
+
+  public void testVariablesAreResolvedBySlot() {
+    for (String optimizer : new String[]{"reflective", "ASM"}) {
+      OptimizerFactory.setDefaultOptimizer(optimizer);
+
+      Serializable s = compileExpression("a.size()");
+      for (int i = 0; i < 3; i++) {
+        assertEquals(i, executeExpression(s, vars("a", Arrays.asList(new Object[i]))));
+      }
+      if (optimizer.equals("reflective")) {
+        assertTrue(((ExecutableAccessor) s).getNode().getAccessor() instanceof IndexedVariableAccessor);
+      }
+    }
+  }
+
+  public void testAssignmentsAreWrittenBack() {
+    Serializable s = compileExpression("y = a + 1; total = 0; foreach (i : list) { total += i }; a = 5; total");
+
+    Map<String, Object> vars = vars("a", 1, "list", Arrays.asList(1, 2, 3));
+    assertEquals(6, executeExpression(s, vars));
+    assertEquals(2, vars.get("y"));
+    assertEquals(5, vars.get("a"));
+    assertEquals(6, vars.get("total"));
+    assertFalse(vars.containsKey("i"));
+  }
+
+  public void testTypedLocals() {
+    Serializable s = compileExpression("int z = '5'; z + 1");
+    assertEquals(6, executeExpression(s, new HashMap<String, Object>()));
+    assertEquals(6, executeExpression(s, new HashMap<String, Object>()));
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    Frame frame = new Frame(new String[]{"z"}, vars);
+    frame.createVariable("z", 1, int.class);
+    try {
+      frame.createVariable("z", 2, int.class);
+      fail("should have failed");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().startsWith("variable already defined within scope"));
+    }
+  }
+
+  public void testUndefinedSlotsFallBackToContext() {
+    Serializable s = compileExpression("x + 1");
+    assertEquals(5, executeExpression(s, new Point(), new HashMap<String, Object>()));
+    assertEquals(5, executeExpression(s, new Point(), new HashMap<String, Object>()));
+
+    s = compileExpression("x + 1");
+    assertEquals(11, executeExpression(s, new Point(), vars("x", 10)));
+    assertEquals(12, executeExpression(s, new Point(), vars("x", 11)));
+  }
+
+  public void testExecutionOverOtherFactories() {
+    for (String optimizer : new String[]{"reflective", "ASM"}) {
+      OptimizerFactory.setDefaultOptimizer(optimizer);
+
+      Serializable s = compileExpression("a + b.size()");
+      List<Integer> list = Arrays.asList(1, 2);
+      for (int i = 0; i < 3; i++) {
+        assertEquals(3, executeExpression(s, vars("a", 1, "b", list)));
+        assertEquals(4, executeExpression(s, new MapVariableResolverFactory(vars("a", 2, "b", list))));
+        assertEquals(5, executeExpression(s, new Frame(new String[]{"b", "a"}, vars("a", 3, "b", list))));
+      }
+    }
+  }
+
+  public void testDuplicateFunctions() {
+    Serializable s = compileExpression("def f(x) { x * 2 }; f(3)");
+    Map<String, Object> vars = new HashMap<String, Object>();
+    assertEquals(6, executeExpression(s, vars));
+    assertTrue(vars.containsKey("f"));
+    try {
+      executeExpression(s, vars);
+      fail("should have failed");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("duplicate function: f"));
+    }
+  }
+
+  public void testSlotsCanBeDisabled() {
+    MVEL.COMPILER_OPT_DISABLE_VARIABLE_SLOTS = true;
+    try {
+      CompiledExpression compiled = new ExpressionCompiler("y = a + 1; y").compile();
+      assertNull(compiled.getVariableSlots());
+
+      Map<String, Object> vars = vars("a", 1);
+      assertEquals(2, executeExpression(compiled, vars));
+      assertEquals(2, vars.get("y"));
+    }
+    finally {
+      MVEL.COMPILER_OPT_DISABLE_VARIABLE_SLOTS = false;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.Accessor;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+import org.mvel2.tests.core.res.Base;
+import org.mvel2.util.HiddenClassDefiner;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class HiddenClassTests extends AbstractTest {
+
+  private boolean hiddenClasses;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    hiddenClasses = MVEL.RUNTIME_OPT_HIDDEN_CLASSES;
+    MVEL.RUNTIME_OPT_HIDDEN_CLASSES = true;
+  }
+
+  protected void tearDown() throws Exception {
+    MVEL.RUNTIME_OPT_HIDDEN_CLASSES = hiddenClasses;
+    super.tearDown();
+  }
+
+  private static boolean isHidden(Class<?> cls) throws Exception {
+    return (Boolean) Class.class.getMethod("isHidden").invoke(cls);
+  }
+
+  public void testAccessorIsHiddenClass() throws Exception {
+    if (!HiddenClassDefiner.isSupported()) return;
+
+    ASMAccessorOptimizer optimizer = (ASMAccessorOptimizer) OptimizerFactory.getAccessorCompiler("ASM");
+    optimizer.init();
+
+    char[] property = "foo.bar.name".toCharArray();
+    Base base = new Base();
+    Accessor accessor = optimizer.optimizeAccessor(new ParserContext(), property, 0, property.length, base, base,
+        new MapVariableResolverFactory(new HashMap()), false, null);
+
+    assertTrue(isHidden(accessor.getClass()));
+    assertEquals("dog", accessor.getValue(base, base, new MapVariableResolverFactory(new HashMap())));
+  }
+
+  public void testHiddenClassesWithDynamicOptimizer() {
+    OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+
+    Serializable s = compileExpression("foo.bar.name + foo.toUC('x')");
+    for (int i = 0; i < 10; i++) {
+      assertEquals("dogX", executeExpression(s, new Base(), createTestMap()));
+    }
+  }
+}
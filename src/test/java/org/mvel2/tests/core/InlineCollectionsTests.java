@@ -4,10 +4,14 @@ import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
 import org.mvel2.compiler.ExpressionCompiler;
 import org.mvel2.tests.core.res.Foo;
+import org.mvel2.util.CopyOnWriteList;
+import org.mvel2.util.CopyOnWriteMap;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -359,5 +363,113 @@ public class InlineCollectionsTests extends AbstractTest {
     assertEquals(4, l.size());
   }
 
+  public void testContainsOnLiteralCollections() {
+    StringBuilder codes = new StringBuilder("[");
+    for (int i = 0; i < 500; i++) {
+      codes.append(i == 0 ? "" : ", ").append("'C").append(i).append("'");
+    }
+    Serializable s = compileExpression(codes.append("] contains code").toString());
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("code", "C499");
+    assertEquals(true, executeExpression(s, vars));
+    vars.put("code", "C500");
+    assertEquals(false, executeExpression(s, vars));
+    vars.put("code", null);
+    assertEquals(false, executeExpression(s, vars));
+
+    vars.put("x", 2L);
+    // lists compare with equals(), arrays with the == operator.
+    assertEquals(false, executeExpression(compileExpression("[1, 2, 3] contains x"), vars));
+    assertEquals(true, executeExpression(compileExpression("{1, 2, 3} contains x"), vars));
+    assertEquals(true, executeExpression(compileExpression("{1, 2, 3} contains 3"), vars));
+    assertEquals(true, executeExpression(compileExpression("[1, 'a', null, true] contains null"), vars));
+    assertEquals(true, executeExpression(compileExpression("['a', 'b'] contains 'b' && {'a', 'b'} contains 'a'"), vars));
+    assertEquals(false, executeExpression(compileExpression("{'a', 'b'} contains 'c'"), vars));
+
+    // not literals only.
+    assertEquals(true, executeExpression(compileExpression("[1, x] contains x"), vars));
+    assertEquals(true, executeExpression(compileExpression("['a', 'b'].subList(1, 2) contains 'b'"), vars));
+  }
+
+  public void testLiteralCollectionsAreBuiltOnce() {
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = true;
+    try {
+      Serializable s = compileExpression("l = [1, 'a', null]; l.add(2); l");
+      for (int i = 0; i < 2; i++) {
+        List l = (List) executeExpression(s, new HashMap());
+        assertEquals(Arrays.asList(1, "a", null, 2), l);
+      }
+
+      s = compileExpression("['a' : 1, 'b' : 2]");
+      Map m = (Map) executeExpression(s, new HashMap());
+      assertEquals(2, m.size());
+      assertEquals(1, m.get("a"));
+      m.put("c", 3);
+      m.remove("a");
+      assertEquals(2, ((Map) executeExpression(s, new HashMap())).size());
+      assertEquals(1, ((Map) executeExpression(s, new HashMap())).get("a"));
+
+      s = compileExpression("a = {1, 2}; a[0] = 5; a");
+      for (int i = 0; i < 2; i++) {
+        assertTrue(Arrays.equals(new Object[]{5, 2}, (Object[]) executeExpression(s, new HashMap())));
+      }
+
+      s = compileExpression("a = new int[] {1, 2}; a[1] = 3; a");
+      for (int i = 0; i < 2; i++) {
+        assertTrue(Arrays.equals(new int[]{1, 3}, (int[]) executeExpression(s, new HashMap())));
+      }
+
+      s = compileExpression("l = []; l.add(1); l.size()");
+      assertEquals(1, executeExpression(s, new HashMap()));
+      assertEquals(1, executeExpression(s, new HashMap()));
+
+      Map<String, Object> vars = new HashMap<String, Object>();
+      vars.put("x", 1);
+      s = compileExpression("[x, 2]");
+      assertEquals(Arrays.asList(1, 2), executeExpression(s, vars));
+      vars.put("x", 3);
+      assertEquals(Arrays.asList(3, 2), executeExpression(s, vars));
+
+      assertEquals(CopyOnWriteList.class, executeExpression(compileExpression("[1, 2]")).getClass());
+      assertEquals(CopyOnWriteMap.class, executeExpression(compileExpression("['a' : 1]")).getClass());
+    }
+    finally {
+      MVEL.COMPILER_OPT_FOLD_CONSTANTS = false;
+    }
+  }
 
+  public void testHoistedMapViews() {
+    MVEL.COMPILER_OPT_FOLD_CONSTANTS = true;
+    try {
+      Serializable s = compileExpression("['a' : 1, 'b' : 2]");
+      Map m = (Map) executeExpression(s, new HashMap());
+      assertEquals(2, m.keySet().size());
+      assertTrue(m.values().contains(2));
+      for (Object o : m.entrySet()) {
+        Map.Entry e = (Map.Entry) o;
+        if ("a".equals(e.getKey())) e.setValue(5);
+      }
+      assertEquals(5, m.get("a"));
+
+      Map other = (Map) executeExpression(s, new HashMap());
+      other.keySet().remove("b");
+      Iterator it = other.values().iterator();
+      it.next();
+      it.remove();
+      assertTrue(other.isEmpty());
+
+      Map fresh = (Map) executeExpression(s, new HashMap());
+      assertEquals(1, fresh.get("a"));
+      assertEquals(2, fresh.size());
+      assertEquals(new HashMap(fresh), fresh);
+    }
+    finally {
+      MVEL.COMPILER_OPT_FOLD_CONSTANTS = false;
+    }
+  }
+
+  public void testHoistingIsOptIn() {
+    assertEquals(ArrayList.class, executeExpression(compileExpression("[1, 2]")).getClass());
+  }
 }
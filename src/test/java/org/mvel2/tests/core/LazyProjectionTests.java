@@ -0,0 +1,172 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mvel2.CompileException;
+import org.mvel2.MVEL;
+import org.mvel2.ast.Fold;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class LazyProjectionTests extends AbstractTest {
+
+  public static class Recorder {
+    public int calls;
+
+    public int twice(int i) {
+      calls++;
+      return i * 2;
+    }
+  }
+
+  public static class Item {
+    private final Recorder recorder;
+    private final int value;
+
+    public Item(Recorder recorder, int value) {
+      this.recorder = recorder;
+      this.value = value;
+    }
+
+    public int getValue() {
+      return value;
+    }
+
+    public int getTwice() {
+      recorder.calls++;
+      return value * 2;
+    }
+  }
+
+  private Recorder recorder;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    MVEL.RUNTIME_OPT_LAZY_PROJECTIONS = true;
+    recorder = new Recorder();
+  }
+
+  protected void tearDown() throws Exception {
+    MVEL.RUNTIME_OPT_LAZY_PROJECTIONS = false;
+    super.tearDown();
+  }
+
+  private Map<String, Object> vars() {
+    List<Item> list = new ArrayList<Item>();
+    for (int i = 0; i < 1000; i++) {
+      list.add(new Item(recorder, i));
+    }
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("list", list);
+    vars.put("r", recorder);
+    return vars;
+  }
+
+  public void testEvaluatedOnDemand() {
+    Collection c = (Collection) executeExpression(compileExpression("($.twice in list)"), vars());
+    assertTrue(c instanceof Fold.LazyProjection);
+    assertEquals(0, recorder.calls);
+
+    assertEquals(0, c.iterator().next());
+    assertEquals(1, recorder.calls);
+    assertEquals(1000, c.size());
+    assertEquals(1, recorder.calls);
+
+    assertEquals(4, c.stream().skip(2).findFirst().get());
+    assertEquals(3, recorder.calls);
+  }
+
+  public void testContainsStopsEarly() {
+    Serializable s = compileExpression("($.twice in list) contains 6");
+    assertEquals(true, executeExpression(s, vars()));
+    assertEquals(4, recorder.calls);
+  }
+
+  public void testForEachStopsEarly() {
+    Serializable s = compileExpression("foreach (x : ($.twice in list)) { if (x == 10) { return x; } } return -1;");
+    assertEquals(10, executeExpression(s, vars()));
+    assertEquals(6, recorder.calls);
+  }
+
+  public void testConstraint() {
+    List c = (List) executeExpression(compileExpression("($.twice in list if $.value % 100 == 0)"), vars());
+    assertFalse(c.isEmpty());
+    assertEquals(1, recorder.calls);
+    assertEquals(400, c.get(2));
+    assertEquals(3, recorder.calls);
+
+    assertEquals(10, c.size());
+    assertEquals(10, recorder.calls);
+    assertEquals(1800, c.get(9));
+    try {
+      c.get(10);
+      fail("should have failed");
+    }
+    catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  public void testElementsAreEvaluatedOnce() {
+    List c = (List) executeExpression(compileExpression("($.twice in list if $.value < 5)"), vars());
+    assertTrue(c.contains(4));
+    assertEquals(3, recorder.calls);
+
+    assertEquals(Arrays.asList(0, 2, 4, 6, 8), c);
+    assertEquals(Arrays.asList(0, 2, 4, 6, 8), new ArrayList<Object>(c));
+    assertEquals(Arrays.asList(0, 2, 4, 6, 8).hashCode(), c.hashCode());
+    assertEquals(5, recorder.calls);
+  }
+
+  public void testSideEffectsAreNotDeferred() {
+    Serializable s = compileExpression("(r.twice($.value) in list)");
+    Collection c = (Collection) executeExpression(s, vars());
+    assertFalse(c instanceof Fold.LazyProjection);
+    assertEquals(1000, recorder.calls);
+  }
+
+  public void testVariablesAreReadWhenCreated() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("items", Arrays.asList(1, 2, 3));
+    vars.put("f", 2);
+    Object p = executeExpression(compileExpression("p = (f * $ in items); f = 5; p"), vars);
+    assertTrue(p instanceof Fold.LazyProjection);
+    assertEquals(Arrays.asList(2, 4, 6), p);
+
+    vars.put("keys", Arrays.asList(10, 100));
+    assertEquals(Arrays.asList(Arrays.asList(10, 20, 30), Arrays.asList(100, 200, 300)),
+        executeExpression(compileExpression("res = []; foreach (k : keys) { res.add((k * $ in items)); } res"), vars));
+  }
+
+  public void testContextPropertiesAreNotDeferred() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("items", Arrays.asList(1, 2, 3));
+    Object p = executeExpression(compileExpression("($ in items if $ < value)"), new Item(recorder, 3), vars);
+    assertFalse(p instanceof Fold.LazyProjection);
+    assertEquals(Arrays.asList(1, 2), p);
+
+    List c = (List) executeExpression(compileExpression("(twice in list)"), vars());
+    assertTrue(c instanceof Fold.LazyProjection);
+    assertEquals(2, c.get(1));
+    assertEquals(2, recorder.calls);
+  }
+
+  public void testNullSourceFailsAtOnce() {
+    Map<String, Object> vars = vars();
+    vars.put("list", null);
+    try {
+      executeExpression(compileExpression("($.twice in list)"), vars);
+      fail("should have failed");
+    }
+    catch (CompileException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.AccessorNode;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.optimizers.AccessorOptimizer;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleFieldAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleGetterAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleMethodAccessor;
+import org.mvel2.optimizers.impl.mh.nodes.MethodHandleStaticVarAccessor;
+import org.mvel2.tests.core.res.Base;
+import org.mvel2.tests.core.res.Foo;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+import static org.mvel2.optimizers.OptimizerFactory.setDefaultOptimizer;
+
+public class MethodHandleOptimizerTests extends AbstractTest {
+
+  private AccessorNode optimize(String expr, Object ctx) {
+    AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler(OptimizerFactory.METHOD_HANDLE);
+    char[] property = expr.toCharArray();
+    return (AccessorNode) ao.optimizeAccessor(new ParserContext(), property, 0, property.length, ctx, ctx,
+        new MapVariableResolverFactory(new HashMap()), false, null);
+  }
+
+  public void testBuildsMethodHandleNodes() {
+    AccessorNode node = optimize("foo.bar.name", new Base());
+    assertTrue(node instanceof MethodHandleFieldAccessor);
+    assertTrue(node.getNextNode() instanceof MethodHandleGetterAccessor);
+    assertTrue(node.getNextNode().getNextNode() instanceof MethodHandleGetterAccessor);
+
+    assertTrue(optimize("toUC('abc')", new Foo()) instanceof MethodHandleMethodAccessor);
+    assertTrue(optimize("STATIC_BAR", new Foo()) instanceof MethodHandleStaticVarAccessor);
+  }
+
+  public void testPropertyAndMethodAccess() {
+    setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+
+    Serializable s = compileExpression("foo.bar.name + foo.toUC('x') + foo.countTest");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("dogX0", executeExpression(s, new Base(), createTestMap()));
+    }
+  }
+
+  public void testArgumentWideningAndCoercion() {
+    setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("i", 5);
+    vars.put("s", "7");
+
+    Serializable widened = compileExpression("Math.abs(i) + Long.valueOf(Math.max((long) i, 3L)).intValue()");
+    assertEquals(10, executeExpression(widened, vars));
+
+    Serializable coerced = compileExpression("Integer.toHexString(s)");
+    assertEquals("7", executeExpression(coerced, vars));
+    assertEquals("7", executeExpression(coerced, vars));
+  }
+
+  public void testCoercedArgumentsAreEvaluatedOnce() {
+    setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+
+    AtomicInteger counter = new AtomicInteger(9);
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("counter", counter);
+
+    Serializable s = compileExpression("Integer.toHexString(String.valueOf(counter.incrementAndGet()))");
+    executeExpression(s, vars);
+    for (int i = 0; i < 3; i++) {
+      int before = counter.get();
+      assertEquals(Integer.toHexString(before + 1), executeExpression(s, vars));
+      assertEquals(before + 1, counter.get());
+    }
+  }
+
+  public void testOverriddenTarget() {
+    setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+
+    Serializable s = compileExpression("o.toString()");
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("o", "abc");
+    assertEquals("abc", executeExpression(s, vars));
+
+    vars.put("o", 42);
+    assertEquals("42", executeExpression(s, vars));
+  }
+
+  public void testTargetExceptionIsWrapped() {
+    setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+
+    Serializable s = compileExpression("Integer.parseInt(s)");
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("s", "1");
+    assertEquals(1, executeExpression(s, vars));
+
+    vars.put("s", "x");
+    try {
+      executeExpression(s, vars);
+      fail("expected exception");
+    }
+    catch (RuntimeException e) {
+      Throwable cause = e;
+      while (cause.getCause() != null) cause = cause.getCause();
+      assertTrue(cause instanceof NumberFormatException);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.mvel2.math.NumericMode;
+
+public class NumericModeTests extends AbstractTest {
+
+  private static Object run(String expr, NumericMode mode, Map<String, Object> vars) {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.setNumericMode(mode);
+    Serializable s = MVEL.compileExpression(expr, new ParserContext(conf));
+    Object first = MVEL.executeExpression(s, new HashMap<String, Object>(vars));
+    assertEquals(first, MVEL.executeExpression(s, new HashMap<String, Object>(vars)));
+    return first;
+  }
+
+  private static Map<String, Object> vars() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("price", new BigDecimal("19.99"));
+    vars.put("qty", 3);
+    vars.put("rate", new BigDecimal("0.0825"));
+    return vars;
+  }
+
+  public void testDefaultMode() {
+    assertEquals(new BigDecimal("59.970"), run("price * qty", NumericMode.DEFAULT, vars()));
+    assertEquals(new BigDecimal("6.663333333333333333333333333333333"),
+        run("price / qty", NumericMode.DEFAULT, vars()));
+  }
+
+  public void testMathContext() {
+    NumericMode mode = new NumericMode(new MathContext(5, RoundingMode.HALF_EVEN));
+    assertEquals(new BigDecimal("6.6633"), run("price / qty", mode, vars()));
+    assertEquals(new BigDecimal("4.9475"), run("price * qty * rate", mode, vars()));
+  }
+
+  public void testFastDecimals() {
+    NumericMode mode = NumericMode.FAST_DECIMAL;
+    assertEquals(new BigDecimal("59.97"), run("price * qty", mode, vars()));
+    assertEquals(new BigDecimal("64.917525"), run("price * qty * (1 + rate)", mode, vars()));
+    assertEquals(new BigDecimal("6.663333333333333"), run("price / qty", mode, vars()));
+    assertEquals(true, run("qty < price", mode, vars()));
+
+    // rounded results stay within the precision of the mode.
+    assertEquals(new BigDecimal("3.996001000000000E+32"),
+        run("price * price * 1000000000000000000000000000000B", mode, vars()));
+
+    Map<String, Object> vars = vars();
+    vars.put("total", new BigDecimal("0.00"));
+    assertEquals(new BigDecimal("59.97"), run("total += price * qty; total", mode, vars));
+  }
+
+  public void testAssignmentsUseTheMode() {
+    NumericMode mode = NumericMode.FAST_DECIMAL;
+    BigDecimal third = new BigDecimal("0.3333333333333333");
+    assertEquals(third, run("a = 1B; a /= 3B; a", mode, vars()));
+    assertEquals(third, run("def f() { a = 1B; a /= 3B; a }; f()", mode, vars()));
+    assertEquals(third, run("m.total = 1B; m.total /= 3B; m.total", mode, holder()));
+
+    BigDecimal precise = new BigDecimal("0.1234567890123456789");
+    BigDecimal up = new BigDecimal("1.123456789012346");
+    BigDecimal down = new BigDecimal("-0.8765432109876543");
+    assertEquals(up, run("x = " + precise + "B; ++x", mode, vars()));
+    assertEquals(down, run("x = " + precise + "B; --x", mode, vars()));
+    assertEquals(up, run("x = " + precise + "B; x++; x", mode, vars()));
+    assertEquals(up, run("def f() { x = " + precise + "B; x++; x }; f()", mode, vars()));
+    assertEquals(up, run("def f() { x = " + precise + "B; ++x }; f()", mode, vars()));
+    assertEquals(down, run("def f() { x = " + precise + "B; x--; x }; f()", mode, vars()));
+  }
+
+  private static Map<String, Object> holder() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("m", new HashMap<String, Object>());
+    return vars;
+  }
+
+  public void testFastDecimalsNeedABoundedPrecision() {
+    try {
+      new NumericMode(MathContext.DECIMAL128, true);
+      fail("should have failed");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testFrozenConfigurationKeepsMode() {
+    ParserConfiguration conf = new ParserConfiguration();
+    conf.setNumericMode(NumericMode.FAST_DECIMAL);
+    assertSame(NumericMode.FAST_DECIMAL, conf.freeze().getNumericMode());
+  }
+}
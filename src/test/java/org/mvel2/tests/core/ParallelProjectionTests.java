@@ -0,0 +1,100 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.Fold;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class ParallelProjectionTests extends AbstractTest {
+  private int threshold;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    threshold = MVEL.RUNTIME_OPT_PARALLEL_PROJECTION_THRESHOLD;
+    MVEL.RUNTIME_OPT_PARALLEL_PROJECTIONS = true;
+    MVEL.RUNTIME_OPT_PARALLEL_PROJECTION_THRESHOLD = 100;
+  }
+
+  protected void tearDown() throws Exception {
+    MVEL.RUNTIME_OPT_PARALLEL_PROJECTIONS = false;
+    MVEL.RUNTIME_OPT_PARALLEL_PROJECTION_THRESHOLD = threshold;
+    super.tearDown();
+  }
+
+  private static Fold fold(Serializable s) {
+    ASTNode node = s instanceof CompiledExpression ? ((CompiledExpression) s).getFirstNode() : ((ExecutableAccessor) s).getNode();
+    return (Fold) node;
+  }
+
+  private static Map<String, Object> vars(int size) {
+    List<Integer> list = new ArrayList<Integer>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(i);
+    }
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("list", list);
+    vars.put("offset", 1000);
+    return vars;
+  }
+
+  public void testResultsKeepTheirOrder() {
+    Serializable s = compileExpression("($ * 2 + offset in list)");
+    assertTrue(fold(s).isParallelSafe());
+
+    for (int i = 0; i < 3; i++) {
+      List result = (List) executeExpression(s, vars(20000));
+      assertEquals(20000, result.size());
+      for (int j = 0; j < result.size(); j++) {
+        assertEquals(j * 2 + 1000, result.get(j));
+      }
+    }
+  }
+
+  public void testConstraint() {
+    Serializable s = compileExpression("($ in list if $ % 3 == 0 && $ >= offset)");
+    assertTrue(fold(s).isParallelSafe());
+
+    List result = (List) executeExpression(s, vars(20000));
+    assertEquals(6333, result.size());
+    assertEquals(1002, result.get(0));
+    assertEquals(19998, result.get(result.size() - 1));
+  }
+
+  public void testSmallCollectionsStaySequential() {
+    Serializable s = compileExpression("($ + offset in list)");
+    List result = (List) executeExpression(s, vars(10));
+    assertEquals(10, result.size());
+    assertEquals(1009, result.get(9));
+  }
+
+  public void testSideEffectDetection() {
+    assertTrue(fold(compileExpression("(name in things)")).isParallelSafe());
+    assertTrue(fold(compileExpression("($ != 'a=b()' in list if $ <= 2 || $ ~= '.*')")).isParallelSafe());
+    assertTrue(fold(compileExpression("(($ + 1) * 2 in list)")).isParallelSafe());
+
+    assertFalse(fold(compileExpression("($.toString() in list)")).isParallelSafe());
+    assertFalse(fold(compileExpression("($ in list if seen.add($))")).isParallelSafe());
+    assertFalse(fold(compileExpression("(count++ in list)")).isParallelSafe());
+    assertFalse(fold(compileExpression("($ in list if (last = $) != null)")).isParallelSafe());
+  }
+
+  public void testCallsStaySequential() {
+    Map<String, Object> vars = vars(1000);
+    List<Object> seen = new ArrayList<Object>();
+    vars.put("seen", seen);
+
+    List result = (List) executeExpression(compileExpression("(seen.add($) in list)"), vars);
+    assertEquals(1000, result.size());
+    assertEquals(vars.get("list"), seen);
+  }
+}
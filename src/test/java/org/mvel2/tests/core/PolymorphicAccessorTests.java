@@ -0,0 +1,149 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.PolymorphicAccessor;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class PolymorphicAccessorTests extends AbstractTest {
+
+  public static class Cat {
+    public String getName() {
+      return "cat";
+    }
+  }
+
+  public static class Dog {
+    public String getName() {
+      return "dog";
+    }
+  }
+
+  public static class Cow {
+    public String getName() {
+      return "cow";
+    }
+  }
+
+  public static class Pig {
+    public String getName() {
+      return "pig";
+    }
+  }
+
+  public static class Hen {
+    public String getName() {
+      return "hen";
+    }
+  }
+
+  public static class Label {
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    public Map<String, Object> getValues() {
+      return values;
+    }
+  }
+
+  public static class Tag {
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    public Map<String, Object> getValues() {
+      return values;
+    }
+  }
+
+  public static class Badge {
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    public Map<String, Object> getValues() {
+      return values;
+    }
+  }
+
+  public static class Sign {
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    public Map<String, Object> getValues() {
+      return values;
+    }
+  }
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    OptimizerFactory.setDefaultOptimizer("ASM");
+  }
+
+  private Object run(Serializable s, Object animal) {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", animal);
+    return executeExpression(s, vars);
+  }
+
+  public void testPolymorphicVariable() {
+    Serializable s = compileExpression("a.name");
+    ASTNode node = ((ExecutableAccessor) s).getNode();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("cat", run(s, new Cat()));
+      assertEquals("dog", run(s, new Dog()));
+      assertEquals("cow", run(s, new Cow()));
+    }
+
+    assertTrue(node.getAccessor() instanceof PolymorphicAccessor);
+    assertEquals(3, ((PolymorphicAccessor) node.getAccessor()).getEntryCount());
+    assertEquals(0, node.fields & ASTNode.NOJIT);
+  }
+
+  public void testMegamorphicFallback() {
+    Serializable s = compileExpression("a.name");
+    ASTNode node = ((ExecutableAccessor) s).getNode();
+
+    Object[] animals = {new Cat(), new Dog(), new Cow(), new Pig(), new Hen()};
+    for (int i = 0; i < 3; i++) {
+      for (Object animal : animals) {
+        assertEquals(animal.getClass().getSimpleName().toLowerCase(), run(s, animal));
+      }
+    }
+
+    assertFalse(node.getAccessor() instanceof PolymorphicAccessor);
+    assertTrue((node.fields & ASTNode.NOJIT) != 0);
+  }
+
+  public void testSetValueDelegatesToCachedAccessor() {
+    Serializable s = compileExpression("a.values['k']");
+    ASTNode node = ((ExecutableAccessor) s).getNode();
+
+    for (int i = 0; i < 3; i++) {
+      assertNull(run(s, new Label()));
+      assertNull(run(s, new Tag()));
+    }
+    assertTrue(node.getAccessor() instanceof PolymorphicAccessor);
+
+    // JIT compiled accessors only read properties: cache a reflective one, which can write them too.
+    OptimizerFactory.setDefaultOptimizer("reflective");
+    assertNull(run(s, new Badge()));
+    assertEquals(3, ((PolymorphicAccessor) node.getAccessor()).getEntryCount());
+
+    Map<String, Object> vars = new HashMap<String, Object>();
+    Badge badge = new Badge();
+    vars.put("a", badge);
+    node.getAccessor().setValue(null, null, new MapVariableResolverFactory(vars), "v");
+    assertEquals("v", badge.getValues().get("k"));
+
+    // a receiver type not cached yet.
+    Sign sign = new Sign();
+    vars.put("a", sign);
+    node.getAccessor().setValue(null, null, new MapVariableResolverFactory(vars), "v");
+    assertEquals("v", sign.getValues().get("k"));
+    assertEquals(3, ((PolymorphicAccessor) node.getAccessor()).getEntryCount());
+  }
+}
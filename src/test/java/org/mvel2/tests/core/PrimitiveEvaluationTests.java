@@ -0,0 +1,115 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.And;
+import org.mvel2.ast.BinaryOperation;
+import org.mvel2.ast.DoubleOperation;
+import org.mvel2.ast.IntAdd;
+import org.mvel2.ast.IntMult;
+import org.mvel2.ast.LongOperation;
+import org.mvel2.ast.NumericComparison;
+import org.mvel2.ast.Or;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.tests.core.res.Foo;
+
+import static org.mvel2.MVEL.executeExpression;
+
+public class PrimitiveEvaluationTests extends AbstractTest {
+
+  private ParserContext typedContext() {
+    ParserContext ctx = new ParserContext();
+    ctx.setStrongTyping(true);
+    ctx.addInput("i", int.class);
+    ctx.addInput("j", int.class);
+    ctx.addInput("l", long.class);
+    ctx.addInput("m", long.class);
+    ctx.addInput("d", double.class);
+    ctx.addInput("e", double.class);
+    ctx.addInput("foo", Foo.class);
+    return ctx;
+  }
+
+  private Map<String, Object> vars() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("i", 7);
+    vars.put("j", -3);
+    vars.put("l", 10000000000L);
+    vars.put("m", 3L);
+    vars.put("d", 2.5);
+    vars.put("e", -0.5);
+    vars.put("foo", new Foo());
+    return vars;
+  }
+
+  private static ASTNode firstNode(Serializable s) {
+    return s instanceof CompiledExpression ? ((CompiledExpression) s).getFirstNode() : ((ExecutableAccessor) s).getNode();
+  }
+
+  /**
+   * Checks that the typed expression is compiled to the expected node, and evaluates to the same value as the
+   * untyped one.
+   */
+  private void assertTyped(String expr, Class<? extends ASTNode> nodeType) {
+    Serializable typed = MVEL.compileExpression(expr, typedContext());
+    assertEquals(expr, nodeType, firstNode(typed).getClass());
+
+    Object expected = executeExpression(MVEL.compileExpression(expr), vars());
+    assertEquals(expr, expected, executeExpression(typed, vars()));
+    assertEquals(expr, expected, executeExpression(typed, vars()));
+  }
+
+  public void testIntArithmetic() {
+    assertTyped("i + j", IntAdd.class);
+    assertTyped("i * j + 1", IntAdd.class);
+    assertTyped("(i + j) * 2", IntMult.class);
+    assertTyped("foo.countTest * i", IntMult.class);
+  }
+
+  public void testLongArithmetic() {
+    assertTyped("l + m", LongOperation.class);
+    assertTyped("l * m - 1L", LongOperation.class);
+    assertTyped("l % m", LongOperation.class);
+  }
+
+  public void testDoubleArithmetic() {
+    assertTyped("d * e", DoubleOperation.class);
+    assertTyped("d + i", DoubleOperation.class);
+    assertTyped("l / d", DoubleOperation.class);
+    assertTyped("d * i + l", DoubleOperation.class);
+  }
+
+  public void testDivisionIsNotNarrowed() {
+    assertTyped("i / j", BinaryOperation.class);
+    assertTyped("l / m", BinaryOperation.class);
+  }
+
+  public void testComparisons() {
+    assertTyped("i < j", NumericComparison.class);
+    assertTyped("i + j >= 4", NumericComparison.class);
+    assertTyped("l > m * 2L", NumericComparison.class);
+    assertTyped("d == 2.5", NumericComparison.class);
+    assertTyped("i != l", NumericComparison.class);
+    assertTyped("d * i > l", NumericComparison.class);
+  }
+
+  public void testBooleanChain() {
+    assertTyped("i > 0 && l > m && d < 3.0", And.class);
+    assertTyped("i < 0 || d > e", Or.class);
+  }
+
+  public void testTypedEntryPoints() {
+    ASTNode node = firstNode(MVEL.compileExpression("l * m + 1L", typedContext()));
+    assertEquals(30000000001L, node.getLongValue(null, null, new MapVariableResolverFactory(vars())));
+
+    node = firstNode(MVEL.compileExpression("d * 2.0 > i", typedContext()));
+    assertFalse(node.getBooleanValue(null, null, new MapVariableResolverFactory(vars())));
+  }
+}
@@ -0,0 +1,139 @@
+package org.mvel2.tests.core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.compiler.ExecutableStatement;
+import org.mvel2.optimizers.impl.asm.ASMCompiledStatement;
+import org.mvel2.optimizers.impl.asm.ASMStatementCompiler;
+import org.mvel2.tests.core.res.Base;
+
+import static org.mvel2.MVEL.compileExpression;
+import static org.mvel2.MVEL.executeExpression;
+
+public class StatementJITTests extends AbstractTest {
+
+  private Object jit(String expression) {
+    return jit(expression, new HashMap<String, Object>());
+  }
+
+  private Object jit(String expression, Map<String, Object> vars) {
+    Serializable s = compileExpression(expression);
+    Object expected = executeExpression(s, new Base(), new HashMap<String, Object>(vars));
+
+    ExecutableStatement compiled = ASMStatementCompiler.compile((ExecutableStatement) s);
+    assertTrue("expected to compile: " + expression, compiled instanceof ASMCompiledStatement);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected, executeExpression(compiled, new Base(), new HashMap<String, Object>(vars)));
+    }
+    return expected;
+  }
+
+  public void testIntArithmetic() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", 10);
+    vars.put("b", 4);
+    assertEquals(14, jit("a + b", vars));
+    assertEquals(6, jit("a - b", vars));
+    assertEquals(40, jit("a * b", vars));
+    assertEquals(2.5, jit("a / b", vars));
+    assertEquals(2, jit("a % b", vars));
+    assertEquals(true, jit("a > b", vars));
+    assertEquals(false, jit("a <= b", vars));
+    assertEquals(true, jit("a != b", vars));
+  }
+
+  public void testMixedArithmetic() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", 10);
+    vars.put("b", 4L);
+    vars.put("c", 2.5d);
+    assertEquals(14L, jit("a + b", vars));
+    assertEquals(25.0, jit("a * c", vars));
+    assertEquals(0L, jit("b / a", vars));
+    assertEquals("foo10", jit("'foo' + a", vars));
+  }
+
+  public void testLongAndDoubleComparison() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("x", 3L);
+    vars.put("y", Double.NaN);
+    assertEquals(true, jit("x >= 3L", vars));
+    assertEquals(false, jit("y > 1.0", vars));
+    assertEquals(false, jit("y < 1.0", vars));
+    assertEquals(true, jit("y != y", vars));
+  }
+
+  public void testBooleanOperators() {
+    assertEquals(true, jit("1 < 2 && 2 < 3"));
+    assertEquals(false, jit("1 > 2 && foo.toUC('never')"));
+    assertEquals(true, jit("1 < 2 || foo.toUC('never')"));
+    assertEquals(false, jit("!(1 < 2)"));
+  }
+
+  public void testBooleanOperatorsOnVariables() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", 1);
+    vars.put("b", 2);
+    assertEquals(true, jit("a < 2 && b < 3", vars));
+    assertEquals(false, jit("a > 2 && foo.toUC('never')", vars));
+    assertEquals(true, jit("a < 2 || foo.toUC('never')", vars));
+    assertEquals(false, jit("!(a < 2)", vars));
+  }
+
+  public void testTernary() {
+    assertEquals("yes", jit("zero == 0 ? 'yes' : 'no'", createTestMap()));
+    assertEquals("no", jit("zero == 1 ? 'yes' : 'no'", createTestMap()));
+    assertEquals("c", jit("zero == 1 ? 'a' : zero == 2 ? 'b' : 'c'", createTestMap()));
+  }
+
+  public void testMultiStatementAndReturn() {
+    assertEquals(5, jit("x = 2; y = 3; x + y"));
+    assertEquals(2, jit("x = 2; return x; x + 1"));
+    assertEquals(1, jit("x = 1; if (x == 1) { return x; } 10"));
+  }
+
+  public void testIfElse() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", 5);
+    assertEquals("big", jit("if (a > 3) { 'big' } else { 'small' }", vars));
+    assertEquals("mid", jit("if (a > 10) { 'big' } else if (a > 3) { 'mid' } else { 'small' }", vars));
+    assertEquals(null, jit("if (a > 10) { 'big' }", vars));
+  }
+
+  public void testWhile() {
+    assertEquals(45, jit("i = 0; total = 0; while (i < 10) { total += i; i++; } total"));
+  }
+
+  public void testSubstatement() {
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("a", 1);
+    assertEquals(21, jit("(a + 2) * (a + 6)", vars));
+    assertEquals(9, jit("x = (a = 4) + 5; x"));
+  }
+
+  public void testDelegatedNodes() {
+    assertEquals("DOG!", jit("foo.bar.name.toUpperCase() + '!'", createTestMap()));
+  }
+
+  public void testNothingToInline() {
+    assertNull(ASMStatementCompiler.compile((ExecutableStatement) compileExpression("foo.bar.name")));
+  }
+
+  public void testRuntimeHook() {
+    boolean old = MVEL.RUNTIME_OPT_JIT_STATEMENTS;
+    MVEL.RUNTIME_OPT_JIT_STATEMENTS = true;
+    try {
+      Serializable s = compileExpression("x = 0; while (x < 3) { x++ } x * 2");
+      for (int i = 0; i < 10; i++) {
+        assertEquals(6, executeExpression(s, new HashMap<String, Object>()));
+      }
+    }
+    finally {
+      MVEL.RUNTIME_OPT_JIT_STATEMENTS = old;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package org.mvel2.tests.perftests;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mvel2.MVEL;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.dynamic.DynamicAccessor;
+import org.mvel2.optimizers.dynamic.DynamicClassLoader;
+import org.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mvel2.tests.BaseMvelTestCase;
+
+/**
+ * Registers accessors from many threads at once, to check that the dynamic optimizer's accessor registry neither
+ * loses accessors nor serializes the threads.
+ */
+public class AccessorRegistryContentionTests extends BaseMvelTestCase {
+
+	private static final int THREADS = 16;
+
+	private int tenuringThreshold;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		tenuringThreshold = DynamicOptimizer.tenuringThreshold;
+		DynamicOptimizer.tenuringThreshold = 1;
+		OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		DynamicOptimizer.tenuringThreshold = tenuringThreshold;
+		super.tearDown();
+	}
+
+	public void testRegistryEviction() throws Exception {
+		final int perThread = 20000;
+		final int tenure = 1000;
+		final DynamicClassLoader cl = new DynamicClassLoader(getClass().getClassLoader(), tenure);
+		final AtomicInteger deoptimized = new AtomicInteger();
+		final DynamicAccessor[][] retained = new DynamicAccessor[THREADS][perThread];
+
+		run(new Task() {
+			public void run(int thread) {
+				for (int i = 0; i < perThread; i++) {
+					retained[thread][i] = cl.registerDynamicAccessor(new CountingAccessor(deoptimized));
+				}
+			}
+		});
+
+		// every registration beyond the tenure limit evicts exactly one accessor.
+		assertEquals(THREADS * perThread - tenure, deoptimized.get());
+
+		cl.deoptimizeAll();
+		assertTrue(cl.isRetired());
+		assertEquals(THREADS * perThread, deoptimized.get());
+	}
+
+	public void testConcurrentOptimization() throws Exception {
+		final int perThread = 200;
+
+		run(new Task() {
+			public void run(int thread) {
+				Map<String, Object> vars = new HashMap<String, Object>();
+				vars.put("s", "mvel");
+				for (int i = 0; i < perThread; i++) {
+					Serializable s = MVEL.compileExpression("s.length() + " + thread + " + " + i);
+					for (int j = 0; j < 3; j++) {
+						assertEquals(4 + thread + i, MVEL.executeExpression(s, vars));
+					}
+				}
+			}
+		});
+	}
+
+	private interface Task {
+		void run(int thread);
+	}
+
+	/**
+	 * Runs the task on every thread at once, failing if they do not all finish within 30 seconds.
+	 */
+	private void run(final Task task) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch end = new CountDownLatch(THREADS);
+		final AtomicInteger errors = new AtomicInteger(0);
+		for (int i = 0; i < THREADS; i++) {
+			final int thread = i;
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						task.run(thread);
+					} catch (Throwable e) {
+						e.printStackTrace();
+						errors.incrementAndGet();
+					} finally {
+						end.countDown();
+					}
+				}
+			}, "thread-registry-" + i);
+			// JUnit 3 has no test timeouts: a stuck worker must not keep the JVM alive once run() gives up on it.
+			t.setDaemon(true);
+			t.start();
+		}
+		start.countDown();
+		assertEquals("Test did not complete within 30s", true,
+				end.await(30, TimeUnit.SECONDS));
+		assertEquals(0, errors.get());
+	}
+
+	private static class CountingAccessor implements DynamicAccessor {
+		private final AtomicInteger deoptimized;
+
+		CountingAccessor(AtomicInteger deoptimized) {
+			this.deoptimized = deoptimized;
+		}
+
+		public void deoptimize() {
+			deoptimized.incrementAndGet();
+		}
+
+		public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+			return null;
+		}
+
+		public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+			return null;
+		}
+
+		public Class getKnownEgressType() {
+			return Object.class;
+		}
+
+		public int getRuncount() {
+			return 0;
+		}
+
+		public long getStamp() {
+			return 0;
+		}
+	}
+}
@@ -32,6 +32,12 @@ public class ConcurrentEvaluationTests extends BaseMvelTestCase {
 		internalConcurrentEvaluation();
 	}
 
+	@Test(timeout = 10000)
+	public void testMethodHandle() throws Exception {
+		OptimizerFactory.setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+		internalConcurrentEvaluation();
+	}
+
 	private void internalConcurrentEvaluation() throws Exception {
 		final int N = 20;
 		final CountDownLatch start = new CountDownLatch(1);
@@ -0,0 +1,39 @@
+package org.mvel2.tests.perftests;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mvel2.MVEL;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.mvel2.tests.BaseMvelTestCase;
+
+/**
+ * Runs compiled expressions through the interpreter loop of <tt>MVELRuntime</tt> over and over, to check that its
+ * reused operand stack gives the same results on every execution.
+ */
+public class ExecutionStackPerformanceTests extends BaseMvelTestCase {
+
+	private static final int ITERATIONS = 1000;
+
+	public void testRepeatedExecution() {
+		assertResults("x > 5 ? 1 : 2", new int[]{0, 5, 6, 200}, new Object[]{2, 2, 1, 1});
+		assertResults("x > 5 ? x * 2 : x - 1", new int[]{0, 5, 6, 200}, new Object[]{-1, 4, 12, 400});
+		assertResults("x > 100 ? 1 : x > 50 ? 2 : x > 1 ? 3 : 4", new int[]{0, 5, 60, 200}, new Object[]{4, 3, 2, 1});
+	}
+
+	private void assertResults(String expression, int[] xs, Object[] expected) {
+		Serializable s = MVEL.compileExpression(expression);
+		assertTrue(expression, s instanceof CompiledExpression);
+
+		Map<String, Object> vars = new HashMap<String, Object>();
+		VariableResolverFactory factory = new MapVariableResolverFactory(vars);
+		for (int i = 0; i < ITERATIONS; i++) {
+			int k = i % xs.length;
+			vars.put("x", xs[k]);
+			assertEquals(expression + " with x = " + xs[k], expected[k], MVEL.executeExpression(s, factory));
+		}
+	}
+}
@@ -137,6 +137,20 @@ public class TemplateTests extends BaseMvelTestCase {
         assertEquals("Multi:Jane-Jane,John-John,Foo-Foo:Multi", test(s));
     }
 
+    public void testForEachIteratorsStreamsAndPrimitiveArrays() {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("ints", new int[]{1, 2});
+        vars.put("doubles", new double[]{0.5, 1.5});
+        vars.put("iter", Arrays.asList("a", "b").iterator());
+        vars.put("stream", Arrays.asList("c", "d").stream());
+
+        String s = "@foreach{i : ints, d : doubles, x : iter, y : stream}@{i}@{d}@{x}@{y}@end{','}";
+        assertEquals("10.5ac,21.5bd", TemplateRuntime.execute(compileTemplate(s), vars));
+
+        vars.put("longs", new long[]{4L, 5L});
+        assertEquals("4;5", TemplateRuntime.eval("@foreach{l : longs}@{l}@end{';'}", vars));
+    }
+
     public void testComplexTemplate() {
         String s = "@foreach{item : arrayList}@if{item[0] == 'J'}@{item}@end{}@end{}";
         assertEquals("JaneJohn", test(s));
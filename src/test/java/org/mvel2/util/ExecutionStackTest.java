@@ -0,0 +1,76 @@
+package org.mvel2.util;
+
+import junit.framework.TestCase;
+import org.mvel2.Operator;
+
+public class ExecutionStackTest extends TestCase {
+
+  public void testPushPop() {
+    ExecutionStack stk = new ExecutionStack(2);
+    for (int i = 0; i < 20; i++) {
+      stk.push(i);
+    }
+    assertEquals(20, stk.size());
+    assertEquals(19, stk.peek());
+    assertEquals(18, stk.peek2());
+
+    stk.add(-1);
+    assertEquals("[19, 18, 17, 16, 15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0, -1]", stk.toString());
+
+    for (int i = 19; i >= 0; i--) {
+      assertEquals(i, stk.pop());
+    }
+    assertEquals(-1, stk.pop());
+    assertNull(stk.pop());
+    assertNull(stk.popBoolean());
+    assertTrue(stk.isEmpty());
+  }
+
+  public void testOperations() {
+    ExecutionStack stk = new ExecutionStack();
+    stk.push(10, 4, Operator.SUB);
+    stk.op();
+    assertEquals(6, stk.peek());
+
+    stk.push(Operator.MULT, 3);
+    stk.xswap_op();
+    assertEquals(18, stk.peek());
+
+    stk.push(2);
+    stk.op(Operator.ADD);
+    assertEquals(20, stk.pop());
+    assertTrue(stk.isEmpty());
+  }
+
+  public void testSwapAndCopy() {
+    ExecutionStack stk = new ExecutionStack();
+    stk.push(1, 2, 3);
+    stk.xswap();
+    assertEquals("[2, 3, 1]", stk.toString());
+    stk.xswap2();
+    assertEquals("[1, 3, 2]", stk.toString());
+
+    ExecutionStack target = new ExecutionStack();
+    target.copy2(stk);
+    assertEquals("[3, 1]", target.toString());
+    stk.push(4);
+    target.copyx2(stk);
+    assertEquals("[4, 2, 3, 1]", target.toString());
+    assertTrue(stk.isEmpty());
+  }
+
+  public void testPooling() {
+    ExecutionStack outer = ExecutionStack.acquire();
+    ExecutionStack inner = ExecutionStack.acquire();
+    assertNotSame(outer, inner);
+
+    inner.push("value");
+    inner.release();
+    outer.release();
+
+    assertSame(outer, ExecutionStack.acquire());
+    ExecutionStack reused = ExecutionStack.acquire();
+    assertSame(inner, reused);
+    assertTrue(reused.isEmpty());
+  }
+}
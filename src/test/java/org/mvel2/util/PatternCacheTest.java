@@ -0,0 +1,67 @@
+package org.mvel2.util;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import junit.framework.TestCase;
+import org.mvel2.MVEL;
+
+public class PatternCacheTest extends TestCase {
+
+  public void testCaching() {
+    PatternCache cache = new PatternCache(16);
+    Pattern p = cache.getPattern("a+b");
+    assertSame(p, cache.getPattern("a+b"));
+    assertNotSame(p, cache.getPattern("a+b", Pattern.CASE_INSENSITIVE));
+    assertEquals(2, cache.getMisses());
+    assertEquals(1, cache.getHits());
+
+    try {
+      cache.getPattern("(");
+      fail("expected a syntax error");
+    }
+    catch (PatternSyntaxException e) {
+      assertEquals(2, cache.getSize());
+    }
+  }
+
+  public void testEviction() {
+    PatternCache cache = new PatternCache(10);
+    Pattern kept = cache.getPattern("kept");
+    for (int i = 0; i < 50; i++) {
+      cache.getPattern("p" + i);
+      cache.getPattern("kept");
+    }
+    assertTrue(cache.getSize() <= 10);
+    assertTrue(cache.getEvictions() > 0);
+    assertSame(kept, cache.getPattern("kept"));
+  }
+
+  public void testMatcherReuse() {
+    Pattern a = Pattern.compile("a+");
+    Pattern b = Pattern.compile("b+");
+    for (int i = 0; i < 3; i++) {
+      assertTrue(PatternCache.matches(a, "aaa"));
+      assertFalse(PatternCache.matches(a, "aab"));
+      assertTrue(PatternCache.matches(b, "bb"));
+      assertTrue(PatternCache.matches("[0-9]+", "123"));
+      assertFalse(PatternCache.matches("[0-9]+", ""));
+    }
+  }
+
+  public void testDynamicPatterns() {
+    Serializable s = MVEL.compileExpression("code ~= pattern");
+    Map<String, Object> vars = new HashMap<String, Object>();
+    vars.put("code", "AB-12");
+    vars.put("pattern", "[A-Z]{2}-[0-9]+");
+    assertEquals(true, MVEL.executeExpression(s, vars));
+    assertEquals(true, MVEL.eval("code ~= pattern", vars));
+
+    vars.put("pattern", "[0-9]+");
+    assertEquals(false, MVEL.executeExpression(s, vars));
+    assertEquals(false, MVEL.eval("code ~= pattern", vars));
+  }
+}